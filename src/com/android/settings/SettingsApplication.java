@@ -18,6 +18,7 @@ package com.android.settings;
 
 import android.app.Application;
 import android.content.Context;
+import android.content.res.Configuration;
 import android.database.ContentObserver;
 import android.net.Uri;
 import android.provider.Settings;
@@ -27,6 +28,7 @@ import androidx.annotation.NonNull;
 
 import com.android.settings.activityembedding.ActivityEmbeddingRulesController;
 import com.android.settings.activityembedding.ActivityEmbeddingUtils;
+import com.android.settings.applications.AppIconLabelCache;
 import com.android.settings.core.instrumentation.ElapsedTimeUtils;
 import com.android.settings.fuelgauge.BatterySettingsStorage;
 import com.android.settings.homepage.SettingsHomepageActivity;
@@ -66,6 +68,8 @@ public class SettingsApplication extends Application {
         // Set Spa environment.
         setSpaEnvironment();
 
+        AppIconLabelCache.getInstance().onConfigurationChanged(getResources().getConfiguration());
+
         if (ActivityEmbeddingUtils.isSettingsSplitEnabled(this)
                 && FeatureFlagUtils.isEnabled(this,
                         FeatureFlagUtils.SETTINGS_SUPPORT_LARGE_SCREEN)) {
@@ -104,10 +108,17 @@ public class SettingsApplication extends Application {
         return mHomeActivity.get();
     }
 
+    @Override
+    public void onConfigurationChanged(@NonNull Configuration newConfig) {
+        super.onConfigurationChanged(newConfig);
+        AppIconLabelCache.getInstance().onConfigurationChanged(newConfig);
+    }
+
     @Override
     public void onTrimMemory(int level) {
         super.onTrimMemory(level);
         AppIconCacheManager.getInstance().trimMemory(level);
+        AppIconLabelCache.getInstance().trimMemory(level);
     }
 
     private class DeviceProvisionedObserver extends ContentObserver {
@@ -21,23 +21,28 @@ import android.content.pm.FeatureFlagsImpl;
 import android.content.pm.PackageManager;
 import android.content.pm.PackageManager.ApplicationInfoFlags;
 import android.content.pm.UserInfo;
-import android.os.AsyncTask;
 import android.os.SystemProperties;
 import android.os.UserHandle;
 import android.os.UserManager;
 
 import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
 import androidx.annotation.VisibleForTesting;
 
 import com.android.settings.flags.Flags;
 
 import java.util.List;
 
-public abstract class AppCounter extends AsyncTask<Void, Void, Integer> {
+/**
+ * Counts the installed apps of the current user and its profiles matching
+ * {@link #includeInCount}, through the shared {@link AppCountingService}.
+ */
+public abstract class AppCounter {
 
     protected final PackageManager mPm;
     protected final UserManager mUm;
     protected final FeatureFlags mFf;
+    private final AppCountingService mCountingService;
 
     @VisibleForTesting
     AppCounter(@NonNull Context context, @NonNull PackageManager packageManager,
@@ -45,44 +50,50 @@ public abstract class AppCounter extends AsyncTask<Void, Void, Integer> {
         mPm = packageManager;
         mUm = context.getSystemService(UserManager.class);
         mFf = featureFlags;
+        mCountingService = AppCountingService.getInstance(context);
     }
 
     public AppCounter(@NonNull Context context, @NonNull PackageManager packageManager) {
         this(context, packageManager, new FeatureFlagsImpl());
     }
 
-    @Override
-    protected Integer doInBackground(Void... params) {
-        int count = 0;
-        for (UserInfo user : mUm.getProfiles(UserHandle.myUserId())) {
-            long flags = PackageManager.GET_DISABLED_COMPONENTS
-                    | PackageManager.GET_DISABLED_UNTIL_USED_COMPONENTS
-                    | (isArchivingEnabled() ? PackageManager.MATCH_ARCHIVED_PACKAGES : 0)
-                    | (user.isAdmin() ? PackageManager.MATCH_ANY_USER : 0);
-            ApplicationInfoFlags infoFlags = ApplicationInfoFlags.of(flags);
-            final List<ApplicationInfo> list =
-                    mPm.getInstalledApplicationsAsUser(infoFlags, user.id);
-            for (ApplicationInfo info : list) {
-                if (includeInCount(info)) {
-                    count++;
-                }
-            }
-        }
-        return count;
+    /** Counts the apps in the background and reports the count to {@link #onCountComplete}. */
+    public void execute() {
+        mCountingService.count(this);
     }
 
-    private boolean isArchivingEnabled() {
-        return mFf.archiving() || SystemProperties.getBoolean("pm.archiving.enabled", false)
-                || Flags.appArchiving();
+    void executeInForeground() {
+        onCountComplete(mCountingService.countInForeground(this));
     }
 
-    @Override
-    protected void onPostExecute(Integer count) {
-        onCountComplete(count);
+    /**
+     * Returns the key under which the counts of this counter may be cached and shared with the
+     * other counters of the same key, or null if they must not be cached. Counters returning the
+     * same key must count the same apps.
+     */
+    @Nullable
+    protected String getCacheKey() {
+        return null;
     }
 
-    void executeInForeground() {
-        onPostExecute(doInBackground());
+    List<UserInfo> getProfiles() {
+        return mUm.getProfiles(UserHandle.myUserId());
+    }
+
+    long getQueryFlags(UserInfo user) {
+        return PackageManager.GET_DISABLED_COMPONENTS
+                | PackageManager.GET_DISABLED_UNTIL_USED_COMPONENTS
+                | (isArchivingEnabled() ? PackageManager.MATCH_ARCHIVED_PACKAGES : 0)
+                | (user.isAdmin() ? PackageManager.MATCH_ANY_USER : 0);
+    }
+
+    List<ApplicationInfo> getInstalledApplications(long flags, int userId) {
+        return mPm.getInstalledApplicationsAsUser(ApplicationInfoFlags.of(flags), userId);
+    }
+
+    private boolean isArchivingEnabled() {
+        return mFf.archiving() || SystemProperties.getBoolean("pm.archiving.enabled", false)
+                || Flags.appArchiving();
     }
 
     protected abstract void onCountComplete(int num);
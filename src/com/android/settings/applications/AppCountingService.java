@@ -0,0 +1,227 @@
+/*
+ * Copyright (C) 2026 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.applications;
+
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
+import android.content.pm.ApplicationInfo;
+import android.content.pm.UserInfo;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.os.UserHandle;
+import android.util.ArrayMap;
+import android.util.Pair;
+
+import androidx.annotation.GuardedBy;
+import androidx.annotation.Nullable;
+import androidx.annotation.VisibleForTesting;
+import androidx.annotation.WorkerThread;
+
+import com.android.settingslib.utils.ThreadUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+
+/**
+ * Counts the installed apps matching the predicates of {@link AppCounter}s in the background.
+ *
+ * <p>Counters arriving while a scan is pending are served by that same scan, which fetches the
+ * installed apps of every user once. The counts of counters with a {@link AppCounter#getCacheKey}
+ * are cached per user until a package changes, and for at most {@link #MAX_CACHE_AGE_MS} since
+ * permission grants and install reasons can change without a package broadcast.
+ */
+public final class AppCountingService {
+
+    @VisibleForTesting
+    static final long MAX_CACHE_AGE_MS = 60_000L;
+
+    private static AppCountingService sInstance;
+
+    private final Executor mExecutor;
+    private final Handler mHandler = new Handler(Looper.getMainLooper());
+    private final Object mLock = new Object();
+    @GuardedBy("mLock")
+    private final List<AppCounter> mPending = new ArrayList<>();
+    @GuardedBy("mLock")
+    private boolean mScanScheduled;
+    @GuardedBy("mLock")
+    private final Map<String, CachedCount> mCache = new ArrayMap<>();
+    // Bumped on every invalidation, so a scan started before it doesn't cache stale counts.
+    @GuardedBy("mLock")
+    private int mGeneration;
+
+    private final BroadcastReceiver mPackageReceiver = new BroadcastReceiver() {
+        @Override
+        public void onReceive(Context context, Intent intent) {
+            invalidate();
+        }
+    };
+
+    /** Returns the process-wide instance. */
+    public static synchronized AppCountingService getInstance(Context context) {
+        if (sInstance == null) {
+            sInstance = new AppCountingService(ThreadUtils::postOnBackgroundThread);
+            final Context appContext = context.getApplicationContext();
+            if (appContext != null) {
+                sInstance.registerPackageReceiver(appContext);
+            }
+        }
+        return sInstance;
+    }
+
+    @VisibleForTesting
+    AppCountingService(Executor executor) {
+        mExecutor = executor;
+    }
+
+    @VisibleForTesting(otherwise = VisibleForTesting.NONE)
+    public static synchronized void setUpForTest(@Nullable AppCountingService service) {
+        sInstance = service;
+    }
+
+    /** Counts the apps of {@code counter} and reports the count to it on the main thread. */
+    void count(AppCounter counter) {
+        synchronized (mLock) {
+            mPending.add(counter);
+            if (mScanScheduled) {
+                return;
+            }
+            mScanScheduled = true;
+        }
+        mExecutor.execute(this::scanPending);
+    }
+
+    /** Returns the count of the apps of {@code counter} on the calling thread. */
+    @WorkerThread
+    int countInForeground(AppCounter counter) {
+        final List<AppCounter> counters = new ArrayList<>();
+        counters.add(counter);
+        return countApps(counters)[0];
+    }
+
+    /** Drops every cached count, e.g. when a package was installed or removed. */
+    public void invalidate() {
+        synchronized (mLock) {
+            mGeneration++;
+            mCache.clear();
+        }
+    }
+
+    private void scanPending() {
+        final List<AppCounter> counters;
+        synchronized (mLock) {
+            counters = new ArrayList<>(mPending);
+            mPending.clear();
+            mScanScheduled = false;
+        }
+        final int[] counts = countApps(counters);
+        for (int i = 0; i < counters.size(); i++) {
+            final AppCounter counter = counters.get(i);
+            final int count = counts[i];
+            mHandler.post(() -> counter.onCountComplete(count));
+        }
+    }
+
+    private int[] countApps(List<AppCounter> counters) {
+        final int generation;
+        synchronized (mLock) {
+            generation = mGeneration;
+        }
+        // The installed apps by user and query flags, fetched once for all the counters.
+        final Map<Pair<Integer, Long>, List<ApplicationInfo>> installedApps = new ArrayMap<>();
+        final int[] counts = new int[counters.size()];
+        for (int i = 0; i < counters.size(); i++) {
+            final AppCounter counter = counters.get(i);
+            final String counterKey = counter.getCacheKey();
+            for (UserInfo user : counter.getProfiles()) {
+                final long flags = counter.getQueryFlags(user);
+                final String cacheKey = counterKey != null
+                        ? counterKey + "/" + user.id + "/" + flags : null;
+                final Integer cached = getCachedCount(cacheKey);
+                if (cached != null) {
+                    counts[i] += cached;
+                    continue;
+                }
+                final Pair<Integer, Long> appsKey = Pair.create(user.id, flags);
+                List<ApplicationInfo> apps = installedApps.get(appsKey);
+                if (apps == null) {
+                    apps = counter.getInstalledApplications(flags, user.id);
+                    installedApps.put(appsKey, apps);
+                }
+                int userCount = 0;
+                for (ApplicationInfo info : apps) {
+                    if (counter.includeInCount(info)) {
+                        userCount++;
+                    }
+                }
+                counts[i] += userCount;
+                putCachedCount(cacheKey, userCount, generation);
+            }
+        }
+        return counts;
+    }
+
+    @Nullable
+    private Integer getCachedCount(@Nullable String cacheKey) {
+        if (cacheKey == null) {
+            return null;
+        }
+        synchronized (mLock) {
+            final CachedCount cached = mCache.get(cacheKey);
+            if (cached == null
+                    || SystemClock.elapsedRealtime() - cached.mCountTimeMs > MAX_CACHE_AGE_MS) {
+                return null;
+            }
+            return cached.mCount;
+        }
+    }
+
+    private void putCachedCount(@Nullable String cacheKey, int count, int generation) {
+        if (cacheKey == null) {
+            return;
+        }
+        synchronized (mLock) {
+            if (generation == mGeneration) {
+                mCache.put(cacheKey, new CachedCount(count, SystemClock.elapsedRealtime()));
+            }
+        }
+    }
+
+    private void registerPackageReceiver(Context context) {
+        final IntentFilter filter = new IntentFilter();
+        filter.addAction(Intent.ACTION_PACKAGE_ADDED);
+        filter.addAction(Intent.ACTION_PACKAGE_CHANGED);
+        filter.addAction(Intent.ACTION_PACKAGE_REMOVED);
+        filter.addDataScheme("package");
+        context.registerReceiverAsUser(mPackageReceiver, UserHandle.ALL, filter, null, null);
+    }
+
+    private static class CachedCount {
+        final int mCount;
+        final long mCountTimeMs;
+
+        CachedCount(int count, long countTimeMs) {
+            mCount = count;
+            mCountTimeMs = countTimeMs;
+        }
+    }
+}
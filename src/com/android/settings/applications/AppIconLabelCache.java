@@ -0,0 +1,269 @@
+/*
+ * Copyright (C) 2026 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.applications;
+
+import android.content.ComponentCallbacks2;
+import android.content.Context;
+import android.content.pm.ActivityInfo;
+import android.content.pm.ApplicationInfo;
+import android.content.res.Configuration;
+import android.graphics.drawable.Drawable;
+import android.os.UserHandle;
+import android.util.LruCache;
+
+import androidx.annotation.MainThread;
+import androidx.annotation.Nullable;
+import androidx.annotation.VisibleForTesting;
+import androidx.annotation.WorkerThread;
+
+import com.android.settings.Utils;
+import com.android.settingslib.utils.ThreadUtils;
+
+import java.util.Locale;
+import java.util.Objects;
+import java.util.function.Consumer;
+
+/**
+ * Process-wide cache of the app icons and labels shown by the screens that don't go through an
+ * {@link com.android.settingslib.applications.ApplicationsState} session.
+ *
+ * <p>Entries are keyed by package, user and version code, so an update of the app naturally
+ * misses the cache. The icons are bounded by a share of the heap limit, which is the memory class
+ * of the device, and are trimmed from
+ * {@link com.android.settings.SettingsApplication#onTrimMemory}. They are dropped when the
+ * density, the night mode or the overlays change, and the labels when the locale changes.
+ */
+public final class AppIconLabelCache {
+    // The icons may take up to this fraction of the heap limit of the process.
+    private static final int HEAP_DIVIDER = 32;
+    private static final int MAX_LABELS = 512;
+    // The configuration changes the icons are resolved differently for, icon shape and theme
+    // overlays included.
+    private static final int ICON_CONFIG_CHANGES = ActivityInfo.CONFIG_DENSITY
+            | ActivityInfo.CONFIG_UI_MODE | ActivityInfo.CONFIG_ASSETS_PATHS;
+
+    private static AppIconLabelCache sInstance;
+
+    private final LruCache<Key, Drawable> mIcons;
+    private final LruCache<Key, CharSequence> mLabels = new LruCache<>(MAX_LABELS);
+    // Guarded by mLabels.
+    private Locale mLabelLocale;
+    // Guarded by this.
+    @Nullable
+    private Configuration mConfiguration;
+
+    /** Returns the process-wide instance. */
+    public static synchronized AppIconLabelCache getInstance() {
+        if (sInstance == null) {
+            // The heap limit is the memory class of the device, unless Settings asks for a large
+            // heap.
+            final long maxIconBytes = Runtime.getRuntime().maxMemory() / HEAP_DIVIDER;
+            sInstance = new AppIconLabelCache((int) Math.min(Integer.MAX_VALUE, maxIconBytes));
+        }
+        return sInstance;
+    }
+
+    @VisibleForTesting
+    AppIconLabelCache(int maxIconBytes) {
+        mIcons = new LruCache<Key, Drawable>(maxIconBytes) {
+            @Override
+            protected int sizeOf(Key key, Drawable icon) {
+                // The icons are mostly bitmaps of their intrinsic size, 4 bytes per pixel.
+                return Math.max(1, icon.getIntrinsicWidth() * icon.getIntrinsicHeight() * 4);
+            }
+        };
+    }
+
+    @VisibleForTesting(otherwise = VisibleForTesting.NONE)
+    public static synchronized void setUpForTest(@Nullable AppIconLabelCache cache) {
+        sInstance = cache;
+    }
+
+    /** Returns the badged icon of {@code info} if it is cached, without loading it. */
+    @Nullable
+    public Drawable getCachedBadgedIcon(ApplicationInfo info) {
+        return newDrawable(mIcons.get(new Key(info, /* badged= */ true)));
+    }
+
+    /** Returns the badged icon of {@code info}, loading it on a miss. */
+    @WorkerThread
+    @Nullable
+    public Drawable getBadgedIcon(Context context, ApplicationInfo info) {
+        final Key key = new Key(info, /* badged= */ true);
+        Drawable icon = mIcons.get(key);
+        if (icon == null) {
+            icon = Utils.getBadgedIcon(context, info);
+            if (icon == null) {
+                return null;
+            }
+            mIcons.put(key, icon);
+        }
+        return newDrawable(icon);
+    }
+
+    /** Returns the icon of {@code info} without the user badge, loading it on a miss. */
+    @WorkerThread
+    @Nullable
+    public Drawable getIcon(Context context, ApplicationInfo info) {
+        final Key key = new Key(info, /* badged= */ false);
+        Drawable icon = mIcons.get(key);
+        if (icon == null) {
+            icon = context.getPackageManager().getApplicationIcon(info);
+            if (icon == null) {
+                return null;
+            }
+            mIcons.put(key, icon);
+        }
+        return newDrawable(icon);
+    }
+
+    /**
+     * Loads the badged icon of {@code info} in the background and hands it to {@code callback} on
+     * the main thread. A cached icon is handed over synchronously.
+     */
+    @MainThread
+    public void loadBadgedIcon(Context context, ApplicationInfo info,
+            Consumer<Drawable> callback) {
+        final Drawable cached = getCachedBadgedIcon(info);
+        if (cached != null) {
+            callback.accept(cached);
+            return;
+        }
+        ThreadUtils.postOnBackgroundThread(() -> {
+            final Drawable icon = getBadgedIcon(context, info);
+            ThreadUtils.postOnMainThread(() -> callback.accept(icon));
+        });
+    }
+
+    /**
+     * Loads the icon of {@code info} without the user badge in the background and hands it to
+     * {@code callback} on the main thread. A cached icon is handed over synchronously.
+     */
+    @MainThread
+    public void loadIcon(Context context, ApplicationInfo info, Consumer<Drawable> callback) {
+        final Drawable cached = newDrawable(mIcons.get(new Key(info, /* badged= */ false)));
+        if (cached != null) {
+            callback.accept(cached);
+            return;
+        }
+        ThreadUtils.postOnBackgroundThread(() -> {
+            final Drawable icon = getIcon(context, info);
+            ThreadUtils.postOnMainThread(() -> callback.accept(icon));
+        });
+    }
+
+    /** Returns the label of {@code info}, loading it on a miss. */
+    @WorkerThread
+    @Nullable
+    public CharSequence getLabel(Context context, ApplicationInfo info) {
+        final Key key = new Key(info, /* badged= */ false);
+        synchronized (mLabels) {
+            final Locale locale = Locale.getDefault();
+            if (!locale.equals(mLabelLocale)) {
+                mLabelLocale = locale;
+                mLabels.evictAll();
+            }
+        }
+        CharSequence label = mLabels.get(key);
+        if (label == null) {
+            label = context.getPackageManager().getApplicationLabel(info);
+            if (label == null) {
+                return null;
+            }
+            mLabels.put(key, label);
+        }
+        return label;
+    }
+
+    /** Drops every cached icon and label. */
+    public void clear() {
+        mIcons.evictAll();
+        mLabels.evictAll();
+    }
+
+    /**
+     * Drops the icons if {@code newConfig} resolves them differently from the last configuration,
+     * e.g. for another density, night mode or icon shape overlay.
+     */
+    public void onConfigurationChanged(Configuration newConfig) {
+        final int changes;
+        synchronized (this) {
+            changes = mConfiguration != null ? mConfiguration.diff(newConfig) : ICON_CONFIG_CHANGES;
+            mConfiguration = new Configuration(newConfig);
+        }
+        if ((changes & ICON_CONFIG_CHANGES) != 0) {
+            mIcons.evictAll();
+        }
+    }
+
+    /** Releases memory according to {@link ComponentCallbacks2#onTrimMemory} {@code level}. */
+    public void trimMemory(int level) {
+        if (level >= ComponentCallbacks2.TRIM_MEMORY_BACKGROUND
+                || level == ComponentCallbacks2.TRIM_MEMORY_RUNNING_CRITICAL) {
+            mIcons.evictAll();
+            if (level >= ComponentCallbacks2.TRIM_MEMORY_COMPLETE) {
+                mLabels.evictAll();
+            }
+        } else if (level >= ComponentCallbacks2.TRIM_MEMORY_RUNNING_MODERATE) {
+            mIcons.trimToSize(mIcons.maxSize() / 2);
+        }
+    }
+
+    @Nullable
+    private static Drawable newDrawable(@Nullable Drawable icon) {
+        if (icon == null) {
+            return null;
+        }
+        // Every caller gets its own drawable, the cached one is never bound to a view.
+        final Drawable.ConstantState state = icon.getConstantState();
+        return state != null ? state.newDrawable() : icon;
+    }
+
+    private static final class Key {
+        final String mPackageName;
+        final int mUserId;
+        final long mVersionCode;
+        final boolean mBadged;
+
+        Key(ApplicationInfo info, boolean badged) {
+            mPackageName = info.packageName;
+            mUserId = UserHandle.getUserId(info.uid);
+            mVersionCode = info.longVersionCode;
+            mBadged = badged;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            final Key other = (Key) o;
+            return mUserId == other.mUserId
+                    && mVersionCode == other.mVersionCode
+                    && mBadged == other.mBadged
+                    && Objects.equals(mPackageName, other.mPackageName);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(mPackageName, mUserId, mVersionCode, mBadged);
+        }
+    }
+}
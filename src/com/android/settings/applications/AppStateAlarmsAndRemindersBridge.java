@@ -115,6 +115,11 @@ public class AppStateAlarmsAndRemindersBridge extends AppStateBaseBridge {
         }
     }
 
+    @Override
+    protected boolean isDeltaLoadSupported() {
+        return true;
+    }
+
     public static final AppFilter FILTER_CLOCK_APPS = new AppFilter() {
 
         @Override
@@ -30,6 +30,7 @@ import com.android.settingslib.fuelgauge.PowerAllowlistBackend;
 
 import java.lang.annotation.Retention;
 import java.lang.annotation.RetentionPolicy;
+import java.util.List;
 
 /**
  * Class for bridging the app battery usage information to ApplicationState.
@@ -84,13 +85,28 @@ public class AppStateAppBatteryUsageBridge extends AppStateBaseBridge {
         if (DEBUG) {
             Log.d(TAG, "Start loadAllExtraInfo()");
         }
-        mAppSession.getAllApps().stream().forEach(appEntry ->
-                updateExtraInfo(appEntry, appEntry.info.packageName, appEntry.info.uid));
+        final List<AppEntry> apps = mAppSession.getAllApps();
+        applyExtraInfo(apps, computeAllExtraInfo(getAppKeys(apps)));
         if (DEBUG) {
             Log.d(TAG, "End loadAllExtraInfo()");
         }
     }
 
+    @Override
+    protected boolean isParallelLoadSupported() {
+        return true;
+    }
+
+    @Override
+    protected Object[] computeAllExtraInfo(List<AppKey> apps) {
+        final Object[] infos = new Object[apps.size()];
+        for (int i = 0; i < infos.length; i++) {
+            final AppKey app = apps.get(i);
+            infos[i] = getAppBatteryUsageState(app.packageName, app.uid);
+        }
+        return infos;
+    }
+
     protected Object getAppBatteryUsageState(String pkg, int uid) {
         // Restricted = AppOpsManager.MODE_IGNORED + !allowListed
         // Unrestricted = AppOpsManager.MODE_ALLOWED + allowListed
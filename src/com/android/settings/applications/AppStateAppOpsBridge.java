@@ -55,6 +55,9 @@ public abstract class AppStateAppOpsBridge extends AppStateBaseBridge {
     private final int[] mAppOpsOpCodes;
     private final String[] mPermissions;
 
+    // The per-user permission state table of the last load, updated by delta loads.
+    private SparseArray<ArrayMap<String, PermissionState>> mEntries;
+
     public AppStateAppOpsBridge(Context context, ApplicationsState appState, Callback callback,
             int appOpsOpCode, String[] permissions) {
         this(context, appState, callback, appOpsOpCode, permissions,
@@ -144,6 +147,12 @@ public abstract class AppStateAppOpsBridge extends AppStateBaseBridge {
 
     @Override
     protected void loadAllExtraInfo() {
+        final List<AppEntry> apps = mAppSession.getAllApps();
+        applyExtraInfo(apps, computeAllExtraInfo(getAppKeys(apps)));
+    }
+
+    @Override
+    protected Object[] computeAllExtraInfo(List<AppKey> apps) {
         SparseArray<ArrayMap<String, PermissionState>> entries = getEntries();
 
         // Load state info.
@@ -151,18 +160,98 @@ public abstract class AppStateAppOpsBridge extends AppStateBaseBridge {
         loadAppOpsStates(entries);
 
         // Map states to application info.
-        List<AppEntry> apps = mAppSession.getAllApps();
         final int N = apps.size();
+        final Object[] infos = new Object[N];
         for (int i = 0; i < N; i++) {
-            AppEntry app = apps.get(i);
-            int userId = UserHandle.getUserId(app.info.uid);
+            AppKey app = apps.get(i);
+            int userId = UserHandle.getUserId(app.uid);
             if (entries != null) {
                 ArrayMap<String, PermissionState> userMap = entries.get(userId);
-                app.extraInfo = userMap != null ? userMap.get(app.info.packageName) : null;
+                infos[i] = userMap != null ? userMap.get(app.packageName) : null;
+            }
+        }
+        return infos;
+    }
+
+    @Override
+    protected void applyExtraInfo(List<AppEntry> apps, Object[] infos) {
+        super.applyExtraInfo(apps, infos);
+        final SparseArray<ArrayMap<String, PermissionState>> entries = new SparseArray<>();
+        for (int i = 0; i < infos.length; i++) {
+            if (!(infos[i] instanceof PermissionState)) {
+                continue;
+            }
+            final int userId = UserHandle.getUserId(apps.get(i).info.uid);
+            ArrayMap<String, PermissionState> userMap = entries.get(userId);
+            if (userMap == null) {
+                userMap = new ArrayMap<>();
+                entries.put(userId, userMap);
+            }
+            userMap.put(apps.get(i).info.packageName, (PermissionState) infos[i]);
+        }
+        mEntries = entries;
+    }
+
+    @Override
+    protected boolean isDeltaLoadSupported() {
+        return true;
+    }
+
+    /*
+     * Updates the per-user state table for the changed packages only, with the same semantics as
+     * loadAllExtraInfo(): packages which don't request any of mPermissions get no extra info.
+     */
+    @Override
+    protected void loadExtraInfoForPackages(List<AppEntry> changedApps,
+            List<AppEntry> removedApps) {
+        if (mEntries == null) {
+            mEntries = new SparseArray<>();
+        }
+        for (AppEntry app : removedApps) {
+            final ArrayMap<String, PermissionState> userMap =
+                    mEntries.get(UserHandle.getUserId(app.info.uid));
+            if (userMap != null) {
+                userMap.remove(app.info.packageName);
+            }
+        }
+        for (AppEntry app : changedApps) {
+            final String packageName = app.info.packageName;
+            final int userId = UserHandle.getUserId(app.info.uid);
+            final PermissionState state = loadPermissionState(packageName, app.info.uid);
+            ArrayMap<String, PermissionState> userMap = mEntries.get(userId);
+            if (state == null) {
+                if (userMap != null) {
+                    userMap.remove(packageName);
+                }
             } else {
-                app.extraInfo = null;
+                if (userMap == null) {
+                    userMap = new ArrayMap<>();
+                    mEntries.put(userId, userMap);
+                }
+                userMap.put(packageName, state);
             }
+            app.extraInfo = state;
+        }
+    }
+
+    /*
+     * Returns the permission state of a single package, or null if it should not be listed.
+     */
+    private PermissionState loadPermissionState(String packageName, int uid) {
+        final int userId = UserHandle.getUserId(uid);
+        if (!isThisUserAProfileOfCurrentUser(userId) || shouldIgnorePackage(packageName)) {
+            return null;
+        }
+        try {
+            if (!mIPackageManager.isPackageAvailable(packageName, userId)) {
+                return null;
+            }
+        } catch (RemoteException e) {
+            Log.w(TAG, "PackageManager is dead. Can't get availability of " + packageName, e);
+            return null;
         }
+        final PermissionState state = getPermissionInfo(packageName, uid);
+        return state.permissionDeclared ? state : null;
     }
 
     /*
@@ -15,21 +15,46 @@
  */
 package com.android.settings.applications;
 
+import android.content.pm.ApplicationInfo;
 import android.os.Handler;
 import android.os.Looper;
 import android.os.Message;
+import android.os.UserHandle;
+import android.util.ArrayMap;
+import android.util.ArraySet;
+import android.util.Log;
+import android.util.SparseArray;
+
+import androidx.annotation.Nullable;
+import androidx.annotation.VisibleForTesting;
+import androidx.annotation.WorkerThread;
 
 import com.android.settingslib.applications.ApplicationsState;
 import com.android.settingslib.applications.ApplicationsState.AppEntry;
 import com.android.settingslib.applications.ApplicationsState.Session;
 
 import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Common base class for bridging information to ApplicationsState.
  */
 public abstract class AppStateBaseBridge implements ApplicationsState.Callbacks {
 
+    private static final String TAG = "AppStateBaseBridge";
+
+    private static final int PARALLEL_LOAD_THREADS = 3;
+    private static final long PARALLEL_LOAD_KEEP_ALIVE_SECONDS = 10;
+
+    // Shared by the bridges computing their extra info off the ApplicationsState looper, so that
+    // independent bridges don't queue up behind each other and behind the app entry loading.
+    private static final ThreadPoolExecutor sParallelLoadExecutor = createParallelLoadExecutor();
+
     protected final ApplicationsState mAppState;
     protected final Session mAppSession;
     protected final Callback mCallback;
@@ -38,6 +63,18 @@ public abstract class AppStateBaseBridge implements ApplicationsState.Callbacks
 
     private boolean mForceLoadAllApps;
 
+    // The apps whose extra info has been loaded, by user id and package name. Only accessed on
+    // the background handler, null until the first full load.
+    private SparseArray<ArrayMap<String, LoadedApp>> mLoadedApps;
+
+    @VisibleForTesting
+    Executor mParallelLoadExecutor = sParallelLoadExecutor;
+
+    // State of the parallel load, only accessed on the background handler.
+    private boolean mParallelLoadInFlight;
+    private boolean mParallelLoadPending;
+    private final Set<AppEntry> mUpdatedDuringParallelLoad = new ArraySet<>();
+
     public AppStateBaseBridge(ApplicationsState appState, Callback callback) {
         mAppState = appState;
         mAppSession = mAppState != null ? mAppState.newSession(this) : null;
@@ -77,7 +114,12 @@ public abstract class AppStateBaseBridge implements ApplicationsState.Callbacks
 
     @Override
     public void onPackageListChanged() {
-        mHandler.sendEmptyMessage(BackgroundHandler.MSG_LOAD_ALL);
+        if (isDeltaLoadSupported()) {
+            mHandler.removeMessages(BackgroundHandler.MSG_LOAD_CHANGED);
+            mHandler.sendEmptyMessage(BackgroundHandler.MSG_LOAD_CHANGED);
+        } else {
+            mHandler.sendEmptyMessage(BackgroundHandler.MSG_LOAD_ALL);
+        }
     }
 
     @Override
@@ -119,6 +161,215 @@ public abstract class AppStateBaseBridge implements ApplicationsState.Callbacks
 
     protected abstract void updateExtraInfo(AppEntry app, String pkg, int uid);
 
+    /**
+     * Whether a package list change can be applied by {@link #loadExtraInfoForPackages} to the
+     * added, changed and removed packages only, instead of {@link #loadAllExtraInfo}.
+     */
+    protected boolean isDeltaLoadSupported() {
+        return false;
+    }
+
+    /**
+     * Loads the extra info of the apps added or changed since the last load, and drops the state
+     * kept for the removed ones. Only called when {@link #isDeltaLoadSupported} is true.
+     *
+     * @param changedApps the apps which are new or whose {@link ApplicationInfo} changed
+     * @param removedApps the apps which are no longer in the session
+     */
+    protected void loadExtraInfoForPackages(List<AppEntry> changedApps,
+            List<AppEntry> removedApps) {
+        for (AppEntry app : changedApps) {
+            updateExtraInfo(app, app.info.packageName, app.info.uid);
+        }
+    }
+
+    /**
+     * Whether {@link #computeAllExtraInfo} can run on a worker thread instead of the
+     * ApplicationsState background looper for full loads.
+     */
+    protected boolean isParallelLoadSupported() {
+        return false;
+    }
+
+    /**
+     * Computes the extra info of {@code apps} without modifying any state of the bridge, as it
+     * runs on a worker thread concurrently with the ApplicationsState background looper, which
+     * owns the app entries. Only called when {@link #isParallelLoadSupported} is true.
+     *
+     * @return the extra info of each app, in the order of {@code apps}, or null to load it with
+     *         {@link #loadAllExtraInfo} on the background handler instead
+     */
+    @WorkerThread
+    @Nullable
+    protected Object[] computeAllExtraInfo(List<AppKey> apps) {
+        return null;
+    }
+
+    /** Captures the keys of {@code apps} for {@link #computeAllExtraInfo}. */
+    protected static List<AppKey> getAppKeys(List<AppEntry> apps) {
+        final List<AppKey> keys = new ArrayList<>(apps.size());
+        for (int i = 0, size = apps.size(); i < size; i++) {
+            final ApplicationInfo info = apps.get(i).info;
+            keys.add(new AppKey(info.packageName, info.uid));
+        }
+        return keys;
+    }
+
+    /**
+     * Applies the extra info returned by {@link #computeAllExtraInfo} to {@code apps}, on the
+     * background handler.
+     */
+    protected void applyExtraInfo(List<AppEntry> apps, Object[] infos) {
+        for (int i = 0, size = apps.size(); i < size; i++) {
+            apps.get(i).extraInfo = infos[i];
+        }
+    }
+
+    /*
+     * Computes the extra info of all the apps on the shared executor, then applies it on the
+     * background handler all at once so the callback never sees a partially loaded list. Loads
+     * requested meanwhile are coalesced into a single one started after the current one.
+     */
+    private void startParallelLoad() {
+        if (mParallelLoadInFlight) {
+            mParallelLoadPending = true;
+            return;
+        }
+        mParallelLoadInFlight = true;
+        mUpdatedDuringParallelLoad.clear();
+        final List<AppEntry> apps = new ArrayList<>(mAppSession.getAllApps());
+        // The entries may be replaced meanwhile, so the worker only gets their keys.
+        final List<AppKey> keys = getAppKeys(apps);
+        mParallelLoadExecutor.execute(() -> {
+            Object[] infos = null;
+            try {
+                infos = computeAllExtraInfo(keys);
+            } catch (RuntimeException e) {
+                Log.w(TAG, "Failed to compute the extra info, loading it on the looper", e);
+            }
+            mHandler.obtainMessage(BackgroundHandler.MSG_PARALLEL_LOAD_COMPUTED,
+                    new ParallelLoad(apps, infos)).sendToTarget();
+        });
+    }
+
+    private void onParallelLoadComputed(ParallelLoad load) {
+        mParallelLoadInFlight = false;
+        if (load.mInfos == null) {
+            loadAllExtraInfo();
+        } else {
+            // Keep the info of the apps which were force updated while computing.
+            for (int i = 0, size = load.mApps.size(); i < size; i++) {
+                final AppEntry app = load.mApps.get(i);
+                if (mUpdatedDuringParallelLoad.contains(app)) {
+                    load.mInfos[i] = app.extraInfo;
+                }
+            }
+            applyExtraInfo(load.mApps, load.mInfos);
+        }
+        mUpdatedDuringParallelLoad.clear();
+        if (isDeltaLoadSupported()) {
+            mLoadedApps = snapshotApps(load.mApps);
+        }
+        mMainHandler.sendEmptyMessage(MainHandler.MSG_INFO_UPDATED);
+        if (mParallelLoadPending) {
+            mParallelLoadPending = false;
+            startParallelLoad();
+        }
+    }
+
+    private static ThreadPoolExecutor createParallelLoadExecutor() {
+        final ThreadPoolExecutor executor = new ThreadPoolExecutor(PARALLEL_LOAD_THREADS,
+                PARALLEL_LOAD_THREADS, PARALLEL_LOAD_KEEP_ALIVE_SECONDS, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>());
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
+    private void loadChangedExtraInfo() {
+        final ArrayList<AppEntry> apps = mAppSession.getAllApps();
+        if (mLoadedApps == null) {
+            loadAllExtraInfo();
+            mLoadedApps = snapshotApps(apps);
+            return;
+        }
+        final SparseArray<ArrayMap<String, LoadedApp>> loadedApps = snapshotApps(apps);
+        final List<AppEntry> changedApps = new ArrayList<>();
+        for (int i = 0, size = apps.size(); i < size; i++) {
+            final AppEntry app = apps.get(i);
+            final LoadedApp previous = getLoadedApp(mLoadedApps, app);
+            if (previous == null || previous.mEntry != app || previous.mInfo != app.info) {
+                changedApps.add(app);
+            }
+        }
+        final List<AppEntry> removedApps = new ArrayList<>();
+        for (int i = 0; i < mLoadedApps.size(); i++) {
+            final ArrayMap<String, LoadedApp> previousApps = mLoadedApps.valueAt(i);
+            final ArrayMap<String, LoadedApp> currentApps = loadedApps.get(mLoadedApps.keyAt(i));
+            for (int j = 0; j < previousApps.size(); j++) {
+                if (currentApps == null || !currentApps.containsKey(previousApps.keyAt(j))) {
+                    removedApps.add(previousApps.valueAt(j).mEntry);
+                }
+            }
+        }
+        mLoadedApps = loadedApps;
+        if (!changedApps.isEmpty() || !removedApps.isEmpty()) {
+            loadExtraInfoForPackages(changedApps, removedApps);
+        }
+    }
+
+    private static SparseArray<ArrayMap<String, LoadedApp>> snapshotApps(List<AppEntry> apps) {
+        final SparseArray<ArrayMap<String, LoadedApp>> loadedApps = new SparseArray<>();
+        for (int i = 0, size = apps.size(); i < size; i++) {
+            final AppEntry app = apps.get(i);
+            final int userId = UserHandle.getUserId(app.info.uid);
+            ArrayMap<String, LoadedApp> userApps = loadedApps.get(userId);
+            if (userApps == null) {
+                userApps = new ArrayMap<>();
+                loadedApps.put(userId, userApps);
+            }
+            userApps.put(app.info.packageName, new LoadedApp(app));
+        }
+        return loadedApps;
+    }
+
+    private static LoadedApp getLoadedApp(SparseArray<ArrayMap<String, LoadedApp>> loadedApps,
+            AppEntry app) {
+        final ArrayMap<String, LoadedApp> userApps =
+                loadedApps.get(UserHandle.getUserId(app.info.uid));
+        return userApps != null ? userApps.get(app.info.packageName) : null;
+    }
+
+    /** The package and UID of an app entry, as read on the ApplicationsState looper. */
+    protected static final class AppKey {
+        public final String packageName;
+        public final int uid;
+
+        AppKey(String packageName, int uid) {
+            this.packageName = packageName;
+            this.uid = uid;
+        }
+    }
+
+    private static class ParallelLoad {
+        final List<AppEntry> mApps;
+        final Object[] mInfos;
+
+        ParallelLoad(List<AppEntry> apps, Object[] infos) {
+            mApps = apps;
+            mInfos = infos;
+        }
+    }
+
+    private static class LoadedApp {
+        final AppEntry mEntry;
+        final ApplicationInfo mInfo;
+
+        LoadedApp(AppEntry entry) {
+            mEntry = entry;
+            mInfo = entry.info;
+        }
+    }
+
     private class MainHandler extends Handler {
         private static final int MSG_INFO_UPDATED = 1;
 
@@ -139,6 +390,8 @@ public abstract class AppStateBaseBridge implements ApplicationsState.Callbacks
     private class BackgroundHandler extends Handler {
         private static final int MSG_LOAD_ALL = 1;
         private static final int MSG_FORCE_LOAD_PKG = 2;
+        private static final int MSG_LOAD_CHANGED = 3;
+        private static final int MSG_PARALLEL_LOAD_COMPUTED = 4;
 
         public BackgroundHandler(Looper looper) {
             super(looper);
@@ -148,9 +401,29 @@ public abstract class AppStateBaseBridge implements ApplicationsState.Callbacks
         public void handleMessage(Message msg) {
             switch (msg.what) {
                 case MSG_LOAD_ALL:
+                    if (isParallelLoadSupported()) {
+                        startParallelLoad();
+                        break;
+                    }
                     loadAllExtraInfo();
+                    if (isDeltaLoadSupported()) {
+                        mLoadedApps = snapshotApps(mAppSession.getAllApps());
+                    }
                     mMainHandler.sendEmptyMessage(MainHandler.MSG_INFO_UPDATED);
                     break;
+                case MSG_LOAD_CHANGED:
+                    if (isParallelLoadSupported()
+                            && (mParallelLoadInFlight || mLoadedApps == null)) {
+                        // The pending full load picks up the changes.
+                        startParallelLoad();
+                        break;
+                    }
+                    loadChangedExtraInfo();
+                    mMainHandler.sendEmptyMessage(MainHandler.MSG_INFO_UPDATED);
+                    break;
+                case MSG_PARALLEL_LOAD_COMPUTED:
+                    onParallelLoadComputed((ParallelLoad) msg.obj);
+                    break;
                 case MSG_FORCE_LOAD_PKG:
                     ArrayList<AppEntry> apps = mAppSession.getAllApps();
                     final int N = apps.size();
@@ -160,6 +433,9 @@ public abstract class AppStateBaseBridge implements ApplicationsState.Callbacks
                         AppEntry app = apps.get(i);
                         if (app.info.uid == uid && pkg.equals(app.info.packageName)) {
                             updateExtraInfo(app, pkg, uid);
+                            if (mParallelLoadInFlight) {
+                                mUpdatedDuringParallelLoad.add(app);
+                            }
                         }
                     }
                     mMainHandler.sendEmptyMessage(MainHandler.MSG_INFO_UPDATED);
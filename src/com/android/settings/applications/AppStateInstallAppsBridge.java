@@ -66,6 +66,11 @@ public class AppStateInstallAppsBridge extends AppStateBaseBridge {
         }
     }
 
+    @Override
+    protected boolean isDeltaLoadSupported() {
+        return true;
+    }
+
     private boolean hasRequestedAppOpPermission(String permission, String packageName, int userId) {
         try {
             String[] packages = mIpm.getAppOpPermissionPackages(permission, userId);
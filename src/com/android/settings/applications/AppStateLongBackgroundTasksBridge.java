@@ -90,6 +90,11 @@ public class AppStateLongBackgroundTasksBridge extends AppStateBaseBridge {
         }
     }
 
+    @Override
+    protected boolean isDeltaLoadSupported() {
+        return true;
+    }
+
     public static final AppFilter FILTER_LONG_JOBS_APPS = new AppFilter() {
 
         @Override
@@ -62,6 +62,17 @@ public class AppStateMediaManagementAppsBridge extends AppStateAppOpsBridge {
         }
     }
 
+    @Override
+    protected void loadExtraInfoForPackages(List<AppEntry> changedApps,
+            List<AppEntry> removedApps) {
+        super.loadExtraInfoForPackages(changedApps, removedApps);
+        for (AppEntry appEntry : changedApps) {
+            if (appEntry.extraInfo instanceof PermissionState) {
+                updateExtraInfo(appEntry, appEntry.info.packageName, appEntry.info.uid);
+            }
+        }
+    }
+
     /**
      * Returns information regarding {@link Manifest.permission#MANAGE_MEDIA} for the given
      * package and uid.
@@ -78,17 +78,38 @@ public class AppStateNotificationBridge extends AppStateBaseBridge {
             return;
         }
 
+        applyExtraInfo(apps, computeAllExtraInfo(getAppKeys(apps)));
+    }
+
+    @Override
+    protected boolean isParallelLoadSupported() {
+        return true;
+    }
+
+    @Override
+    protected Object[] computeAllExtraInfo(List<AppKey> apps) {
         final Map<String, NotificationsSentState> map = getAggregatedUsageEvents();
-        for (AppEntry entry : apps) {
+        final Object[] infos = new Object[apps.size()];
+        for (int i = 0; i < infos.length; i++) {
+            final AppKey app = apps.get(i);
             NotificationsSentState stats =
-                    map.get(getKey(UserHandle.getUserId(entry.info.uid), entry.info.packageName));
+                    map.get(getKey(UserHandle.getUserId(app.uid), app.packageName));
             if (stats == null) {
                 stats = new NotificationsSentState();
             }
             calculateAvgSentCounts(stats);
-            addBlockStatus(entry, stats);
-            entry.extraInfo = stats;
+            infos[i] = stats;
+        }
+        return infos;
+    }
+
+    @Override
+    protected void applyExtraInfo(List<AppEntry> apps, Object[] infos) {
+        // The block status is read from the app entries, so only on the background handler.
+        for (int i = 0, size = apps.size(); i < size; i++) {
+            addBlockStatus(apps.get(i), (NotificationsSentState) infos[i]);
         }
+        super.applyExtraInfo(apps, infos);
     }
 
     @Override
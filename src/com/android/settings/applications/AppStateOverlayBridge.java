@@ -44,6 +44,11 @@ public class AppStateOverlayBridge extends AppStateAppOpsBridge {
         super(context, appState, callback, APP_OPS_OP_CODE, PM_PERMISSION);
     }
 
+    @Override
+    protected boolean isParallelLoadSupported() {
+        return true;
+    }
+
     @Override
     protected void updateExtraInfo(AppEntry app, String pkg, int uid) {
         app.extraInfo = getOverlayInfo(pkg, uid);
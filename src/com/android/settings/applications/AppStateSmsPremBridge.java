@@ -46,6 +46,11 @@ public class AppStateSmsPremBridge extends AppStateBaseBridge {
         }
     }
 
+    @Override
+    protected boolean isDeltaLoadSupported() {
+        return true;
+    }
+
     @Override
     protected void updateExtraInfo(AppEntry app, String pkg, int uid) {
         app.extraInfo = getState(pkg);
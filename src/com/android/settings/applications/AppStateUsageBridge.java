@@ -49,6 +49,11 @@ public class AppStateUsageBridge extends AppStateAppOpsBridge {
         super(context, appState, callback, APP_OPS_OP_CODES, PM_PERMISSIONS);
     }
 
+    @Override
+    protected boolean isParallelLoadSupported() {
+        return true;
+    }
+
     @Override
     protected void updateExtraInfo(AppEntry app, String pkg, int uid) {
         app.extraInfo = getUsageInfo(pkg, uid);
@@ -23,6 +23,8 @@ import android.os.Build;
 import android.os.RemoteException;
 import android.os.UserHandle;
 
+import java.util.Arrays;
+
 /**
  * Counts installed apps across all users that have been granted one or more specific permissions by
  * the admin.
@@ -42,6 +44,11 @@ public abstract class AppWithAdminGrantedPermissionsCounter extends AppCounter {
         mDevicePolicyManager = devicePolicyManager;
     }
 
+    @Override
+    protected String getCacheKey() {
+        return "adminGrantedPermissions:" + Arrays.toString(mPermissions);
+    }
+
     @Override
     protected boolean includeInCount(ApplicationInfo info) {
         return includeInCount(mPermissions, mDevicePolicyManager, mPm, mPackageManagerService,
@@ -36,7 +36,6 @@ import androidx.preference.PreferenceScreen;
 
 import com.android.settings.R;
 import com.android.settings.core.BasePreferenceController;
-import com.android.settingslib.Utils;
 import com.android.settingslib.applications.ApplicationsState;
 import com.android.settingslib.utils.StringUtil;
 import com.android.settingslib.widget.AppPreference;
@@ -156,8 +155,18 @@ public class AppsPreferenceController extends BasePreferenceController implement
     List<RecentAppStatsMixin.UsageStatsWrapper> loadRecentApps() {
         final RecentAppStatsMixin recentAppStatsMixin = new RecentAppStatsMixin(mContext,
                 SHOW_RECENT_APP_COUNT);
-        recentAppStatsMixin.loadDisplayableRecentApps(SHOW_RECENT_APP_COUNT);
-        return recentAppStatsMixin.mRecentApps;
+        final List<RecentAppStatsMixin.UsageStatsWrapper> cachedApps =
+                RecentAppStatsMixin.getCachedRecentApps(SHOW_RECENT_APP_COUNT);
+        if (cachedApps == null) {
+            recentAppStatsMixin.loadDisplayableRecentApps(SHOW_RECENT_APP_COUNT);
+            return recentAppStatsMixin.mRecentApps;
+        }
+        // Shows the last loaded apps right away, and again if the refresh found other ones.
+        if (!RecentAppStatsMixin.isCacheFresh()) {
+            recentAppStatsMixin.addListener(recentApps -> refreshUi());
+            recentAppStatsMixin.refreshInBackground();
+        }
+        return cachedApps;
     }
 
     private void initPreferences(PreferenceScreen screen) {
@@ -203,7 +212,9 @@ public class AppsPreferenceController extends BasePreferenceController implement
 
                 pref.setKey(key);
                 pref.setTitle(appEntry.label);
-                pref.setIcon(Utils.getBadgedIcon(mContext, appEntry.info));
+                final Preference iconPref = pref;
+                AppIconLabelCache.getInstance().loadBadgedIcon(mContext, appEntry.info,
+                        iconPref::setIcon);
                 pref.setSummary(StringUtil.formatRelativeTime(mContext,
                         System.currentTimeMillis() - stats.getLastTimeUsed(), false,
                         RelativeDateTimeFormatter.Style.SHORT));
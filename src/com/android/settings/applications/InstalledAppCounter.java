@@ -49,6 +49,11 @@ public abstract class InstalledAppCounter extends AppCounter {
         mInstallReason = installReason;
     }
 
+    @Override
+    protected String getCacheKey() {
+        return "installed:" + mInstallReason;
+    }
+
     @Override
     protected boolean includeInCount(ApplicationInfo info) {
         return includeInCount(mInstallReason, mPm, info);
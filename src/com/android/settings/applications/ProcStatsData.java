@@ -29,6 +29,7 @@ import android.util.Log;
 import android.util.LongSparseArray;
 import android.util.SparseArray;
 
+import androidx.annotation.VisibleForTesting;
 import androidx.annotation.WorkerThread;
 
 import com.android.internal.app.ProcessMap;
@@ -42,12 +43,23 @@ import com.android.internal.app.procstats.ServiceState;
 import com.android.internal.util.MemInfoReader;
 import com.android.settings.R;
 import com.android.settings.Utils;
+import com.android.settingslib.utils.ThreadUtils;
+
+import com.google.common.util.concurrent.Uninterruptibles;
 
 import java.io.IOException;
 import java.io.InputStream;
 import java.util.ArrayList;
 import java.util.Comparator;
 import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 public class ProcStatsData {
 
@@ -56,13 +68,29 @@ public class ProcStatsData {
     private static final boolean DEBUG = ProcessStatsUi.DEBUG;
 
     private static ProcessStats sStatsXfer;
+    private static long sStatsXferDuration = -1;
+
+    // Parsed stats are reused for this long by every screen asking for the same duration.
+    @VisibleForTesting
+    static final long STATS_CACHE_TTL_MS = 60_000;
+    private static final int EVALUATE_THREADS =
+            Math.max(1, Math.min(4, Runtime.getRuntime().availableProcessors() - 1));
+    private static final long EVALUATE_KEEP_ALIVE_SECONDS = 30L;
+
+    // The parsed stats by duration, guarded by itself.
+    private static final LongSparseArray<CachedStats> sStatsCache = new LongSparseArray<>();
+    // Resolves the target packages of the processes, which mostly waits on PackageManager.
+    private static final ExecutorService sEvaluateExecutor = createEvaluateExecutor();
 
     private PackageManager mPm;
     private Context mContext;
     private long memTotalTime;
 
-    private IProcessStats mProcessStats;
+    @VisibleForTesting
+    IProcessStats mProcessStats;
     private ProcessStats mStats;
+    // The duration mStats was loaded for, or -1 if it wasn't loaded for any.
+    private long mStatsDuration = -1;
 
     private boolean mUseUss;
     private long mDuration;
@@ -84,11 +112,29 @@ public class ProcStatsData {
         mStates = ProcessStats.BACKGROUND_PROC_STATES;
         if (useXfer) {
             mStats = sStatsXfer;
+            mStatsDuration = sStatsXferDuration;
         }
     }
 
+    /**
+     * Creates a copy of {@code other} without its entries, starting from its stats and duration,
+     * so the copy can be refreshed on another thread while {@code other} is still shown.
+     */
+    ProcStatsData(ProcStatsData other) {
+        mContext = other.mContext;
+        mPm = other.mPm;
+        mProcessStats = other.mProcessStats;
+        mMemStates = other.mMemStates;
+        mStates = other.mStates;
+        mUseUss = other.mUseUss;
+        mStats = other.mStats;
+        mStatsDuration = other.mStatsDuration;
+        mDuration = other.mDuration;
+    }
+
     public void xferStats() {
         sStatsXfer = mStats;
+        sStatsXferDuration = mStatsDuration;
     }
 
     public int getMemState() {
@@ -124,14 +170,15 @@ public class ProcStatsData {
     }
 
     /**
-     * Refreshes the stats.
+     * Refreshes the stats. Unless {@code forceLoad} is set, the stats another screen loaded for
+     * the same duration within {@link #STATS_CACHE_TTL_MS} are reused.
      *
      * <p>Note: This needs to be called manually to take effect.
      */
     @WorkerThread
     public void refreshStats(boolean forceLoad) {
-        if (mStats == null || forceLoad) {
-            load();
+        if (shouldLoad(forceLoad)) {
+            load(forceLoad);
         }
 
         pkgEntries = new ArrayList<>();
@@ -152,7 +199,7 @@ public class ProcStatsData {
         ProcessDataCollection runTotals = new ProcessDataCollection(
                 ProcessStats.ALL_SCREEN_ADJ, mMemStates, ProcessStats.NON_CACHED_PROC_STATES);
 
-        createPkgMap(getProcs(bgTotals, runTotals), bgTotals, runTotals);
+        createPkgMap(getProcs(bgTotals, runTotals));
         if (totalMem.sysMemZRamWeight > 0 && !totalMem.hasSwappedOutPss) {
             distributeZRam(totalMem.sysMemZRamWeight);
         }
@@ -162,13 +209,20 @@ public class ProcStatsData {
         pkgEntries.add(osPkg);
     }
 
-    private void createPkgMap(ArrayList<ProcStatsEntry> procEntries, ProcessDataCollection bgTotals,
-            ProcessDataCollection runTotals) {
+    /** Whether the stats are missing, stale or for another duration than {@link #mDuration}. */
+    @VisibleForTesting
+    boolean shouldLoad(boolean forceLoad) {
+        return mStats == null || forceLoad || mStatsDuration != mDuration
+                || getCachedStats(mDuration) != mStats;
+    }
+
+    private void createPkgMap(ArrayList<ProcStatsEntry> procEntries) {
+        evaluateTargetPackages(procEntries);
+
         // Combine processes into packages.
         ArrayMap<String, ProcStatsPackageEntry> pkgMap = new ArrayMap<>();
         for (int i = procEntries.size() - 1; i >= 0; i--) {
             ProcStatsEntry proc = procEntries.get(i);
-            proc.evaluateTargetPackage(mPm, mStats, bgTotals, runTotals, sEntryCompare, mUseUss);
             ProcStatsPackageEntry pkg = pkgMap.get(proc.mBestTargetPackage);
             if (pkg == null) {
                 pkg = new ProcStatsPackageEntry(proc.mBestTargetPackage, memTotalTime);
@@ -179,6 +233,76 @@ public class ProcStatsData {
         }
     }
 
+    /*
+     * Evaluates the target package of every process, in parallel chunks. The data collections are
+     * scratch space written by each evaluation, so every chunk gets its own.
+     */
+    @VisibleForTesting
+    void evaluateTargetPackages(List<ProcStatsEntry> procEntries) {
+        final int size = procEntries.size();
+        final int numChunks = Math.min(EVALUATE_THREADS + 1, size);
+        if (numChunks <= 1) {
+            evaluateTargetPackages(procEntries, 0, size);
+            return;
+        }
+        final int chunkSize = (size + numChunks - 1) / numChunks;
+        final List<Future<?>> futures = new ArrayList<>();
+        for (int start = chunkSize; start < size; start += chunkSize) {
+            final int from = start;
+            final int to = Math.min(start + chunkSize, size);
+            Future<?> future = null;
+            try {
+                future = sEvaluateExecutor.submit(
+                        () -> evaluateTargetPackages(procEntries, from, to));
+            } catch (RejectedExecutionException e) {
+                Log.w(TAG, "Failed to schedule processes " + from + "-" + to, e);
+            }
+            // A null future is evaluated on the calling thread below.
+            futures.add(future);
+        }
+        // The calling thread takes the first chunk.
+        evaluateTargetPackages(procEntries, 0, chunkSize);
+        for (int i = 0; i < futures.size(); i++) {
+            final int from = (i + 1) * chunkSize;
+            final int to = Math.min(from + chunkSize, size);
+            final Future<?> future = futures.get(i);
+            if (future == null) {
+                evaluateTargetPackages(procEntries, from, to);
+                continue;
+            }
+            try {
+                // Waits even if interrupted, the chunk mustn't be evaluated twice at once.
+                Uninterruptibles.getUninterruptibly(future);
+            } catch (ExecutionException e) {
+                Log.e(TAG, "Failed to evaluate processes " + from + "-" + to
+                        + ", evaluating them on the calling thread", e.getCause());
+                evaluateTargetPackages(procEntries, from, to);
+            }
+        }
+    }
+
+    /** The evaluation threads are named for traces and exit once no stats were loaded a while. */
+    private static ExecutorService createEvaluateExecutor() {
+        final AtomicInteger threadCount = new AtomicInteger();
+        final ThreadPoolExecutor executor = new ThreadPoolExecutor(EVALUATE_THREADS,
+                EVALUATE_THREADS, EVALUATE_KEEP_ALIVE_SECONDS, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(),
+                runnable -> new Thread(runnable, TAG + "-" + threadCount.incrementAndGet()));
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
+    private void evaluateTargetPackages(List<ProcStatsEntry> procEntries, int from, int to) {
+        final ProcessDataCollection bgTotals = new ProcessDataCollection(
+                ProcessStats.ALL_SCREEN_ADJ, mMemStates, mStates);
+        final ProcessDataCollection runTotals = new ProcessDataCollection(
+                ProcessStats.ALL_SCREEN_ADJ, mMemStates, ProcessStats.NON_CACHED_PROC_STATES);
+        for (int i = from; i < to; i++) {
+            procEntries.get(i).evaluateTargetPackage(mPm, mStats, bgTotals, runTotals,
+                    sEntryCompare, mUseUss);
+        }
+    }
+
     private void distributeZRam(double zramWeight) {
         // Distribute kernel's Z-Ram across processes, based on how much they have been running.
         // The idea is that the memory used by the kernel for this is not really the kernel's
@@ -333,21 +457,97 @@ public class ProcStatsData {
         return procEntries;
     }
 
-    private void load() {
+    /**
+     * Loads the stats of {@code durations} into the process-wide cache in the background, so
+     * switching to one of them doesn't have to wait for the stats service.
+     */
+    public void prefetchStats(long[] durations) {
+        ThreadUtils.postOnBackgroundThread(() -> {
+            for (long duration : durations) {
+                if (getCachedStats(duration) == null) {
+                    final ProcessStats stats = readStats(mProcessStats, duration);
+                    if (stats != null) {
+                        putCachedStats(duration, stats);
+                    }
+                }
+            }
+        });
+    }
+
+    @VisibleForTesting
+    void load(boolean forceLoad) {
+        ProcessStats stats = forceLoad ? null : getCachedStats(mDuration);
+        if (stats == null) {
+            stats = readStats(mProcessStats, mDuration);
+            if (stats == null) {
+                // Keep the previous stats if any, like before the stats were cached.
+                if (mStats == null) {
+                    mStats = new ProcessStats(false);
+                }
+                return;
+            }
+            putCachedStats(mDuration, stats);
+        }
+        mStats = stats;
+        mStatsDuration = mDuration;
+    }
+
+    @VisibleForTesting
+    ProcessStats getStats() {
+        return mStats;
+    }
+
+    private static ProcessStats readStats(IProcessStats processStats, long duration) {
         try {
-            ParcelFileDescriptor pfd = mProcessStats.getStatsOverTime(mDuration);
-            mStats = new ProcessStats(false);
+            ParcelFileDescriptor pfd = processStats.getStatsOverTime(duration);
+            ProcessStats stats = new ProcessStats(false);
             InputStream is = new ParcelFileDescriptor.AutoCloseInputStream(pfd);
-            mStats.read(is);
+            stats.read(is);
             try {
                 is.close();
             } catch (IOException e) {
             }
-            if (mStats.mReadError != null) {
-                Log.w(TAG, "Failure reading process stats: " + mStats.mReadError);
+            if (stats.mReadError != null) {
+                Log.w(TAG, "Failure reading process stats: " + stats.mReadError);
             }
+            return stats;
         } catch (RemoteException e) {
             Log.e(TAG, "RemoteException:", e);
+            return null;
+        }
+    }
+
+    private static ProcessStats getCachedStats(long duration) {
+        synchronized (sStatsCache) {
+            final CachedStats cached = sStatsCache.get(duration);
+            if (cached == null
+                    || SystemClock.elapsedRealtime() - cached.mLoadTimeMs > STATS_CACHE_TTL_MS) {
+                return null;
+            }
+            return cached.mStats;
+        }
+    }
+
+    private static void putCachedStats(long duration, ProcessStats stats) {
+        synchronized (sStatsCache) {
+            sStatsCache.put(duration, new CachedStats(stats, SystemClock.elapsedRealtime()));
+        }
+    }
+
+    @VisibleForTesting
+    static void clearStatsCache() {
+        synchronized (sStatsCache) {
+            sStatsCache.clear();
+        }
+    }
+
+    private static class CachedStats {
+        final ProcessStats mStats;
+        final long mLoadTimeMs;
+
+        CachedStats(ProcessStats stats, long loadTimeMs) {
+            mStats = stats;
+            mLoadTimeMs = loadTimeMs;
         }
     }
 
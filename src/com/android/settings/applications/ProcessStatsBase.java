@@ -30,6 +30,7 @@ import com.android.settings.SettingsPreferenceFragment;
 import com.android.settings.applications.ProcStatsData.MemInfo;
 import com.android.settings.core.SubSettingLauncher;
 import com.android.settingslib.core.instrumentation.Instrumentable;
+import com.android.settingslib.utils.ThreadUtils;
 import com.android.settingslib.widget.SettingsSpinnerAdapter;
 
 public abstract class ProcessStatsBase extends SettingsPreferenceFragment
@@ -62,6 +63,9 @@ public abstract class ProcessStatsBase extends SettingsPreferenceFragment
 
     protected ProcStatsData mStatsManager;
     protected int mDurationIndex;
+    // Bumped for every load, so only the latest one refreshes the UI.
+    private int mLoadGeneration;
+    private boolean mStatsLoaded;
 
     @Override
     public void onCreate(Bundle icicle) {
@@ -88,8 +92,9 @@ public abstract class ProcessStatsBase extends SettingsPreferenceFragment
     @Override
     public void onResume() {
         super.onResume();
-        mStatsManager.refreshStats(false);
-        refreshUi();
+        loadStats();
+        // Load the other durations now, so switching to one of them is instant.
+        mStatsManager.prefetchStats(sDurations);
     }
 
     @Override
@@ -118,8 +123,12 @@ public abstract class ProcessStatsBase extends SettingsPreferenceFragment
     @Override
     public void onItemSelected(AdapterView<?> parent, View view, int position, long id) {
         mDurationIndex = position;
-        mStatsManager.setDuration(sDurations[position]);
-        refreshUi();
+        if (mStatsManager.getDuration() != sDurations[position]) {
+            mStatsManager.setDuration(sDurations[position]);
+            loadStats();
+        } else if (mStatsLoaded) {
+            refreshUi();
+        }
     }
 
     @Override
@@ -130,6 +139,32 @@ public abstract class ProcessStatsBase extends SettingsPreferenceFragment
 
     public abstract void refreshUi();
 
+    /** Whether the stats were loaded, so {@link #refreshUi()} has something to show. */
+    protected boolean isStatsLoaded() {
+        return mStatsLoaded;
+    }
+
+    /**
+     * Refreshes a copy of the stats on a background thread, then shows it. The shown
+     * {@link ProcStatsData} is only replaced on the main thread and never refreshed in place, so
+     * {@link #refreshUi()} can always read it.
+     */
+    private void loadStats() {
+        final int generation = ++mLoadGeneration;
+        final ProcStatsData statsManager = new ProcStatsData(mStatsManager);
+        ThreadUtils.postOnBackgroundThread(() -> {
+            statsManager.refreshStats(false);
+            ThreadUtils.postOnMainThread(() -> {
+                if (generation != mLoadGeneration || getActivity() == null) {
+                    return;
+                }
+                mStatsManager = statsManager;
+                mStatsLoaded = true;
+                refreshUi();
+            });
+        });
+    }
+
     public static void launchMemoryDetail(SettingsActivity activity, MemInfo memInfo,
             ProcStatsPackageEntry entry, boolean includeAppInfo) {
         Bundle args = new Bundle();
@@ -26,14 +26,18 @@ import android.content.Context;
 import android.content.Intent;
 import android.content.pm.PackageManager;
 import android.os.PowerManager;
+import android.os.SystemClock;
 import android.os.UserHandle;
 import android.os.UserManager;
 import android.util.ArrayMap;
 import android.util.ArraySet;
 import android.util.Log;
 
+import androidx.annotation.GuardedBy;
 import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
 import androidx.annotation.VisibleForTesting;
+import androidx.annotation.WorkerThread;
 
 import com.android.settingslib.applications.AppUtils;
 import com.android.settingslib.applications.ApplicationsState;
@@ -47,19 +51,34 @@ import java.util.Calendar;
 import java.util.Comparator;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
-import java.util.stream.Collectors;
 
 /**
  * A helper class that loads recent app data in the background and sends it in a callback to a
  * listener.
+ *
+ * <p>The last loaded apps are kept process-wide, so a listener is called back with them right
+ * away on start, and again only if the background refresh, done at most every
+ * {@link #CACHE_TTL_MS}, found different ones.
  */
 public class RecentAppStatsMixin implements LifecycleObserver, OnStart {
 
     private static final String TAG = "RecentAppStatsMixin";
     private static final Set<String> SKIP_SYSTEM_PACKAGES = new ArraySet<>();
 
+    @VisibleForTesting
+    static final long CACHE_TTL_MS = 30_000L;
+
+    private static final Object sCacheLock = new Object();
+    @GuardedBy("sCacheLock")
+    private static List<UsageStatsWrapper> sCachedRecentApps;
+    @GuardedBy("sCacheLock")
+    private static int sCachedLimit;
+    @GuardedBy("sCacheLock")
+    private static long sCachedTimeMs;
+
     @VisibleForTesting
     List<UsageStatsWrapper> mRecentApps;
 
@@ -97,64 +116,145 @@ public class RecentAppStatsMixin implements LifecycleObserver, OnStart {
 
     @Override
     public void onStart() {
+        final List<UsageStatsWrapper> cachedApps = getCachedRecentApps(mMaximumApps);
+        if (cachedApps != null) {
+            for (RecentAppStatsListener listener : mAppStatsListeners) {
+                listener.onReloadDataCompleted(cachedApps);
+            }
+            if (isCacheFresh()) {
+                return;
+            }
+        }
+        refreshInBackground();
+    }
+
+    /**
+     * Reloads the recent apps in the background, calling the listeners back on the main thread if
+     * they differ from the cached ones.
+     */
+    public void refreshInBackground() {
+        final List<UsageStatsWrapper> cachedApps = getCachedRecentApps(mMaximumApps);
         ThreadUtils.postOnBackgroundThread(() -> {
             loadDisplayableRecentApps(mMaximumApps);
+            final List<UsageStatsWrapper> recentApps = new ArrayList<>(mRecentApps);
+            if (cachedApps != null && isSameApps(cachedApps, recentApps)) {
+                return;
+            }
             for (RecentAppStatsListener listener : mAppStatsListeners) {
-                ThreadUtils.postOnMainThread(() -> listener.onReloadDataCompleted(mRecentApps));
+                ThreadUtils.postOnMainThread(() -> listener.onReloadDataCompleted(recentApps));
             }
         });
     }
 
+    /**
+     * Returns the first {@code limit} recent apps of the last load of any age, or null if nothing
+     * covering {@code limit} apps was loaded yet.
+     */
+    @Nullable
+    public static List<UsageStatsWrapper> getCachedRecentApps(int limit) {
+        synchronized (sCacheLock) {
+            if (sCachedRecentApps == null || sCachedLimit < limit) {
+                return null;
+            }
+            return new ArrayList<>(
+                    sCachedRecentApps.subList(0, Math.min(limit, sCachedRecentApps.size())));
+        }
+    }
+
+    /** Whether the cached recent apps were loaded less than {@link #CACHE_TTL_MS} ago. */
+    public static boolean isCacheFresh() {
+        synchronized (sCacheLock) {
+            return sCachedRecentApps != null
+                    && SystemClock.elapsedRealtime() - sCachedTimeMs < CACHE_TTL_MS;
+        }
+    }
+
+    @VisibleForTesting
+    static void clearCache() {
+        synchronized (sCacheLock) {
+            sCachedRecentApps = null;
+        }
+    }
+
+    /** Whether both lists have the same apps, in the same order and with the same last use. */
+    static boolean isSameApps(List<UsageStatsWrapper> apps, List<UsageStatsWrapper> otherApps) {
+        if (apps.size() != otherApps.size()) {
+            return false;
+        }
+        for (int i = 0; i < apps.size(); i++) {
+            final UsageStatsWrapper app = apps.get(i);
+            final UsageStatsWrapper otherApp = otherApps.get(i);
+            if (app.mUserId != otherApp.mUserId
+                    || !Objects.equals(app.mUsageStats.getPackageName(),
+                            otherApp.mUsageStats.getPackageName())
+                    || app.mUsageStats.getLastTimeUsed()
+                            != otherApp.mUsageStats.getLastTimeUsed()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
     public void addListener(@NonNull RecentAppStatsListener listener) {
         mAppStatsListeners.add(listener);
     }
 
     @VisibleForTesting
+    @WorkerThread
     void loadDisplayableRecentApps(int limit) {
         mRecentApps.clear();
         mCalendar = Calendar.getInstance();
         mCalendar.add(Calendar.DAY_OF_YEAR, -1);
 
-        List<UsageStatsWrapper> usageStatsAllUsers = new ArrayList<>();
-
-        List<UserHandle> profiles = mUserManager.getUserProfiles();
-        for (UserHandle userHandle : profiles) {
-            int userId = userHandle.getIdentifier();
-
-            final Optional<UsageStatsManager> usageStatsManager;
-            if (userHandle.getIdentifier() == UserHandle.myUserId()) {
-                usageStatsManager = Optional.ofNullable(userHandle).map(
-                        handle -> mContext.getSystemService(UsageStatsManager.class));
-            } else {
-                usageStatsManager = Optional.ofNullable(userHandle).map(
-                        handle -> mContext.createContextAsUser(handle, /* flags */ 0)
-                                .getSystemService(UsageStatsManager.class));
+        // Merges the stats of every profile into one list, at most one entry per package and user.
+        final List<UsageStatsWrapper> usageStatsAllUsers = new ArrayList<>();
+        if (!mPowerManager.isPowerSaveMode()) {
+            for (UserHandle userHandle : mUserManager.getUserProfiles()) {
+                addRecentAppsStats(userHandle, usageStatsAllUsers);
             }
-
-            List<UsageStats> profileStats = usageStatsManager
-                    .map(statsManager -> getRecentAppsStats(statsManager, userId))
-                    .orElse(new ArrayList<>());
-            usageStatsAllUsers.addAll(profileStats.stream()
-                        .map(usageStats-> new UsageStatsWrapper(usageStats, userId))
-                        .collect(Collectors.toList()));
         }
 
-        // Sort apps by latest timestamp.
+        // Sort apps by latest timestamp, then only look up the packages until enough are found.
         usageStatsAllUsers.sort(
                 Comparator.comparingLong(a -> -1 * a.mUsageStats.getLastTimeUsed()));
-        mRecentApps.addAll(usageStatsAllUsers.stream().limit(limit).collect(Collectors.toList()));
+        for (UsageStatsWrapper statsWrapper : usageStatsAllUsers) {
+            if (mRecentApps.size() >= limit) {
+                break;
+            }
+            if (isUserVisibleApp(statsWrapper.mUsageStats.getPackageName(),
+                    statsWrapper.mUserId)) {
+                mRecentApps.add(statsWrapper);
+            }
+        }
+
+        synchronized (sCacheLock) {
+            sCachedRecentApps = new ArrayList<>(mRecentApps);
+            sCachedLimit = limit;
+            sCachedTimeMs = SystemClock.elapsedRealtime();
+        }
     }
 
-    private List<UsageStats> getRecentAppsStats(UsageStatsManager usageStatsManager, int userId) {
-        final List<UsageStats> recentAppStats = mPowerManager.isPowerSaveMode()
-                ? new ArrayList<>()
-                : usageStatsManager.queryUsageStats(
-                        UsageStatsManager.INTERVAL_BEST, mCalendar.getTimeInMillis(),
-                        System.currentTimeMillis());
+    private void addRecentAppsStats(UserHandle userHandle, List<UsageStatsWrapper> outStats) {
+        final int userId = userHandle.getIdentifier();
+        final Optional<UsageStatsManager> usageStatsManager;
+        if (userId == UserHandle.myUserId()) {
+            usageStatsManager = Optional.ofNullable(
+                    mContext.getSystemService(UsageStatsManager.class));
+        } else {
+            usageStatsManager = Optional.ofNullable(
+                    mContext.createContextAsUser(userHandle, /* flags */ 0)
+                            .getSystemService(UsageStatsManager.class));
+        }
+        if (!usageStatsManager.isPresent()) {
+            return;
+        }
+        final List<UsageStats> recentAppStats = usageStatsManager.get().queryUsageStats(
+                UsageStatsManager.INTERVAL_BEST, mCalendar.getTimeInMillis(),
+                System.currentTimeMillis());
 
         final Map<String, UsageStats> map = new ArrayMap<>();
         for (final UsageStats pkgStats : recentAppStats) {
-            if (!shouldIncludePkgInRecents(pkgStats, userId)) {
+            if (!shouldIncludePkgInRecents(pkgStats)) {
                 continue;
             }
             final String pkgName = pkgStats.getPackageName();
@@ -165,15 +265,15 @@ public class RecentAppStatsMixin implements LifecycleObserver, OnStart {
                 existingStats.add(pkgStats);
             }
         }
-        final List<UsageStats> packageStats = new ArrayList<>(map.values());
-        packageStats.sort(Comparator.comparingLong(UsageStats::getLastTimeUsed).reversed());
-        return packageStats;
+        for (UsageStats pkgStats : map.values()) {
+            outStats.add(new UsageStatsWrapper(pkgStats, userId));
+        }
     }
 
     /**
-     * Whether or not the app should be included in recent list.
+     * Whether or not the app should be included in recent list, from its usage stats alone.
      */
-    private boolean shouldIncludePkgInRecents(UsageStats stat, int userId) {
+    private boolean shouldIncludePkgInRecents(UsageStats stat) {
         final String pkgName = stat.getPackageName();
         if (stat.getLastTimeUsed() < mCalendar.getTimeInMillis()) {
             Log.d(TAG, "Invalid timestamp (usage time is more than 24 hours ago), skipping "
@@ -186,6 +286,13 @@ public class RecentAppStatsMixin implements LifecycleObserver, OnStart {
             return false;
         }
 
+        return true;
+    }
+
+    /**
+     * Whether or not the app is visible to the user, which needs package lookups.
+     */
+    private boolean isUserVisibleApp(String pkgName, int userId) {
         if (AppUtils.isHiddenSystemModule(mContext, pkgName)) {
             return false;
         }
@@ -29,6 +29,7 @@ import android.content.pm.PackageItemInfo;
 import android.content.pm.PackageManager;
 import android.content.pm.ServiceInfo;
 import android.content.pm.UserInfo;
+import android.content.res.Configuration;
 import android.content.res.Resources;
 import android.graphics.drawable.Drawable;
 import android.graphics.drawable.Drawable.ConstantState;
@@ -43,6 +44,8 @@ import android.text.format.Formatter;
 import android.util.Log;
 import android.util.SparseArray;
 
+import androidx.annotation.VisibleForTesting;
+
 import com.android.settings.R;
 import com.android.settingslib.Utils;
 import com.android.settingslib.applications.InterestingConfigChanges;
@@ -69,9 +72,14 @@ public class RunningState {
     static final int MSG_UPDATE_CONTENTS = 2;
     static final int MSG_REFRESH_UI = 3;
     static final int MSG_UPDATE_TIME = 4;
+    static final int MSG_UID_STATE_CHANGED = 5;
 
     static final long TIME_UPDATE_DELAY = 1000;
     static final long CONTENTS_UPDATE_DELAY = 2000;
+    // Polling backs off up to this delay while successive updates find nothing changed.
+    static final long MAX_CONTENTS_UPDATE_DELAY = 8000;
+    // Coalesces the bursts of uid importance changes, e.g. when an app starts.
+    static final long UID_STATE_UPDATE_DELAY = 250;
 
     static final int MAX_SERVICES = 100;
 
@@ -216,17 +224,59 @@ public class RunningState {
     ArrayList<MergedItem> mBackgroundItems = new ArrayList<MergedItem>();
     ArrayList<MergedItem> mUserBackgroundItems = new ArrayList<MergedItem>();
 
-    int mNumBackgroundProcesses;
-    long mBackgroundProcessMemory;
-    int mNumForegroundProcesses;
-    long mForegroundProcessMemory;
-    int mNumServiceProcesses;
-    long mServiceProcessMemory;
+    // ----- end of state protected by mLock -----
+
+    // The result of the last update, replaced as a whole so that the UI can read it without
+    // taking mLock.
+    volatile Snapshot mSnapshot = new Snapshot(new ArrayList<MergedItem>(),
+            new ArrayList<MergedItem>(), 0, 0, 0, 0, 0, 0);
+
+    /**
+     * The lists and totals published by one update. The lists are never modified once published,
+     * a new list is published instead when the structure changes.
+     */
+    static final class Snapshot {
+        final ArrayList<MergedItem> mMergedItems;
+        final ArrayList<MergedItem> mBackgroundItems;
+        final int mNumBackgroundProcesses;
+        final long mBackgroundProcessMemory;
+        final int mNumForegroundProcesses;
+        final long mForegroundProcessMemory;
+        final int mNumServiceProcesses;
+        final long mServiceProcessMemory;
+
+        Snapshot(ArrayList<MergedItem> mergedItems, ArrayList<MergedItem> backgroundItems,
+                int numBackgroundProcesses, long backgroundProcessMemory,
+                int numForegroundProcesses, long foregroundProcessMemory,
+                int numServiceProcesses, long serviceProcessMemory) {
+            mMergedItems = mergedItems;
+            mBackgroundItems = backgroundItems;
+            mNumBackgroundProcesses = numBackgroundProcesses;
+            mBackgroundProcessMemory = backgroundProcessMemory;
+            mNumForegroundProcesses = numForegroundProcesses;
+            mForegroundProcessMemory = foregroundProcessMemory;
+            mNumServiceProcesses = numServiceProcesses;
+            mServiceProcessMemory = serviceProcessMemory;
+        }
+    }
 
     // ----- BACKGROUND MONITORING THREAD -----
 
     final HandlerThread mBackgroundThread;
 
+    // The delay until the next update, only accessed on the background thread.
+    long mContentsUpdateDelay = CONTENTS_UPDATE_DELAY;
+
+    final ActivityManager.OnUidImportanceListener mUidImportanceListener =
+            (uid, importance) -> {
+                if (!mBackgroundHandler.hasMessages(MSG_UID_STATE_CHANGED)) {
+                    mBackgroundHandler.sendEmptyMessageDelayed(MSG_UID_STATE_CHANGED,
+                            UID_STATE_UPDATE_DELAY);
+                }
+            };
+    // Guarded by mLock.
+    boolean mListeningToUidImportance;
+
     final class BackgroundHandler extends Handler {
         public BackgroundHandler(Looper looper) {
             super(looper);
@@ -244,17 +294,36 @@ public class RunningState {
                             return;
                         }
                     }
+                    final boolean changed = update(mApplicationContext, mAm);
                     Message cmd = mHandler.obtainMessage(MSG_REFRESH_UI);
-                    cmd.arg1 = update(mApplicationContext, mAm) ? 1 : 0;
+                    cmd.arg1 = changed ? 1 : 0;
                     mHandler.sendMessage(cmd);
+                    mContentsUpdateDelay = getNextContentsUpdateDelay(mContentsUpdateDelay,
+                            changed || msg.arg1 != 0);
                     removeMessages(MSG_UPDATE_CONTENTS);
                     msg = obtainMessage(MSG_UPDATE_CONTENTS);
-                    sendMessageDelayed(msg, CONTENTS_UPDATE_DELAY);
+                    sendMessageDelayed(msg, mContentsUpdateDelay);
+                    break;
+                case MSG_UID_STATE_CHANGED:
+                    // A process started, died or changed its importance, refresh right away.
+                    mContentsUpdateDelay = CONTENTS_UPDATE_DELAY;
+                    removeMessages(MSG_UPDATE_CONTENTS);
+                    obtainMessage(MSG_UPDATE_CONTENTS, 1, 0).sendToTarget();
                     break;
             }
         }
     };
 
+    /**
+     * Returns the delay until the next contents update. It doubles up to
+     * {@link #MAX_CONTENTS_UPDATE_DELAY} while nothing changes, and goes back to
+     * {@link #CONTENTS_UPDATE_DELAY} on a change or an explicit request.
+     */
+    @VisibleForTesting
+    static long getNextContentsUpdateDelay(long delay, boolean reset) {
+        return reset ? CONTENTS_UPDATE_DELAY : Math.min(delay * 2, MAX_CONTENTS_UPDATE_DELAY);
+    }
+
     final BackgroundHandler mBackgroundHandler;
 
     final Handler mHandler = new Handler() {
@@ -274,6 +343,9 @@ public class RunningState {
                             return;
                         }
                     }
+                    // Not backed off like the contents: the running times shown count seconds,
+                    // and this tick also delivers the refreshes posted by the contents updates.
+                    // It only touches the views, without any binder call.
                     removeMessages(MSG_UPDATE_TIME);
                     Message m = obtainMessage(MSG_UPDATE_TIME);
                     sendMessageDelayed(m, TIME_UPDATE_DELAY);
@@ -300,7 +372,7 @@ public class RunningState {
                     mBackgroundHandler.removeMessages(MSG_RESET_CONTENTS);
                     mBackgroundHandler.sendEmptyMessage(MSG_RESET_CONTENTS);
                     mBackgroundHandler.removeMessages(MSG_UPDATE_CONTENTS);
-                    mBackgroundHandler.sendEmptyMessage(MSG_UPDATE_CONTENTS);
+                    mBackgroundHandler.obtainMessage(MSG_UPDATE_CONTENTS, 1, 0).sendToTarget();
                 } else {
                     usersChanged = true;
                 }
@@ -378,6 +450,11 @@ public class RunningState {
         ActivityManager.RunningServiceInfo mRunningService;
         ServiceInfo mServiceInfo;
         boolean mShownAsStarted;
+        // The client and configuration the description was resolved for, to only resolve it
+        // again when either changes.
+        String mClientPackage;
+        int mClientLabel;
+        Configuration mDescriptionConfig;
 
         MergedItem mMergedItem;
 
@@ -529,26 +606,43 @@ public class RunningState {
                 si.mActiveSince = activeSince;
                 changed = true;
             }
+            // A new locale or other resource configuration changes the resolved description.
+            final Configuration config = context.getResources().getConfiguration();
+            final boolean configChanged = si.mDescriptionConfig == null
+                    || si.mDescriptionConfig.diff(config) != 0;
             if (service.clientPackage != null && service.clientLabel != 0) {
                 if (si.mShownAsStarted) {
                     si.mShownAsStarted = false;
                     changed = true;
                 }
-                try {
-                    Resources clientr = pm.getResourcesForApplication(service.clientPackage);
-                    String label = clientr.getString(service.clientLabel);
-                    si.mDescription = context.getResources().getString(
-                            R.string.service_client_name, label);
-                } catch (PackageManager.NameNotFoundException e) {
-                    si.mDescription = null;
+                // Loading the client's resources is expensive, so only resolve its label again
+                // when the client or the configuration changed since the last update.
+                if (si.mDescription == null || configChanged
+                        || si.mClientLabel != service.clientLabel
+                        || !service.clientPackage.equals(si.mClientPackage)) {
+                    si.mDescriptionConfig = new Configuration(config);
+                    si.mClientPackage = service.clientPackage;
+                    si.mClientLabel = service.clientLabel;
+                    try {
+                        Resources clientr = pm.getResourcesForApplication(service.clientPackage);
+                        String label = clientr.getString(service.clientLabel);
+                        si.mDescription = context.getResources().getString(
+                                R.string.service_client_name, label);
+                    } catch (PackageManager.NameNotFoundException e) {
+                        si.mDescription = null;
+                    }
                 }
             } else {
-                if (!si.mShownAsStarted) {
-                    si.mShownAsStarted = true;
-                    changed = true;
+                if (!si.mShownAsStarted || si.mDescription == null || configChanged) {
+                    if (!si.mShownAsStarted) {
+                        si.mShownAsStarted = true;
+                        changed = true;
+                    }
+                    si.mClientPackage = null;
+                    si.mDescriptionConfig = new Configuration(config);
+                    si.mDescription = context.getResources().getString(
+                            R.string.service_started_by_app);
                 }
-                si.mDescription = context.getResources().getString(
-                        R.string.service_started_by_app);
             }
 
             return changed;
@@ -808,17 +902,22 @@ public class RunningState {
                 mBackgroundHandler.removeMessages(MSG_UPDATE_CONTENTS);
                 mBackgroundHandler.sendEmptyMessage(MSG_RESET_CONTENTS);
             }
-            if (!mBackgroundHandler.hasMessages(MSG_UPDATE_CONTENTS)) {
-                mBackgroundHandler.sendEmptyMessage(MSG_UPDATE_CONTENTS);
-            }
+            // Don't wait for an update scheduled with a backed off delay.
+            mBackgroundHandler.removeMessages(MSG_UPDATE_CONTENTS);
+            mBackgroundHandler.obtainMessage(MSG_UPDATE_CONTENTS, 1, 0).sendToTarget();
             mHandler.sendEmptyMessage(MSG_UPDATE_TIME);
+            if (!mListeningToUidImportance) {
+                mAm.addOnUidImportanceListener(mUidImportanceListener,
+                        ActivityManager.RunningAppProcessInfo.IMPORTANCE_CACHED);
+                mListeningToUidImportance = true;
+            }
         }
     }
 
     void updateNow() {
         synchronized (mLock) {
             mBackgroundHandler.removeMessages(MSG_UPDATE_CONTENTS);
-            mBackgroundHandler.sendEmptyMessage(MSG_UPDATE_CONTENTS);
+            mBackgroundHandler.obtainMessage(MSG_UPDATE_CONTENTS, 1, 0).sendToTarget();
         }
     }
 
@@ -844,6 +943,12 @@ public class RunningState {
             mResumed = false;
             mRefreshUiListener = null;
             mHandler.removeMessages(MSG_UPDATE_TIME);
+            mBackgroundHandler.removeMessages(MSG_UPDATE_CONTENTS);
+            mBackgroundHandler.removeMessages(MSG_UID_STATE_CHANGED);
+            if (mListeningToUidImportance) {
+                mAm.removeOnUidImportanceListener(mUidImportanceListener);
+                mListeningToUidImportance = false;
+            }
         }
     }
 
@@ -1419,12 +1524,6 @@ public class RunningState {
         }
 
         synchronized (mLock) {
-            mNumBackgroundProcesses = numBackgroundProcesses;
-            mNumForegroundProcesses = numForegroundProcesses;
-            mNumServiceProcesses = numServiceProcesses;
-            mBackgroundProcessMemory = backgroundProcessMemory;
-            mForegroundProcessMemory = foregroundProcessMemory;
-            mServiceProcessMemory = serviceProcessMemory;
             if (newBackgroundItems != null) {
                 mBackgroundItems = newBackgroundItems;
                 mUserBackgroundItems = newUserBackgroundItems;
@@ -1432,6 +1531,10 @@ public class RunningState {
                     changed = true;
                 }
             }
+            mSnapshot = new Snapshot(mMergedItems, mUserBackgroundItems,
+                    numBackgroundProcesses, backgroundProcessMemory,
+                    numForegroundProcesses, foregroundProcessMemory,
+                    numServiceProcesses, serviceProcessMemory);
             if (!mHaveData) {
                 mHaveData = true;
                 mLock.notifyAll();
@@ -1447,15 +1550,16 @@ public class RunningState {
         }
     }
 
+    /** Returns the result of the last update, without waiting for an update in progress. */
+    Snapshot getSnapshot() {
+        return mSnapshot;
+    }
+
     ArrayList<MergedItem> getCurrentMergedItems() {
-        synchronized (mLock) {
-            return mMergedItems;
-        }
+        return mSnapshot.mMergedItems;
     }
 
     ArrayList<MergedItem> getCurrentBackgroundItems() {
-        synchronized (mLock) {
-            return mUserBackgroundItems;
-        }
+        return mSnapshot.mBackgroundItems;
     }
 }
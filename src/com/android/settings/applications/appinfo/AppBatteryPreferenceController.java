@@ -162,7 +162,7 @@ public class AppBatteryPreferenceController extends BasePreferenceController
     public void onPause() {
         mParent.getLoaderManager().destroyLoader(
                 AppInfoDashboardFragment.LOADER_BATTERY_USAGE_STATS);
-        closeBatteryUsageStats();
+        mBatteryUsageStats = null;
     }
 
     private void loadBatteryDiffEntries() {
@@ -251,25 +251,14 @@ public class AppBatteryPreferenceController extends BasePreferenceController
         @Override
         public void onLoadFinished(Loader<BatteryUsageStats> loader,
                 BatteryUsageStats batteryUsageStats) {
-            closeBatteryUsageStats();
+            // Owned by the loader, which releases the previous result itself.
             mBatteryUsageStats = batteryUsageStats;
             AppBatteryPreferenceController.this.onLoadFinished();
         }
 
         @Override
         public void onLoaderReset(Loader<BatteryUsageStats> loader) {
-        }
-    }
-
-    private void closeBatteryUsageStats() {
-        if (mBatteryUsageStats != null) {
-            try {
-                mBatteryUsageStats.close();
-            } catch (Exception e) {
-                Log.e(TAG, "BatteryUsageStats.close() failed", e);
-            } finally {
-                mBatteryUsageStats = null;
-            }
+            mBatteryUsageStats = null;
         }
     }
 }
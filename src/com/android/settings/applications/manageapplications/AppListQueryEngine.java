@@ -0,0 +1,155 @@
+/*
+ * Copyright (C) 2026 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.applications.manageapplications;
+
+import android.content.Context;
+import android.util.ArrayMap;
+import android.util.Log;
+
+import androidx.annotation.Nullable;
+import androidx.annotation.WorkerThread;
+
+import com.android.settingslib.applications.ApplicationsState;
+import com.android.settingslib.applications.ApplicationsState.AppEntry;
+import com.android.settingslib.applications.ApplicationsState.AppFilter;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * In-memory index of the apps of an {@link ApplicationsState.Session}, answering the filter and
+ * sort queries of the app list without rescanning every app on each change.
+ *
+ * <p>Every {@link AppFilter} is evaluated once per app into a {@link BitSet} and every comparator
+ * once into a sorted array of app indices, so a query is the intersection of the bitsets of its
+ * filters read in the order of its comparator. The index must be invalidated whenever the apps or
+ * the data the filters and comparators look at change.
+ */
+class AppListQueryEngine {
+    private static final String TAG = "AppListQueryEngine";
+
+    private final Context mContext;
+    private final ApplicationsState.Session mSession;
+
+    // Guarded by this, the index is rebuilt lazily by the first query after an invalidation.
+    private List<AppEntry> mApps;
+    private final Map<AppFilter, BitSet> mFilterBits = new ArrayMap<>();
+    private final Map<Comparator<AppEntry>, int[]> mSortOrders = new ArrayMap<>();
+
+    AppListQueryEngine(Context context, ApplicationsState.Session session) {
+        mContext = context;
+        mSession = session;
+    }
+
+    /** Drops the whole index, e.g. when the app list or the bridged extra info changed. */
+    synchronized void invalidate() {
+        mApps = null;
+        mFilterBits.clear();
+        mSortOrders.clear();
+    }
+
+    /** Drops the sort orders only, e.g. when the app sizes changed. */
+    synchronized void invalidateSortOrders() {
+        mSortOrders.clear();
+    }
+
+    /**
+     * Returns the apps matching all of {@code filters}, sorted by {@code comparator}, or null if
+     * the query could not be answered from the index and should go through the session instead.
+     */
+    @WorkerThread
+    @Nullable
+    synchronized ArrayList<AppEntry> query(List<AppFilter> filters,
+            Comparator<AppEntry> comparator) {
+        if (mApps == null) {
+            final List<AppEntry> apps = mSession.getAllApps();
+            mApps = new ArrayList<>(apps.size());
+            for (AppEntry entry : apps) {
+                if (entry != null) {
+                    entry.ensureLabel(mContext);
+                    mApps.add(entry);
+                }
+            }
+        }
+        BitSet matches = null;
+        for (AppFilter filter : filters) {
+            final BitSet filterBits = getFilterBits(filter);
+            if (matches == null) {
+                matches = (BitSet) filterBits.clone();
+            } else {
+                matches.and(filterBits);
+            }
+        }
+        final int[] sortOrder = getSortOrder(comparator);
+        if (sortOrder == null) {
+            return null;
+        }
+        final ArrayList<AppEntry> result =
+                new ArrayList<>(matches != null ? matches.cardinality() : mApps.size());
+        for (int index : sortOrder) {
+            if (matches == null || matches.get(index)) {
+                result.add(mApps.get(index));
+            }
+        }
+        return result;
+    }
+
+    private BitSet getFilterBits(AppFilter filter) {
+        BitSet filterBits = mFilterBits.get(filter);
+        if (filterBits == null) {
+            filter.init(mContext);
+            final int size = mApps.size();
+            filterBits = new BitSet(size);
+            for (int i = 0; i < size; i++) {
+                if (filter.filterApp(mApps.get(i))) {
+                    filterBits.set(i);
+                }
+            }
+            mFilterBits.put(filter, filterBits);
+        }
+        return filterBits;
+    }
+
+    @Nullable
+    private int[] getSortOrder(Comparator<AppEntry> comparator) {
+        int[] sortOrder = mSortOrders.get(comparator);
+        if (sortOrder == null) {
+            final int size = mApps.size();
+            final Integer[] indices = new Integer[size];
+            for (int i = 0; i < size; i++) {
+                indices[i] = i;
+            }
+            try {
+                Arrays.sort(indices, (a, b) -> comparator.compare(mApps.get(a), mApps.get(b)));
+            } catch (IllegalArgumentException e) {
+                // The sizes or labels changed while sorting, let the session sort under its lock.
+                Log.w(TAG, "Apps changed while sorting", e);
+                return null;
+            }
+            sortOrder = new int[size];
+            for (int i = 0; i < size; i++) {
+                sortOrder[i] = indices[i];
+            }
+            mSortOrders.put(comparator, sortOrder);
+        }
+        return sortOrder;
+    }
+}
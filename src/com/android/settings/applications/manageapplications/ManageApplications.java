@@ -54,8 +54,10 @@ import android.net.Uri;
 import android.os.Build;
 import android.os.Bundle;
 import android.os.Environment;
+import android.os.Handler;
 import android.os.IBinder;
 import android.os.IUserManager;
+import android.os.Looper;
 import android.os.RemoteException;
 import android.os.ServiceManager;
 import android.os.UserHandle;
@@ -175,11 +177,15 @@ import com.android.settingslib.widget.SettingsSpinnerAdapter;
 
 import com.google.android.material.appbar.AppBarLayout;
 
+import java.text.Normalizer;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
 import java.util.Set;
+import java.util.regex.Pattern;
 
 /**
  * Activity to pick an application that will be used to display installation information and
@@ -1003,7 +1009,7 @@ public class ManageApplications extends InstrumentedFragment
 
     @Override
     public boolean onQueryTextChange(String newText) {
-        mApplications.filterSearch(newText);
+        mApplications.onSearchQueryChanged(newText);
         return false;
     }
 
@@ -1217,6 +1223,9 @@ public class ManageApplications extends InstrumentedFragment
         private static final int VIEW_TYPE_EXTRA_VIEW = 1;
         private static final int VIEW_TYPE_APP_HEADER = 2;
         private static final int VIEW_TYPE_TWO_TARGET = 3;
+        // Keystrokes closer together than this are filtered once, for the last query.
+        private static final long SEARCH_DEBOUNCE_MS = 150;
+        private static final Pattern COMBINING_MARKS = Pattern.compile("\\p{M}+");
 
         private final ApplicationsState mState;
         private final ApplicationsState.Session mSession;
@@ -1236,7 +1245,12 @@ public class ManageApplications extends InstrumentedFragment
         private boolean mHasReceivedLoadEntries;
         private boolean mHasReceivedBridgeCallback;
         private SearchFilter mSearchFilter;
+        private final Handler mSearchHandler = new Handler(Looper.getMainLooper());
+        private String mPendingSearchQuery;
+        private final Runnable mSearchRunnable = () -> filterSearch(mPendingSearchQuery);
         private PowerAllowlistBackend mBackend;
+        private final AppListQueryEngine mQueryEngine;
+        private int mRebuildGeneration;
 
         // This is to remember and restore the last scroll position when this
         // fragment is paused. We need this special handling because app entries are added gradually
@@ -1260,6 +1274,7 @@ public class ManageApplications extends InstrumentedFragment
                     mManageApplications.mEmptyView
             );
             mContext = manageApplications.getActivity();
+            mQueryEngine = new AppListQueryEngine(mContext, mSession);
             mIconDrawableFactory = IconDrawableFactory.newInstance(mContext);
             mAppFilter = appFilter;
             mBackend = PowerAllowlistBackend.getInstance(mContext);
@@ -1361,6 +1376,8 @@ public class ManageApplications extends InstrumentedFragment
             if (!mResumed) {
                 mResumed = true;
                 mSession.onResume();
+                // The apps may have changed while paused.
+                mQueryEngine.invalidate();
                 mLastSortMode = sort;
                 if (mExtraInfoBridge != null) {
                     mExtraInfoBridge.resume(false /* forceLoadAllApps */);
@@ -1389,6 +1406,7 @@ public class ManageApplications extends InstrumentedFragment
         }
 
         public void release() {
+            mSearchHandler.removeCallbacks(mSearchRunnable);
             mSession.onDestroy();
             if (mExtraInfoBridge != null) {
                 mExtraInfoBridge.release();
@@ -1453,7 +1471,6 @@ public class ManageApplications extends InstrumentedFragment
                 }
                 return;
             }
-            ApplicationsState.AppFilter filterObj;
             Comparator<AppEntry> comparatorObj;
             boolean emulated = Environment.isExternalStorageEmulated();
             if (emulated) {
@@ -1461,19 +1478,21 @@ public class ManageApplications extends InstrumentedFragment
             } else {
                 mWhichSize = SIZE_INTERNAL;
             }
-            filterObj = mAppFilter.getFilter();
+            // The filters are intersected by the query engine, which caches the apps matching
+            // each of them.
+            final List<AppFilter> filters = new ArrayList<>();
+            filters.add(mAppFilter.getFilter());
             if (mCompositeFilter != null) {
-                filterObj = new CompoundFilter(filterObj, mCompositeFilter);
+                filters.add(mCompositeFilter);
             }
             if (!mManageApplications.mShowSystem) {
                 if (LIST_TYPES_WITH_INSTANT.contains(mManageApplications.mListType)) {
-                    filterObj = new CompoundFilter(filterObj,
-                            ApplicationsState.FILTER_DOWNLOADED_AND_LAUNCHER_AND_INSTANT);
+                    filters.add(ApplicationsState.FILTER_DOWNLOADED_AND_LAUNCHER_AND_INSTANT);
                 } else {
-                    filterObj = new CompoundFilter(filterObj,
-                            ApplicationsState.FILTER_DOWNLOADED_AND_LAUNCHER);
+                    filters.add(ApplicationsState.FILTER_DOWNLOADED_AND_LAUNCHER);
                 }
             }
+            filters.add(ApplicationsState.FILTER_NOT_HIDE);
             if (mLastSortMode == R.id.sort_order_size) {
                 switch (mWhichSize) {
                     case SIZE_INTERNAL:
@@ -1494,10 +1513,23 @@ public class ManageApplications extends InstrumentedFragment
                 comparatorObj = ApplicationsState.ALPHA_COMPARATOR;
             }
 
-            final AppFilter finalFilterObj = new CompoundFilter(filterObj,
-                    ApplicationsState.FILTER_NOT_HIDE);
+            final int generation = ++mRebuildGeneration;
             ThreadUtils.postOnBackgroundThread(() -> {
-                mSession.rebuild(finalFilterObj, comparatorObj, false);
+                final ArrayList<AppEntry> entries = mQueryEngine.query(filters, comparatorObj);
+                if (entries == null) {
+                    AppFilter filterObj = filters.get(0);
+                    for (int i = 1; i < filters.size(); i++) {
+                        filterObj = new CompoundFilter(filterObj, filters.get(i));
+                    }
+                    mSession.rebuild(filterObj, comparatorObj, false);
+                    return;
+                }
+                ThreadUtils.postOnMainThread(() -> {
+                    // Drop the result if a newer rebuild was requested meanwhile.
+                    if (generation == mRebuildGeneration) {
+                        onRebuildComplete(entries);
+                    }
+                });
             });
         }
 
@@ -1521,6 +1553,20 @@ public class ManageApplications extends InstrumentedFragment
             mManageApplications.mMetricsFeatureProvider.action(mContext, action);
         }
 
+        /**
+         * Filters the list for a query typed in the search view, once the user paused typing.
+         * Clearing the query is applied immediately.
+         */
+        void onSearchQueryChanged(String query) {
+            mSearchHandler.removeCallbacks(mSearchRunnable);
+            mPendingSearchQuery = query;
+            if (TextUtils.isEmpty(query)) {
+                filterSearch(query);
+            } else {
+                mSearchHandler.postDelayed(mSearchRunnable, SEARCH_DEBOUNCE_MS);
+            }
+        }
+
         @VisibleForTesting
         void filterSearch(String query) {
             if (mSearchFilter == null) {
@@ -1624,6 +1670,7 @@ public class ManageApplications extends InstrumentedFragment
         @Override
         public void onExtraInfoUpdated() {
             mHasReceivedBridgeCallback = true;
+            mQueryEngine.invalidate();
             rebuild();
         }
 
@@ -1634,6 +1681,7 @@ public class ManageApplications extends InstrumentedFragment
 
         @Override
         public void onPackageListChanged() {
+            mQueryEngine.invalidate();
             rebuild();
         }
 
@@ -1646,6 +1694,7 @@ public class ManageApplications extends InstrumentedFragment
         @Override
         public void onLoadEntriesCompleted() {
             mHasReceivedLoadEntries = true;
+            mQueryEngine.invalidate();
             // We may have been skipping rebuilds until this came in, trigger one now.
             rebuild();
         }
@@ -1667,6 +1716,7 @@ public class ManageApplications extends InstrumentedFragment
                     // user viewed, and are sorting by size...  they may
                     // have cleared data, so we immediately want to resort
                     // the list with the new size to reflect it to the user.
+                    mQueryEngine.invalidateSortOrders();
                     rebuild();
                     return;
                 } else {
@@ -1677,6 +1727,7 @@ public class ManageApplications extends InstrumentedFragment
 
         @Override
         public void onLauncherInfoChanged() {
+            mQueryEngine.invalidate();
             if (!mManageApplications.mShowSystem) {
                 rebuild();
             }
@@ -1684,6 +1735,7 @@ public class ManageApplications extends InstrumentedFragment
 
         @Override
         public void onAllSizesComputed() {
+            mQueryEngine.invalidateSortOrders();
             if (mLastSortMode == R.id.sort_order_size) {
                 rebuild();
             }
@@ -1956,26 +2008,69 @@ public class ManageApplications extends InstrumentedFragment
          * Item that does not contains the specified substring will be removed from the list.</p>
          */
         private class SearchFilter extends Filter {
+            // The normalized labels of mIndexedEntries and the matches of the last query, only
+            // accessed on the filter thread. When a query extends the last one, only the apps
+            // matching the last query need to be checked.
+            private ArrayList<ApplicationsState.AppEntry> mIndexedEntries;
+            private String[] mNormalizedLabels;
+            private String mLastQuery;
+            private int[] mLastMatches;
+            private int mLastMatchCount;
+
             @WorkerThread
             @Override
             protected FilterResults performFiltering(CharSequence query) {
+                final ArrayList<ApplicationsState.AppEntry> entries = mOriginalEntries;
                 final ArrayList<ApplicationsState.AppEntry> matchedEntries;
-                if (TextUtils.isEmpty(query)) {
-                    matchedEntries = mOriginalEntries;
+                if (TextUtils.isEmpty(query) || entries == null) {
+                    matchedEntries = entries;
+                    mLastQuery = null;
                 } else {
+                    if (entries != mIndexedEntries) {
+                        indexLabels(entries);
+                    }
+                    final String normalizedQuery = normalize(query.toString());
+                    final boolean narrowing = mLastQuery != null
+                            && normalizedQuery.startsWith(mLastQuery);
+                    final int candidateCount = narrowing ? mLastMatchCount : entries.size();
+                    final int[] matches = new int[candidateCount];
+                    int matchCount = 0;
                     matchedEntries = new ArrayList<>();
-                    for (ApplicationsState.AppEntry entry : mOriginalEntries) {
-                        if (entry.label.toLowerCase().contains(query.toString().toLowerCase())) {
-                            matchedEntries.add(entry);
+                    for (int i = 0; i < candidateCount; i++) {
+                        final int index = narrowing ? mLastMatches[i] : i;
+                        if (mNormalizedLabels[index].contains(normalizedQuery)) {
+                            matches[matchCount++] = index;
+                            matchedEntries.add(entries.get(index));
                         }
                     }
+                    mLastQuery = normalizedQuery;
+                    mLastMatches = matches;
+                    mLastMatchCount = matchCount;
                 }
                 final FilterResults results = new FilterResults();
                 results.values = matchedEntries;
-                results.count = matchedEntries.size();
+                results.count = matchedEntries != null ? matchedEntries.size() : 0;
                 return results;
             }
 
+            private void indexLabels(ArrayList<ApplicationsState.AppEntry> entries) {
+                final int size = entries.size();
+                mNormalizedLabels = new String[size];
+                for (int i = 0; i < size; i++) {
+                    final String label = entries.get(i).label;
+                    mNormalizedLabels[i] = label != null ? normalize(label) : "";
+                }
+                mIndexedEntries = entries;
+                mLastQuery = null;
+            }
+
+            /** Lowercases the text and strips its accents, so that "é" matches "e". */
+            private String normalize(String text) {
+                final String decomposed = Normalizer.normalize(text, Normalizer.Form.NFD);
+                return COMBINING_MARKS.matcher(decomposed).replaceAll("")
+                        .toLowerCase(Locale.getDefault());
+            }
+
             @Override
             protected void publishResults(CharSequence constraint, FilterResults results) {
                 mEntries = (ArrayList<ApplicationsState.AppEntry>) results.values;
@@ -18,6 +18,7 @@ import com.android.settingslib.applications.ApplicationsState;
 import com.android.settingslib.applications.ApplicationsState.AppEntry;
 
 import java.util.ArrayList;
+import java.util.List;
 
 public class AppStateDataUsageBridge extends AppStateBaseBridge {
 
@@ -34,12 +35,24 @@ public class AppStateDataUsageBridge extends AppStateBaseBridge {
     @Override
     protected void loadAllExtraInfo() {
         ArrayList<AppEntry> apps = mAppSession.getAllApps();
+        applyExtraInfo(apps, computeAllExtraInfo(getAppKeys(apps)));
+    }
+
+    @Override
+    protected boolean isParallelLoadSupported() {
+        return true;
+    }
+
+    @Override
+    protected Object[] computeAllExtraInfo(List<AppKey> apps) {
         final int N = apps.size();
+        final Object[] infos = new Object[N];
         for (int i = 0; i < N; i++) {
-            AppEntry app = apps.get(i);
-            app.extraInfo = new DataUsageState(mDataSaverBackend.isAllowlisted(app.info.uid),
-                    mDataSaverBackend.isDenylisted(app.info.uid));
+            AppKey app = apps.get(i);
+            infos[i] = new DataUsageState(mDataSaverBackend.isAllowlisted(app.uid),
+                    mDataSaverBackend.isDenylisted(app.uid));
         }
+        return infos;
     }
 
     @Override
@@ -58,6 +58,9 @@ public class ChartDataUsagePreference extends Preference {
     private long mStart;
     private long mEnd;
     private NetworkCycleChartData mNetworkCycleChartData;
+    // The usage of mNetworkCycleChartData reduced to the chart resolution, and that resolution.
+    @Nullable private List<NetworkUsageData> mChartUsage;
+    private int mChartUsageMaxCount;
 
     public ChartDataUsagePreference(Context context, AttributeSet attrs) {
         super(context, attrs);
@@ -76,7 +79,7 @@ public class ChartDataUsagePreference extends Preference {
         chart.clearPaths();
         chart.configureGraph(toInt(mEnd - mStart), top);
         if (mNetworkCycleChartData != null) {
-            calcPoints(chart, mNetworkCycleChartData.getDailyUsage());
+            calcPoints(chart, getChartUsage(chart));
             setupContentDescription(chart, mNetworkCycleChartData.getDailyUsage());
         }
         chart.setBottomLabels(new CharSequence[] {
@@ -120,6 +123,29 @@ public class ChartDataUsagePreference extends Preference {
         }
     }
 
+    /**
+     * Returns the daily usage up to now, with at most one entry per two pixels of the chart since
+     * every entry draws two points. Kept until the cycle data or the chart width changes.
+     */
+    private List<NetworkUsageData> getChartUsage(UsageView chart) {
+        final int width = chart.getWidth() > 0
+                ? chart.getWidth() : mResources.getDisplayMetrics().widthPixels;
+        final int maxCount = Math.max(1, width / 2);
+        if (mChartUsage == null || mChartUsageMaxCount != maxCount) {
+            final long now = System.currentTimeMillis();
+            final List<NetworkUsageData> pastUsage = new ArrayList<>();
+            for (NetworkUsageData data : mNetworkCycleChartData.getDailyUsage()) {
+                if (data.getStartTime() > now) {
+                    break;
+                }
+                pastUsage.add(data);
+            }
+            mChartUsage = NetworkCycleChartData.downsample(pastUsage, maxCount);
+            mChartUsageMaxCount = maxCount;
+        }
+        return mChartUsage;
+    }
+
     private void setupContentDescription(
             UsageView chart, @NonNull List<NetworkUsageData> usageSummary) {
         final Context context = getContext();
@@ -301,6 +327,7 @@ public class ChartDataUsagePreference extends Preference {
 
     public void setNetworkCycleData(NetworkCycleChartData data) {
         mNetworkCycleChartData = data;
+        mChartUsage = null;
         notifyChanged();
     }
 }
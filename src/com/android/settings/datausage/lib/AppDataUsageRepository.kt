@@ -26,6 +26,7 @@ import android.os.UserHandle
 import android.os.UserManager
 import android.util.SparseArray
 import android.util.SparseBooleanArray
+import android.util.SparseIntArray
 import androidx.annotation.VisibleForTesting
 import androidx.core.util.keyIterator
 import com.android.settings.R
@@ -108,35 +109,47 @@ class AppDataUsageRepository(
         knownItems: SparseArray<AppItem>,
         items: ArrayList<AppItem>,
     ) {
-        for (bucket in buckets) {
+        // The buckets are summed by UID first, so the items are only looked up once per UID.
+        val uidUsages = UidUsageAggregator.aggregate(buckets)
+        val userKinds = SparseIntArray()
+        for (i in 0 until uidUsages.size) {
             // Decide how to collapse items together
-            val uid = bucket.uid
+            val uid = uidUsages.uidAt(i)
+            val bytes = uidUsages.bytesAt(i)
             val collapseKey: Int
             val category: Int
             val userId = UserHandle.getUserId(uid)
-            if(userIdToIsHiddenMap[userId] == true) {
+            var userKind = userKinds.get(userId, USER_KIND_UNKNOWN)
+            if (userKind == USER_KIND_UNKNOWN) {
+                userKind = getUserKind(userId, userIdToIsHiddenMap)
+                userKinds.put(userId, userKind)
+            }
+            if (userKind == USER_KIND_HIDDEN_PROFILE) {
                 continue
             }
             if (UserHandle.isApp(uid) || Process.isSdkSandboxUid(uid)) {
-                if (userIdToIsHiddenMap.keys.contains(userId)) {
-                    if (userId != currentUserId) {
-                        // Add to a managed user item.
-                        accumulate(
-                            collapseKey = UidDetailProvider.buildKeyForUser(userId),
-                            knownItems = knownItems,
-                            bucket = bucket,
-                            itemCategory = AppItem.CATEGORY_USER,
-                            items = items,
-                        )
+                when (userKind) {
+                    USER_KIND_PROFILE -> {
+                        if (userId != currentUserId) {
+                            // Add to a managed user item.
+                            accumulate(
+                                collapseKey = UidDetailProvider.buildKeyForUser(userId),
+                                knownItems = knownItems,
+                                uid = uid,
+                                bytes = bytes,
+                                itemCategory = AppItem.CATEGORY_USER,
+                                items = items,
+                            )
+                        }
+                        collapseKey = getAppUid(uid)
+                        category = AppItem.CATEGORY_APP
                     }
-                    collapseKey = getAppUid(uid)
-                    category = AppItem.CATEGORY_APP
-                } else {
                     // If it is a removed user add it to the removed users' key
-                    if (context.userManager.getUserInfo(userId) == null) {
+                    USER_KIND_REMOVED -> {
                         collapseKey = NetworkStats.Bucket.UID_REMOVED
                         category = AppItem.CATEGORY_APP
-                    } else {
+                    }
+                    else -> {
                         // Add to other user item.
                         collapseKey = UidDetailProvider.buildKeyForUser(userId)
                         category = AppItem.CATEGORY_USER
@@ -155,13 +168,26 @@ class AppDataUsageRepository(
             accumulate(
                 collapseKey = collapseKey,
                 knownItems = knownItems,
-                bucket = bucket,
+                uid = uid,
+                bytes = bytes,
                 itemCategory = category,
                 items = items,
             )
         }
     }
 
+    /** Resolves once per user what its apps' usage is attributed to. */
+    private fun getUserKind(userId: Int, userIdToIsHiddenMap: Map<Int, Boolean>): Int =
+        when (userIdToIsHiddenMap[userId]) {
+            true -> USER_KIND_HIDDEN_PROFILE
+            false -> USER_KIND_PROFILE
+            null -> if (context.userManager.getUserInfo(userId) == null) {
+                USER_KIND_REMOVED
+            } else {
+                USER_KIND_OTHER_USER
+            }
+        }
+
     private fun shouldSkipProfile(userManager : UserManager, userHandle: UserHandle): Boolean {
         if (android.os.Flags.allowPrivateProfile()
                 && android.multiuser.Flags.handleInterleavedSettingsForPrivateSpace()) {
@@ -178,13 +204,15 @@ class AppDataUsageRepository(
      *
      * @param collapseKey  the collapse key used to map the item.
      * @param knownItems   collection of known (already existing) items.
-     * @param bucket       the network stats bucket to extract data usage from.
+     * @param uid          the uid the data usage belongs to.
+     * @param bytes        the data usage of the uid.
      * @param itemCategory the item is categorized on the list view by this category. Must be
      */
     private fun accumulate(
         collapseKey: Int,
         knownItems: SparseArray<AppItem>,
-        bucket: Bucket,
+        uid: Int,
+        bytes: Long,
         itemCategory: Int,
         items: ArrayList<AppItem>,
     ) {
@@ -195,11 +223,19 @@ class AppDataUsageRepository(
             items.add(item)
             knownItems.put(item.key, item)
         }
-        item.addUid(bucket.uid)
-        item.total += bucket.bytes
+        item.addUid(uid)
+        item.total += bytes
     }
 
     companion object {
+        private const val USER_KIND_UNKNOWN = 0
+        /** A profile of the current user, hidden in quiet mode. */
+        private const val USER_KIND_HIDDEN_PROFILE = 1
+        /** A profile of the current user. */
+        private const val USER_KIND_PROFILE = 2
+        private const val USER_KIND_REMOVED = 3
+        private const val USER_KIND_OTHER_USER = 4
+
         @JvmStatic
         fun getAppUidList(uids: SparseBooleanArray) =
             uids.keyIterator().asSequence().map { getAppUid(it) }.distinct().toList()
@@ -0,0 +1,89 @@
+/*
+ * Copyright (C) 2026 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.datausage.lib
+
+import android.content.Context
+import android.net.NetworkTemplate
+import android.os.Handler
+import android.os.HandlerThread
+import android.os.Process
+import android.os.SystemClock
+import android.telephony.SubscriptionManager
+import android.util.Log
+import androidx.annotation.WorkerThread
+import com.android.settings.datausage.DataUsageUtils
+import com.android.settings.datausage.lib.NetworkStatsRepository.Companion.PREFETCH_MAX_AGE_MS
+import java.util.concurrent.atomic.AtomicLong
+
+/**
+ * Prefetches the data usage of the current cycle of the default data subscription and of Wi-Fi,
+ * so the data usage screens opened from the network dashboard don't wait for the stats service.
+ */
+object DataUsagePrefetcher {
+    private const val TAG = "DataUsagePrefetcher"
+
+    private val lastPrefetchTimeMs = AtomicLong(-PREFETCH_MAX_AGE_MS)
+
+    private val handler: Handler by lazy {
+        val thread = HandlerThread(TAG, Process.THREAD_PRIORITY_BACKGROUND)
+        thread.start()
+        Handler(thread.looper)
+    }
+
+    /** Starts a prefetch on a low priority thread, unless the last one is still fresh. */
+    @JvmStatic
+    fun prefetch(context: Context) {
+        val now = SystemClock.elapsedRealtime()
+        val lastPrefetchTime = lastPrefetchTimeMs.get()
+        if (now - lastPrefetchTime < PREFETCH_MAX_AGE_MS ||
+            !lastPrefetchTimeMs.compareAndSet(lastPrefetchTime, now)
+        ) {
+            return
+        }
+        val appContext = context.applicationContext ?: context
+        handler.post { prefetchNow(appContext) }
+    }
+
+    @WorkerThread
+    private fun prefetchNow(context: Context) {
+        try {
+            for (template in getTemplates(context)) {
+                val statsRepository = NetworkStatsRepository(context, template)
+                // First, so the cycles of a template without policy reuse its result.
+                statsRepository.prefetchDetailsForDevice()
+                val cycle = NetworkCycleDataRepository(context, template, statsRepository)
+                    .getCycles().firstOrNull() ?: continue
+                statsRepository.prefetch(cycle)
+            }
+        } catch (e: Exception) {
+            // Only a head start, the screens query the stats themselves anyway.
+            Log.w(TAG, "Failed to prefetch data usage", e)
+        }
+    }
+
+    private fun getTemplates(context: Context): List<NetworkTemplate> = buildList {
+        val subId = SubscriptionManager.getDefaultDataSubscriptionId()
+        if (SubscriptionManager.isValidSubscriptionId(subId) &&
+            DataUsageUtils.hasMobileData(context)
+        ) {
+            add(DataUsageLib.getMobileTemplate(context, subId))
+        }
+        if (DataUsageUtils.hasWifiRadio(context)) {
+            add(NetworkTemplate.Builder(NetworkTemplate.MATCH_WIFI).build())
+        }
+    }
+}
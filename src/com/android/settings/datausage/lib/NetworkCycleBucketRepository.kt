@@ -50,14 +50,38 @@ class NetworkCycleBucketRepository(
         )
     }
 
-    fun queryChartData(usageData: NetworkUsageData) = NetworkCycleChartData(
-        total = usageData,
-        dailyUsage = bucketRange(
+    fun queryChartData(usageData: NetworkUsageData): NetworkCycleChartData {
+        val step = NetworkCycleChartData.BUCKET_DURATION.inWholeMilliseconds
+        val ranges = bucketRange(
             startTime = usageData.startTime,
             endTime = usageData.endTime,
-            step = NetworkCycleChartData.BUCKET_DURATION.inWholeMilliseconds,
-        ).map { aggregateUsage(it) },
-    )
+            step = step,
+        )
+        return NetworkCycleChartData(
+            total = usageData,
+            dailyUsage = aggregateStepUsage(ranges, step),
+        )
+    }
+
+    /**
+     * Aggregates the usage of consecutive [ranges] of [step] each in a single pass over the
+     * buckets, instead of filtering all the buckets for every range.
+     */
+    private fun aggregateStepUsage(ranges: List<Range<Long>>, step: Long): List<NetworkUsageData> {
+        val usages = LongArray(ranges.size)
+        val startTime = ranges.firstOrNull()?.lower ?: return emptyList()
+        for (bucket in buckets) {
+            if (bucket.startTimeStamp < startTime) continue
+            val index = (bucket.startTimeStamp - startTime) / step
+            // Like filterTime, a bucket crossing the end of its range is not counted.
+            if (index < ranges.size && bucket.endTimeStamp <= ranges[index.toInt()].upper) {
+                usages[index.toInt()] += bucket.bytes
+            }
+        }
+        return ranges.mapIndexed { index, range ->
+            NetworkUsageData(startTime = range.lower, endTime = range.upper, usage = usages[index])
+        }
+    }
 
     private fun aggregateUsage(range: Range<Long>) = NetworkUsageData(
         startTime = range.lower,
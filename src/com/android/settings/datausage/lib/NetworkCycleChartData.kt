@@ -27,5 +27,25 @@ data class NetworkCycleChartData(
 ) {
     companion object {
         val BUCKET_DURATION = 1.days
+
+        /**
+         * Merges adjacent entries of [usages] so that at most [maxCount] are left.
+         *
+         * A merged entry spans the time of its parts and sums their usage, so the total and the
+         * cumulative usage at every remaining boundary are unchanged. Since the cumulative usage
+         * only grows, the lowest and highest values the chart shows are kept as well.
+         */
+        @JvmStatic
+        fun downsample(usages: List<NetworkUsageData>, maxCount: Int): List<NetworkUsageData> {
+            if (maxCount <= 0 || usages.size <= maxCount) return usages
+            val groupSize = (usages.size + maxCount - 1) / maxCount
+            return usages.chunked(groupSize) { group ->
+                NetworkUsageData(
+                    startTime = group.first().startTime,
+                    endTime = group.last().endTime,
+                    usage = group.sumOf { it.usage },
+                )
+            }
+        }
     }
 }
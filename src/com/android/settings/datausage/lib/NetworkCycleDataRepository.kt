@@ -23,6 +23,7 @@ import android.net.NetworkTemplate
 import android.text.format.DateUtils
 import android.util.Range
 import com.android.settingslib.NetworkPolicyEditor
+import java.util.concurrent.ConcurrentHashMap
 
 interface INetworkCycleDataRepository {
     fun getCycles(): List<Range<Long>>
@@ -63,10 +64,32 @@ class NetworkCycleDataRepository(
     override fun queryUsage(range: Range<Long>) = NetworkUsageData(
         startTime = range.lower,
         endTime = range.upper,
-        usage = networkStatsRepository.querySummaryForDevice(range.lower, range.upper),
+        usage = queryUsageBytes(range),
     )
 
+    /**
+     * The usage of a completed cycle never changes, so it is only queried once per process and
+     * template, only the cycles still going on are queried again.
+     */
+    private fun queryUsageBytes(range: Range<Long>): Long {
+        if (range.upper > System.currentTimeMillis() - COMPLETED_CYCLE_SETTLE_TIME) {
+            return networkStatsRepository.querySummaryForDevice(range.lower, range.upper)
+        }
+        val cycleUsages = completedCycleUsages.getOrPut(networkTemplate) { ConcurrentHashMap() }
+        cycleUsages[range]?.let { return it }
+        return networkStatsRepository.querySummaryForDevice(range.lower, range.upper).also {
+            // A failed query also returns 0, so an empty cycle is not cached.
+            if (it > 0) cycleUsages[range] = it
+        }
+    }
+
     companion object {
+        /** Time for the stats of the last buckets of a cycle to be recorded after it ended. */
+        private const val COMPLETED_CYCLE_SETTLE_TIME = DateUtils.DAY_IN_MILLIS
+
+        private val completedCycleUsages =
+            ConcurrentHashMap<NetworkTemplate, ConcurrentHashMap<Range<Long>, Long>>()
+
         fun NetworkPolicy.getCycles() = cycleIterator().asSequence().map {
             Range(it.lower.toInstant().toEpochMilli(), it.upper.toInstant().toEpochMilli())
         }.toList()
@@ -20,8 +20,12 @@ import android.app.usage.NetworkStats
 import android.app.usage.NetworkStatsManager
 import android.content.Context
 import android.net.NetworkTemplate
+import android.os.SystemClock
 import android.util.Log
 import android.util.Range
+import androidx.annotation.VisibleForTesting
+import androidx.annotation.WorkerThread
+import java.util.concurrent.ConcurrentHashMap
 
 class NetworkStatsRepository(context: Context, private val template: NetworkTemplate) {
     private val networkStatsManager = context.getSystemService(NetworkStatsManager::class.java)!!
@@ -39,33 +43,114 @@ class NetworkStatsRepository(context: Context, private val template: NetworkTemp
         null
     }
 
-    fun queryDetailsForDevice(): List<Bucket> = try {
+    fun queryDetailsForDevice(): List<Bucket> =
+        getPrefetched(QUERY_DETAILS_FOR_DEVICE, AllTimeRange)
+            ?: queryDetailsForDeviceNow()
+            ?: emptyList()
+
+    /** Returns null if the query failed. */
+    private fun queryDetailsForDeviceNow(): List<Bucket>? = try {
         networkStatsManager.queryDetailsForDevice(template, Long.MIN_VALUE, Long.MAX_VALUE)
             .convertToBuckets()
     } catch (e: Exception) {
         Log.e(TAG, "Exception queryDetailsForDevice", e)
-        emptyList()
+        null
     }
 
     fun getTimeRange(): Range<Long>? = queryDetailsForDevice().aggregate()?.timeRange
 
-    fun querySummaryForDevice(startTime: Long, endTime: Long): Long = try {
+    fun querySummaryForDevice(startTime: Long, endTime: Long): Long =
+        getPrefetched(QUERY_SUMMARY_FOR_DEVICE, Range(startTime, endTime))
+            ?: querySummaryForDeviceNow(startTime, endTime)
+            ?: 0
+
+    /** Returns null if the query failed. */
+    private fun querySummaryForDeviceNow(startTime: Long, endTime: Long): Long? = try {
         networkStatsManager.querySummaryForDevice(template, startTime, endTime).bytes
     } catch (e: Exception) {
         Log.e(TAG, "Exception querySummaryForDevice", e)
-        0
+        null
     }
 
-    fun queryBuckets(startTime: Long, endTime: Long): List<Bucket> = try {
+    fun queryBuckets(startTime: Long, endTime: Long): List<Bucket> =
+        getPrefetched(QUERY_BUCKETS, Range(startTime, endTime))
+            ?: queryBucketsNow(startTime, endTime)
+            ?: emptyList()
+
+    /** Returns null if the query failed. */
+    private fun queryBucketsNow(startTime: Long, endTime: Long): List<Bucket>? = try {
         networkStatsManager.querySummary(template, startTime, endTime).convertToBuckets()
     } catch (e: Exception) {
         Log.e(TAG, "Exception querySummary", e)
-        emptyList()
+        null
+    }
+
+    /**
+     * Runs the all time query the data usage screens start with, which also gives the cycles of a
+     * template without policy, and keeps its result for [PREFETCH_MAX_AGE_MS].
+     */
+    @WorkerThread
+    fun prefetchDetailsForDevice() {
+        queryDetailsForDeviceNow()?.let {
+            putPrefetched(QUERY_DETAILS_FOR_DEVICE, AllTimeRange, it)
+        }
+    }
+
+    /**
+     * Runs the queries the data usage screens of [cycle] start with, and keeps their results for
+     * [PREFETCH_MAX_AGE_MS] so that these screens show their numbers right away. Failed queries
+     * are left for the screens to run again.
+     */
+    @WorkerThread
+    fun prefetch(cycle: Range<Long>) {
+        querySummaryForDeviceNow(cycle.lower, cycle.upper)?.let {
+            putPrefetched(QUERY_SUMMARY_FOR_DEVICE, cycle, it)
+        }
+        queryBucketsNow(cycle.lower, cycle.upper)?.let { putPrefetched(QUERY_BUCKETS, cycle, it) }
+    }
+
+    @Suppress("UNCHECKED_CAST")
+    private fun <T> getPrefetched(query: Int, range: Range<Long>): T? {
+        val key = PrefetchKey(template, query, range)
+        val prefetched = prefetchedResults[key] ?: return null
+        if (SystemClock.elapsedRealtime() - prefetched.timeMs > PREFETCH_MAX_AGE_MS) {
+            prefetchedResults.remove(key, prefetched)
+            return null
+        }
+        return prefetched.result as T
+    }
+
+    private fun putPrefetched(query: Int, range: Range<Long>, result: Any) {
+        val now = SystemClock.elapsedRealtime()
+        prefetchedResults.values.removeIf { now - it.timeMs > PREFETCH_MAX_AGE_MS }
+        prefetchedResults[PrefetchKey(template, query, range)] = Prefetched(result, now)
     }
 
     companion object {
         private const val TAG = "NetworkStatsRepository"
 
+        /** How long a prefetched result is used instead of querying the stats again. */
+        const val PREFETCH_MAX_AGE_MS = 30_000L
+
+        private const val QUERY_SUMMARY_FOR_DEVICE = 0
+        private const val QUERY_BUCKETS = 1
+        private const val QUERY_DETAILS_FOR_DEVICE = 2
+
+        private data class PrefetchKey(
+            val template: NetworkTemplate,
+            val query: Int,
+            val range: Range<Long>,
+        )
+
+        private class Prefetched(val result: Any, val timeMs: Long)
+
+        private val prefetchedResults = ConcurrentHashMap<PrefetchKey, Prefetched>()
+
+        @VisibleForTesting
+        fun clearPrefetchedResults() {
+            prefetchedResults.clear()
+        }
+
         val AllTimeRange = Range(Long.MIN_VALUE, Long.MAX_VALUE)
 
         data class Bucket(
@@ -0,0 +1,74 @@
+/*
+ * Copyright (C) 2026 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.datausage.lib
+
+import android.util.SparseIntArray
+import com.android.settings.datausage.lib.NetworkStatsRepository.Companion.Bucket
+
+/**
+ * Sums the bytes of network stats buckets by UID in a single pass.
+ *
+ * The UIDs are kept in the order they were first seen, with their bytes in a parallel primitive
+ * array, so a long cycle with many buckets per UID doesn't allocate anything per bucket.
+ */
+class UidUsageAggregator {
+    private val uidToIndex = SparseIntArray()
+    private var uids = IntArray(INITIAL_CAPACITY)
+    private var bytes = LongArray(INITIAL_CAPACITY)
+    private var lastUid = 0
+    private var lastIndex = -1
+
+    /** Number of distinct UIDs. */
+    var size = 0
+        private set
+
+    fun add(uid: Int, bytes: Long) {
+        // The buckets of one UID usually come one after another.
+        val index = if (lastIndex >= 0 && uid == lastUid) lastIndex else indexOf(uid)
+        this.bytes[index] += bytes
+        lastUid = uid
+        lastIndex = index
+    }
+
+    fun uidAt(index: Int): Int = uids[index]
+
+    fun bytesAt(index: Int): Long = bytes[index]
+
+    private fun indexOf(uid: Int): Int {
+        val index = uidToIndex.get(uid, -1)
+        if (index >= 0) return index
+        if (size == uids.size) {
+            uids = uids.copyOf(size * 2)
+            bytes = bytes.copyOf(size * 2)
+        }
+        uids[size] = uid
+        uidToIndex.put(uid, size)
+        return size++
+    }
+
+    companion object {
+        private const val INITIAL_CAPACITY = 64
+
+        @JvmStatic
+        fun aggregate(buckets: List<Bucket>): UidUsageAggregator =
+            UidUsageAggregator().apply {
+                for (bucket in buckets) {
+                    add(bucket.uid, bucket.bytes)
+                }
+            }
+    }
+}
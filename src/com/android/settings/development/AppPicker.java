@@ -32,6 +32,8 @@ import android.view.ViewGroup;
 import android.widget.ArrayAdapter;
 import android.widget.ListView;
 
+import com.android.settings.applications.AppIconLabelCache;
+
 import java.text.Collator;
 import java.util.ArrayList;
 import java.util.Collections;
@@ -160,7 +162,8 @@ public class AppPicker extends ListActivity {
 
                 MyApplicationInfo info = new MyApplicationInfo();
                 info.info = ai;
-                info.label = info.info.loadLabel(getPackageManager()).toString();
+                final CharSequence label = AppIconLabelCache.getInstance().getLabel(context, ai);
+                info.label = label != null ? label.toString() : ai.packageName;
                 mPackageInfoList.add(info);
             }
             Collections.sort(mPackageInfoList, sDisplayNameComparator);
@@ -180,11 +183,17 @@ public class AppPicker extends ListActivity {
             convertView = holder.rootView;
             MyApplicationInfo info = getItem(position);
             holder.appName.setText(info.label);
+            // Tags the recycled row, so an icon loaded for a previous item is dropped.
+            holder.appIcon.setTag(info);
+            holder.appIcon.setImageDrawable(null);
             if (info.info != null) {
-                holder.appIcon.setImageDrawable(info.info.loadIcon(getPackageManager()));
+                AppIconLabelCache.getInstance().loadIcon(getContext(), info.info, icon -> {
+                    if (holder.appIcon.getTag() == info) {
+                        holder.appIcon.setImageDrawable(icon);
+                    }
+                });
                 holder.summary.setText(info.info.packageName);
             } else {
-                holder.appIcon.setImageDrawable(null);
                 holder.summary.setText("");
             }
             holder.disabled.setVisibility(View.GONE);
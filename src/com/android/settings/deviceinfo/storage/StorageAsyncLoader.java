@@ -21,6 +21,8 @@ import static android.content.pm.ApplicationInfo.CATEGORY_GAME;
 import static android.content.pm.ApplicationInfo.CATEGORY_IMAGE;
 import static android.content.pm.ApplicationInfo.CATEGORY_VIDEO;
 
+import android.app.usage.StorageStats;
+import android.app.usage.StorageStatsManager;
 import android.content.ContentResolver;
 import android.content.Context;
 import android.content.pm.ApplicationInfo;
@@ -32,17 +34,22 @@ import android.net.Uri;
 import android.os.Bundle;
 import android.os.UserHandle;
 import android.os.UserManager;
+import android.os.storage.StorageManager;
 import android.provider.MediaStore;
 import android.provider.MediaStore.Files.FileColumns;
 import android.provider.MediaStore.MediaColumns;
 import android.util.ArraySet;
 import android.util.Log;
 import android.util.SparseArray;
+import android.util.SparseLongArray;
+
+import androidx.annotation.Nullable;
 
 import com.android.settingslib.applications.StorageStatsSource;
 import com.android.settingslib.utils.AsyncLoaderCompat;
 
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 
@@ -58,15 +65,29 @@ public class StorageAsyncLoader
     private String mUuid;
     private StorageStatsSource mStatsManager;
     private PackageManager mPackageManager;
+    @Nullable
+    private StorageStatsManager mStorageStatsManager;
     private ArraySet<String> mSeenPackages;
 
     public StorageAsyncLoader(Context context, UserManager userManager,
             String uuid, StorageStatsSource source, PackageManager pm) {
+        this(context, userManager, uuid, source, pm, null /* storageStatsManager */);
+    }
+
+    /**
+     * Creates a loader which sizes apps with one per-user aggregate query to
+     * {@link StorageStatsManager}, and only queries the packages which need category attribution
+     * or, when the aggregate can't tell, duplicate code or cache quota attribution.
+     */
+    public StorageAsyncLoader(Context context, UserManager userManager,
+            String uuid, StorageStatsSource source, PackageManager pm,
+            @Nullable StorageStatsManager storageStatsManager) {
         super(context);
         mUserManager = userManager;
         mUuid = uuid;
         mStatsManager = source;
         mPackageManager = pm;
+        mStorageStatsManager = storageStatsManager;
     }
 
     @Override
@@ -146,67 +167,230 @@ public class StorageAsyncLoader
                 mPackageManager.getInstalledApplicationsAsUser(0, userId);
         final StorageResult result = new StorageResult();
         final UserHandle myUser = UserHandle.of(userId);
+        final StorageStats userStats = queryStatsForUser(myUser);
+        if (userStats != null) {
+            loadAppsSizeBatched(applicationInfos, myUser, userStats, result);
+        } else {
+            loadAppsSizePerPackage(applicationInfos, myUser, result);
+        }
+
+        Log.d(TAG, "Loading external stats");
+        try {
+            result.externalStats = mStatsManager.getExternalStorageStats(mUuid,
+                    UserHandle.of(userId));
+        } catch (IOException e) {
+            Log.w(TAG, e);
+        }
+        Log.d(TAG, "Obtaining result completed");
+        return result;
+    }
+
+    /**
+     * Returns the aggregate app stats of the given user, or null if the batched path is not
+     * available and apps should be sized one package at a time.
+     */
+    @Nullable
+    private StorageStats queryStatsForUser(UserHandle user) {
+        if (mStorageStatsManager == null) {
+            return null;
+        }
+        try {
+            return mStorageStatsManager.queryStatsForUser(StorageManager.convert(mUuid), user);
+        } catch (IOException | IllegalArgumentException | SecurityException e) {
+            Log.w(TAG, "Unable to query aggregate stats, falling back to per-package", e);
+            return null;
+        }
+    }
+
+    private void loadAppsSizePerPackage(List<ApplicationInfo> applicationInfos,
+            UserHandle user, StorageResult result) {
         for (int i = 0, size = applicationInfos.size(); i < size; i++) {
             final ApplicationInfo app = applicationInfos.get(i);
 
-            StorageStatsSource.AppStorageStats stats;
-            try {
-                stats = mStatsManager.getStatsForPackage(mUuid, app.packageName, myUser);
-            } catch (NameNotFoundException | IOException e) {
-                // This may happen if the package was removed during our calculation.
-                Log.w(TAG, "App unexpectedly not found", e);
+            final StorageStatsSource.AppStorageStats stats = getStatsForPackage(app, user);
+            if (stats == null) {
                 continue;
             }
 
-            final long dataSize = stats.getDataBytes();
-            final long cacheQuota = mStatsManager.getCacheQuotaBytes(mUuid, app.uid);
-            final long cacheBytes = stats.getCacheBytes();
-            long blamedSize = dataSize + stats.getCodeBytes();
-            // Technically, we could overages as freeable on the storage settings screen.
-            // If the app is using more cache than its quota, we would accidentally subtract the
-            // overage from the system size (because it shows up as unused) during our attribution.
-            // Thus, we cap the attribution at the quota size.
-            if (cacheQuota < cacheBytes) {
-                blamedSize = blamedSize - cacheBytes + cacheQuota;
+            final long blamedSize =
+                    getBlamedSize(stats, mStatsManager.getCacheQuotaBytes(mUuid, app.uid));
+            trackDuplicateCode(app, stats, result);
+            if (isGame(app)) {
+                result.gamesSize += blamedSize;
+            } else {
+                result.allAppsExceptGamesSize += blamedSize;
             }
+        }
+    }
 
-            // Code bytes may share between different profiles. To know all the duplicate code size
-            // and we can get a reasonable system size in StorageItemPreferenceController.
-            if (mSeenPackages.contains(app.packageName)) {
-                result.duplicateCodeSize += stats.getCodeBytes();
-            } else {
-                mSeenPackages.add(app.packageName);
+    /**
+     * Sizes all apps of a user from its aggregate stats. Games are always queried per package, as
+     * they need category attribution. The other apps are only queried when the aggregate can't
+     * tell their duplicate code or their cache beyond quota.
+     */
+    private void loadAppsSizeBatched(List<ApplicationInfo> applicationInfos,
+            UserHandle user, StorageStats userStats, StorageResult result) {
+        final SparseLongArray cacheQuotas = new SparseLongArray();
+        final List<ApplicationInfo> otherApps = new ArrayList<>();
+        long gamesRawSize = 0;
+        long gamesCodeSize = 0;
+        long gamesCacheSize = 0;
+        for (int i = 0, size = applicationInfos.size(); i < size; i++) {
+            final ApplicationInfo app = applicationInfos.get(i);
+            if (!isGame(app)) {
+                otherApps.add(app);
+                continue;
             }
+            // A game removed meanwhile stays in the aggregate, and is counted as an app.
+            final StorageStatsSource.AppStorageStats stats = getStatsForPackage(app, user);
+            if (stats == null) {
+                continue;
+            }
+            trackDuplicateCode(app, stats, result);
+            gamesRawSize += stats.getDataBytes() + stats.getCodeBytes();
+            gamesCodeSize += stats.getCodeBytes();
+            gamesCacheSize += stats.getCacheBytes();
+            result.gamesSize += getBlamedSize(stats, getCacheQuota(app, cacheQuotas));
+        }
 
-            switch (app.category) {
-                case CATEGORY_GAME:
-                    result.gamesSize += blamedSize;
-                    break;
-                case CATEGORY_AUDIO:
-                case CATEGORY_VIDEO:
-                case CATEGORY_IMAGE:
-                    result.allAppsExceptGamesSize += blamedSize;
-                    break;
-                default:
-                    // The deprecated game flag does not set the category.
-                    if ((app.flags & ApplicationInfo.FLAG_IS_GAME) != 0) {
-                        result.gamesSize += blamedSize;
-                        break;
-                    }
-                    result.allAppsExceptGamesSize += blamedSize;
-                    break;
+        long overQuotaCacheSize = 0;
+        if (isCacheWithinQuotas(otherApps, userStats.getCacheBytes() - gamesCacheSize,
+                cacheQuotas)) {
+            addDuplicateCode(otherApps, user, userStats.getAppBytes() - gamesCodeSize, result);
+        } else {
+            // Some apps use more cache than their quota, only their own stats tell which.
+            for (int i = 0, size = otherApps.size(); i < size; i++) {
+                final ApplicationInfo app = otherApps.get(i);
+                final StorageStatsSource.AppStorageStats stats = getStatsForPackage(app, user);
+                if (stats == null) {
+                    continue;
+                }
+                trackDuplicateCode(app, stats, result);
+                overQuotaCacheSize += stats.getDataBytes() + stats.getCodeBytes()
+                        - getBlamedSize(stats, getCacheQuota(app, cacheQuotas));
             }
         }
 
-        Log.d(TAG, "Loading external stats");
+        final long totalSize = userStats.getAppBytes() + userStats.getDataBytes();
+        result.allAppsExceptGamesSize =
+                Math.max(0L, totalSize - gamesRawSize - overQuotaCacheSize);
+    }
+
+    /**
+     * Returns whether {@code cacheSize} fits in the summed cache quotas of {@code apps}. Only as
+     * many quotas as needed are queried, once per UID. An app over its quota while the others are
+     * below theirs goes unnoticed, its overage is then counted as app size.
+     */
+    private boolean isCacheWithinQuotas(List<ApplicationInfo> apps, long cacheSize,
+            SparseLongArray cacheQuotas) {
+        long quotaSum = 0;
+        for (int i = 0, size = apps.size(); i < size && quotaSum < cacheSize; i++) {
+            final ApplicationInfo app = apps.get(i);
+            if (cacheQuotas.indexOfKey(app.uid) < 0) {
+                quotaSum += getCacheQuota(app, cacheQuotas);
+            }
+        }
+        return quotaSum >= cacheSize;
+    }
+
+    private long getCacheQuota(ApplicationInfo app, SparseLongArray cacheQuotas) {
+        final int index = cacheQuotas.indexOfKey(app.uid);
+        if (index >= 0) {
+            return cacheQuotas.valueAt(index);
+        }
+        final long cacheQuota = mStatsManager.getCacheQuotaBytes(mUuid, app.uid);
+        cacheQuotas.put(app.uid, cacheQuota);
+        return cacheQuota;
+    }
+
+    /**
+     * Adds the code of the {@code apps} seen in an earlier profile as duplicate code. The code of
+     * a package is the same in every profile, so only the smaller of the seen and unseen packages
+     * is queried, and the code of the other ones is told from {@code appsCodeSize}.
+     */
+    private void addDuplicateCode(List<ApplicationInfo> apps, UserHandle user,
+            long appsCodeSize, StorageResult result) {
+        final int size = apps.size();
+        final boolean[] seen = new boolean[size];
+        int seenCount = 0;
+        for (int i = 0; i < size; i++) {
+            seen[i] = !mSeenPackages.add(apps.get(i).packageName);
+            if (seen[i]) {
+                seenCount++;
+            }
+        }
+        final boolean querySeen = seenCount <= size - seenCount;
+        long unseenCodeSize = 0;
+        for (int i = 0; i < size; i++) {
+            if (seen[i] != querySeen) {
+                continue;
+            }
+            // An unseen package removed meanwhile is counted as duplicate code.
+            final StorageStatsSource.AppStorageStats stats = getStatsForPackage(apps.get(i), user);
+            if (stats == null) {
+                continue;
+            }
+            if (querySeen) {
+                result.duplicateCodeSize += stats.getCodeBytes();
+            } else {
+                unseenCodeSize += stats.getCodeBytes();
+            }
+        }
+        if (!querySeen) {
+            result.duplicateCodeSize += Math.max(0L, appsCodeSize - unseenCodeSize);
+        }
+    }
+
+    @Nullable
+    private StorageStatsSource.AppStorageStats getStatsForPackage(ApplicationInfo app,
+            UserHandle user) {
         try {
-            result.externalStats = mStatsManager.getExternalStorageStats(mUuid,
-                    UserHandle.of(userId));
-        } catch (IOException e) {
-            Log.w(TAG, e);
+            return mStatsManager.getStatsForPackage(mUuid, app.packageName, user);
+        } catch (NameNotFoundException | IOException e) {
+            // This may happen if the package was removed during our calculation.
+            Log.w(TAG, "App unexpectedly not found", e);
+            return null;
+        }
+    }
+
+    private static long getBlamedSize(StorageStatsSource.AppStorageStats stats,
+            long cacheQuota) {
+        final long dataSize = stats.getDataBytes();
+        final long cacheBytes = stats.getCacheBytes();
+        long blamedSize = dataSize + stats.getCodeBytes();
+        // Technically, we could overages as freeable on the storage settings screen.
+        // If the app is using more cache than its quota, we would accidentally subtract the
+        // overage from the system size (because it shows up as unused) during our attribution.
+        // Thus, we cap the attribution at the quota size.
+        if (cacheQuota < cacheBytes) {
+            blamedSize = blamedSize - cacheBytes + cacheQuota;
+        }
+        return blamedSize;
+    }
+
+    private void trackDuplicateCode(ApplicationInfo app,
+            StorageStatsSource.AppStorageStats stats, StorageResult result) {
+        // Code bytes may share between different profiles. To know all the duplicate code size
+        // and we can get a reasonable system size in StorageItemPreferenceController.
+        if (mSeenPackages.contains(app.packageName)) {
+            result.duplicateCodeSize += stats.getCodeBytes();
+        } else {
+            mSeenPackages.add(app.packageName);
+        }
+    }
+
+    private static boolean isGame(ApplicationInfo app) {
+        switch (app.category) {
+            case CATEGORY_GAME:
+                return true;
+            case CATEGORY_AUDIO:
+            case CATEGORY_VIDEO:
+            case CATEGORY_IMAGE:
+                return false;
+            default:
+                // The deprecated game flag does not set the category.
+                return (app.flags & ApplicationInfo.FLAG_IS_GAME) != 0;
         }
-        Log.d(TAG, "Obtaining result completed");
-        return result;
     }
 
     @Override
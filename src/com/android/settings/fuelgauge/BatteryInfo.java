@@ -21,8 +21,8 @@ import android.content.res.Resources;
 import android.os.AsyncTask;
 import android.os.BatteryManager;
 import android.os.BatteryStats.HistoryItem;
-import android.os.BatteryStatsManager;
 import android.os.BatteryUsageStats;
+import android.os.BatteryUsageStatsQuery;
 import android.os.SystemClock;
 import android.provider.Settings;
 import android.text.format.Formatter;
@@ -178,29 +178,17 @@ public class BatteryInfo {
         new AsyncTask<Void, Void, BatteryInfo>() {
             @Override
             protected BatteryInfo doInBackground(Void... params) {
-                boolean shouldCloseBatteryUsageStats = false;
-                BatteryUsageStats stats;
                 if (batteryUsageStats != null) {
-                    stats = batteryUsageStats;
-                } else {
-                    try {
-                        stats =
-                                context.getSystemService(BatteryStatsManager.class)
-                                        .getBatteryUsageStats();
-                        shouldCloseBatteryUsageStats = true;
-                    } catch (RuntimeException e) {
-                        Log.e(TAG, "getBatteryInfo() from getBatteryUsageStats()", e);
-                        // Use default BatteryUsageStats.
-                        stats = new BatteryUsageStats.Builder(new String[0]).build();
-                    }
+                    return getBatteryInfo(context, batteryUsageStats, shortString);
                 }
-                final BatteryInfo batteryInfo = getBatteryInfo(context, stats, shortString);
-                if (shouldCloseBatteryUsageStats) {
-                    try {
-                        stats.close();
-                    } catch (Exception e) {
-                        Log.e(TAG, "BatteryUsageStats.close() failed", e);
-                    }
+                final BatteryUsageStatsCache cache = BatteryUsageStatsCache.getInstance();
+                final BatteryUsageStats stats =
+                        cache.acquire(context, new BatteryUsageStatsQuery.Builder().build());
+                final BatteryInfo batteryInfo;
+                try {
+                    batteryInfo = getBatteryInfo(context, stats, shortString);
+                } finally {
+                    cache.release(stats);
                 }
                 return batteryInfo;
             }
@@ -0,0 +1,239 @@
+/*
+ * Copyright (C) 2026 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.fuelgauge;
+
+import android.content.Context;
+import android.os.BatteryStatsManager;
+import android.os.BatteryUsageStats;
+import android.os.BatteryUsageStatsQuery;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.util.Log;
+
+import androidx.annotation.Nullable;
+import androidx.annotation.VisibleForTesting;
+import androidx.annotation.WorkerThread;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Process-wide cache of {@link BatteryUsageStats} snapshots shared by the battery screens.
+ *
+ * <p>A snapshot is reused by every {@link #acquire} within {@link #TTL_MS} whose query flags are
+ * covered by the cached snapshot, and it is closed once it has expired and every consumer has
+ * called {@link #release}. Only queries without a time range should go through this cache.
+ */
+public final class BatteryUsageStatsCache {
+    private static final String TAG = "BatteryUsageStatsCache";
+
+    @VisibleForTesting static final long TTL_MS = 5_000L;
+
+    private static BatteryUsageStatsCache sInstance;
+
+    private final Object mLock = new Object();
+    private final Object mFetchLock = new Object();
+    private final Handler mHandler;
+    // Guarded by mLock, the newest entry is the last one.
+    private final List<Entry> mEntries = new ArrayList<>();
+    private final Map<BatteryUsageStats, Entry> mEntryByStats = new IdentityHashMap<>();
+
+    /** Returns the process-wide instance. */
+    public static synchronized BatteryUsageStatsCache getInstance() {
+        if (sInstance == null) {
+            sInstance = new BatteryUsageStatsCache(new Handler(Looper.getMainLooper()));
+        }
+        return sInstance;
+    }
+
+    @VisibleForTesting
+    BatteryUsageStatsCache(Handler handler) {
+        mHandler = handler;
+    }
+
+    @VisibleForTesting(otherwise = VisibleForTesting.NONE)
+    public static synchronized void setUpForTest(@Nullable BatteryUsageStatsCache cache) {
+        sInstance = cache;
+    }
+
+    /**
+     * Returns a {@link BatteryUsageStats} snapshot satisfying {@code query}, which must be handed
+     * back with {@link #release} instead of being closed. Concurrent callers share one fetch.
+     */
+    @WorkerThread
+    public BatteryUsageStats acquire(Context context, BatteryUsageStatsQuery query) {
+        final int flags = query.getFlags();
+        final BatteryUsageStats cached = acquireCached(flags);
+        if (cached != null) {
+            return cached;
+        }
+        // Serializes the fetches, so a caller arriving while another one is fetching picks up
+        // the fresh snapshot instead of issuing a second stats service call.
+        synchronized (mFetchLock) {
+            final BatteryUsageStats fetchedMeanwhile = acquireCached(flags);
+            if (fetchedMeanwhile != null) {
+                return fetchedMeanwhile;
+            }
+            BatteryUsageStats stats;
+            boolean isDefault = false;
+            try {
+                stats = context.getSystemService(BatteryStatsManager.class)
+                        .getBatteryUsageStats(query);
+            } catch (RuntimeException e) {
+                Log.e(TAG, "acquire() from getBatteryUsageStats()", e);
+                // Use default BatteryUsageStats, which is tracked like the others but never shared.
+                stats = new BatteryUsageStats.Builder(new String[0]).build();
+                isDefault = true;
+            }
+            final Entry entry = new Entry(stats, flags, SystemClock.elapsedRealtime());
+            entry.mInvalidated = isDefault;
+            synchronized (mLock) {
+                mEntries.add(entry);
+                mEntryByStats.put(stats, entry);
+            }
+            mHandler.postDelayed(this::trimExpired, TTL_MS);
+            return stats;
+        }
+    }
+
+    /**
+     * Takes one more reference on a snapshot returned by {@link #acquire}, which must be handed
+     * back with {@link #release}.
+     *
+     * @return {@code false} if the snapshot isn't held by the cache, in which case it may already
+     * be closed and must not be used.
+     */
+    public boolean retain(@Nullable BatteryUsageStats stats) {
+        if (stats == null) {
+            return false;
+        }
+        synchronized (mLock) {
+            final Entry entry = mEntryByStats.get(stats);
+            if (entry == null) {
+                return false;
+            }
+            entry.mRefCount++;
+            return true;
+        }
+    }
+
+    /** Releases a snapshot returned by {@link #acquire}, closing it if no longer needed. */
+    public void release(@Nullable BatteryUsageStats stats) {
+        if (stats == null) {
+            return;
+        }
+        final boolean shouldClose;
+        synchronized (mLock) {
+            final Entry entry = mEntryByStats.get(stats);
+            if (entry == null) {
+                // Not owned by the cache, e.g. an already closed one.
+                shouldClose = true;
+            } else if (entry.mRefCount <= 0) {
+                // Closing it here could pull it away from the consumer still holding it.
+                Log.wtf(TAG, "release() without a matching acquire()");
+                return;
+            } else {
+                entry.mRefCount--;
+                shouldClose = entry.mRefCount <= 0 && isExpired(entry);
+                if (shouldClose) {
+                    removeLocked(entry);
+                }
+            }
+        }
+        if (shouldClose) {
+            close(stats);
+        }
+    }
+
+    /** Drops every cached snapshot, e.g. when the battery state is known to have changed. */
+    public void invalidate() {
+        final List<BatteryUsageStats> toClose = new ArrayList<>();
+        synchronized (mLock) {
+            for (Entry entry : new ArrayList<>(mEntries)) {
+                entry.mInvalidated = true;
+                if (entry.mRefCount <= 0) {
+                    removeLocked(entry);
+                    toClose.add(entry.mStats);
+                }
+            }
+        }
+        toClose.forEach(BatteryUsageStatsCache::close);
+    }
+
+    @VisibleForTesting
+    void trimExpired() {
+        final List<BatteryUsageStats> toClose = new ArrayList<>();
+        synchronized (mLock) {
+            for (Entry entry : new ArrayList<>(mEntries)) {
+                if (entry.mRefCount <= 0 && isExpired(entry)) {
+                    removeLocked(entry);
+                    toClose.add(entry.mStats);
+                }
+            }
+        }
+        toClose.forEach(BatteryUsageStatsCache::close);
+    }
+
+    @Nullable
+    private BatteryUsageStats acquireCached(int flags) {
+        synchronized (mLock) {
+            for (int i = mEntries.size() - 1; i >= 0; i--) {
+                final Entry entry = mEntries.get(i);
+                if (!isExpired(entry) && (entry.mFlags & flags) == flags) {
+                    entry.mRefCount++;
+                    return entry.mStats;
+                }
+            }
+        }
+        return null;
+    }
+
+    private void removeLocked(Entry entry) {
+        mEntries.remove(entry);
+        mEntryByStats.remove(entry.mStats);
+    }
+
+    private static boolean isExpired(Entry entry) {
+        return entry.mInvalidated
+                || SystemClock.elapsedRealtime() - entry.mCreatedTimeMs >= TTL_MS;
+    }
+
+    private static void close(BatteryUsageStats stats) {
+        try {
+            stats.close();
+        } catch (Exception e) {
+            Log.e(TAG, "BatteryUsageStats.close() failed", e);
+        }
+    }
+
+    private static final class Entry {
+        final BatteryUsageStats mStats;
+        final int mFlags;
+        final long mCreatedTimeMs;
+        int mRefCount = 1;
+        boolean mInvalidated;
+
+        Entry(BatteryUsageStats stats, int flags, long createdTimeMs) {
+            mStats = stats;
+            mFlags = flags;
+            mCreatedTimeMs = createdTimeMs;
+        }
+    }
+}
@@ -24,7 +24,6 @@ import android.content.pm.PackageInfo;
 import android.content.pm.PackageManager;
 import android.os.BatteryManager;
 import android.os.BatteryStats;
-import android.os.BatteryStatsManager;
 import android.os.BatteryUsageStats;
 import android.os.BatteryUsageStatsQuery;
 import android.os.Build;
@@ -424,18 +423,11 @@ public class BatteryUtils {
 
     @WorkerThread
     public BatteryInfo getBatteryInfo(final String tag) {
-        final BatteryStatsManager systemService =
-                mContext.getSystemService(BatteryStatsManager.class);
-        BatteryUsageStats batteryUsageStats;
-        try {
-            batteryUsageStats =
-                    systemService.getBatteryUsageStats(
-                            new BatteryUsageStatsQuery.Builder().includeBatteryHistory().build());
-        } catch (RuntimeException e) {
-            Log.e(TAG, "getBatteryInfo() error from getBatteryUsageStats()", e);
-            // Use default BatteryUsageStats.
-            batteryUsageStats = new BatteryUsageStats.Builder(new String[0]).build();
-        }
+        final BatteryUsageStatsCache batteryUsageStatsCache = BatteryUsageStatsCache.getInstance();
+        final BatteryUsageStats batteryUsageStats =
+                batteryUsageStatsCache.acquire(
+                        mContext,
+                        new BatteryUsageStatsQuery.Builder().includeBatteryHistory().build());
 
         final long startTime = System.currentTimeMillis();
 
@@ -467,11 +459,7 @@ public class BatteryUtils {
                         false /* shortString */);
         BatteryUtils.logRuntime(tag, "BatteryInfoLoader.loadInBackground", startTime);
 
-        try {
-            batteryUsageStats.close();
-        } catch (Exception e) {
-            Log.e(TAG, "BatteryUsageStats.close() failed", e);
-        }
+        batteryUsageStatsCache.release(batteryUsageStats);
         return batteryInfo;
     }
 
@@ -31,7 +31,7 @@ public class AnomalyDatabaseHelper extends SQLiteOpenHelper {
     private static final String TAG = "BatteryDatabaseHelper";
 
     private static final String DATABASE_NAME = "battery_settings.db";
-    private static final int DATABASE_VERSION = 5;
+    private static final int DATABASE_VERSION = 6;
 
     @Retention(RetentionPolicy.SOURCE)
     @IntDef({State.NEW, State.HANDLED, State.AUTO_HANDLED})
@@ -102,6 +102,26 @@ public class AnomalyDatabaseHelper extends SQLiteOpenHelper {
                     + ")"
                     + ")";
 
+    private static final String CREATE_ANOMALY_TIME_STAMP_INDEX =
+            "CREATE INDEX IF NOT EXISTS "
+                    + Tables.TABLE_ANOMALY
+                    + "_time_stamp_index ON "
+                    + Tables.TABLE_ANOMALY
+                    + "("
+                    + AnomalyColumns.TIME_STAMP_MS
+                    + ","
+                    + AnomalyColumns.ANOMALY_STATE
+                    + ")";
+
+    private static final String CREATE_ANOMALY_PACKAGE_INDEX =
+            "CREATE INDEX IF NOT EXISTS "
+                    + Tables.TABLE_ANOMALY
+                    + "_package_index ON "
+                    + Tables.TABLE_ANOMALY
+                    + "("
+                    + AnomalyColumns.PACKAGE_NAME
+                    + ")";
+
     public interface ActionColumns {
         /** The package name of an app been performed an action */
         String PACKAGE_NAME = "package_name";
@@ -152,6 +172,8 @@ public class AnomalyDatabaseHelper extends SQLiteOpenHelper {
 
     private AnomalyDatabaseHelper(Context context) {
         super(context, DATABASE_NAME, null, DATABASE_VERSION);
+        // Let readers run concurrently with the writer instead of waiting on it.
+        setWriteAheadLoggingEnabled(true);
     }
 
     @Override
@@ -161,7 +183,12 @@ public class AnomalyDatabaseHelper extends SQLiteOpenHelper {
 
     @Override
     public void onUpgrade(SQLiteDatabase db, int oldVersion, int newVersion) {
-        if (oldVersion < DATABASE_VERSION) {
+        if (oldVersion == 5) {
+            // Version 6 only adds indices, so keep the existing anomalies and actions.
+            db.execSQL(CREATE_ANOMALY_TIME_STAMP_INDEX);
+            db.execSQL(CREATE_ANOMALY_PACKAGE_INDEX);
+            Log.i(TAG, "Added anomaly indices for schema version '" + newVersion + "'");
+        } else if (oldVersion < DATABASE_VERSION) {
             Log.w(
                     TAG,
                     "Detected schema version '"
@@ -196,6 +223,8 @@ public class AnomalyDatabaseHelper extends SQLiteOpenHelper {
 
     private void bootstrapDB(SQLiteDatabase db) {
         db.execSQL(CREATE_ANOMALY_TABLE);
+        db.execSQL(CREATE_ANOMALY_TIME_STAMP_INDEX);
+        db.execSQL(CREATE_ANOMALY_PACKAGE_INDEX);
         db.execSQL(CREATE_ACTION_TABLE);
         Log.i(TAG, "Bootstrapped database");
     }
@@ -16,7 +16,6 @@
 
 package com.android.settings.fuelgauge.batterytip;
 
-import static android.database.sqlite.SQLiteDatabase.CONFLICT_IGNORE;
 import static android.database.sqlite.SQLiteDatabase.CONFLICT_REPLACE;
 
 import static com.android.settings.fuelgauge.batterytip.AnomalyDatabaseHelper.AnomalyColumns.ANOMALY_STATE;
@@ -31,6 +30,7 @@ import android.content.ContentValues;
 import android.content.Context;
 import android.database.Cursor;
 import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteStatement;
 import android.text.TextUtils;
 import android.util.ArrayMap;
 import android.util.SparseLongArray;
@@ -47,10 +47,14 @@ import java.util.Map;
 /**
  * Database manager for battery data. Now it only contains anomaly data stored in {@link AppInfo}.
  *
- * <p>This manager may be accessed by multi-threads. All the database related methods are
- * synchronized so each operation won't be interfered by other threads.
+ * <p>This manager may be accessed by multi-threads. All the write methods are synchronized so each
+ * operation won't be interfered by other threads, while queries run without the lock since the
+ * database uses write-ahead logging.
  */
 public class BatteryDatabaseManager {
+    /** Keeps the bound arguments of a single statement under the SQLite variable limit. */
+    private static final int MAX_ARGS_PER_STATEMENT = 500;
+
     private static BatteryDatabaseManager sSingleton;
 
     private AnomalyDatabaseHelper mDatabaseHelper;
@@ -81,23 +85,76 @@ public class BatteryDatabaseManager {
      * @param timestampMs the time when it is happened
      * @return {@code true} if insert operation succeed
      */
-    public synchronized boolean insertAnomaly(
+    public boolean insertAnomaly(
             int uid, String packageName, int type, int anomalyState, long timestampMs) {
+        final AppInfo appInfo =
+                new AppInfo.Builder()
+                        .setUid(uid)
+                        .setPackageName(packageName)
+                        .addAnomalyType(type)
+                        .build();
+        return insertAnomalies(List.of(appInfo), anomalyState, timestampMs) == 1;
+    }
+
+    /**
+     * Insert anomaly logs of all the {@code appInfos} to database in a single transaction.
+     *
+     * @param appInfos the apps and their anomaly types
+     * @param anomalyState the state of the anomalies
+     * @param timestampMs the time when they are happened
+     * @return the number of rows inserted
+     */
+    public synchronized int insertAnomalies(
+            List<AppInfo> appInfos, int anomalyState, long timestampMs) {
+        if (appInfos.isEmpty()) {
+            return 0;
+        }
         final SQLiteDatabase db = mDatabaseHelper.getWritableDatabase();
-        ContentValues values = new ContentValues();
-        values.put(UID, uid);
-        values.put(PACKAGE_NAME, packageName);
-        values.put(ANOMALY_TYPE, type);
-        values.put(ANOMALY_STATE, anomalyState);
-        values.put(TIME_STAMP_MS, timestampMs);
-
-        return db.insertWithOnConflict(TABLE_ANOMALY, null, values, CONFLICT_IGNORE) != -1;
+        int insertedCount = 0;
+        db.beginTransaction();
+        try (SQLiteStatement statement =
+                db.compileStatement(
+                        "INSERT OR IGNORE INTO "
+                                + TABLE_ANOMALY
+                                + "("
+                                + UID
+                                + ","
+                                + PACKAGE_NAME
+                                + ","
+                                + ANOMALY_TYPE
+                                + ","
+                                + ANOMALY_STATE
+                                + ","
+                                + TIME_STAMP_MS
+                                + ") VALUES (?,?,?,?,?)")) {
+            for (AppInfo appInfo : appInfos) {
+                for (Integer type : appInfo.anomalyTypes) {
+                    statement.clearBindings();
+                    statement.bindLong(1, appInfo.uid);
+                    if (appInfo.packageName == null) {
+                        statement.bindNull(2);
+                    } else {
+                        statement.bindString(2, appInfo.packageName);
+                    }
+                    statement.bindLong(3, type);
+                    statement.bindLong(4, anomalyState);
+                    statement.bindLong(5, timestampMs);
+                    if (statement.executeInsert() != -1) {
+                        insertedCount++;
+                    }
+                }
+            }
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+        return insertedCount;
     }
 
     /**
      * Query all the anomalies that happened after {@code timestampMsAfter} and with {@code state}.
      */
-    public synchronized List<AppInfo> queryAllAnomalies(long timestampMsAfter, int state) {
+    public List<AppInfo> queryAllAnomalies(long timestampMsAfter, int state) {
         final List<AppInfo> appInfos = new ArrayList<>();
         final SQLiteDatabase db = mDatabaseHelper.getReadableDatabase();
         final String[] projection = {PACKAGE_NAME, ANOMALY_TYPE, UID};
@@ -152,24 +209,33 @@ public class BatteryDatabaseManager {
      * @param state which state to update to
      */
     public synchronized void updateAnomalies(List<AppInfo> appInfos, int state) {
-        if (!appInfos.isEmpty()) {
-            final int size = appInfos.size();
-            final String[] whereArgs = new String[size];
-            for (int i = 0; i < size; i++) {
-                whereArgs[i] = appInfos.get(i).packageName;
+        if (appInfos.isEmpty()) {
+            return;
+        }
+        final SQLiteDatabase db = mDatabaseHelper.getWritableDatabase();
+        final ContentValues values = new ContentValues();
+        values.put(ANOMALY_STATE, state);
+        final int size = appInfos.size();
+        db.beginTransaction();
+        try {
+            for (int start = 0; start < size; start += MAX_ARGS_PER_STATEMENT) {
+                final int end = Math.min(size, start + MAX_ARGS_PER_STATEMENT);
+                final String[] whereArgs = new String[end - start];
+                for (int i = start; i < end; i++) {
+                    whereArgs[i - start] = appInfos.get(i).packageName;
+                }
+                db.update(
+                        TABLE_ANOMALY,
+                        values,
+                        PACKAGE_NAME
+                                + " IN ("
+                                + TextUtils.join(",", Collections.nCopies(whereArgs.length, "?"))
+                                + ")",
+                        whereArgs);
             }
-
-            final SQLiteDatabase db = mDatabaseHelper.getWritableDatabase();
-            final ContentValues values = new ContentValues();
-            values.put(ANOMALY_STATE, state);
-            db.update(
-                    TABLE_ANOMALY,
-                    values,
-                    PACKAGE_NAME
-                            + " IN ("
-                            + TextUtils.join(",", Collections.nCopies(appInfos.size(), "?"))
-                            + ")",
-                    whereArgs);
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
         }
     }
 
@@ -179,7 +245,7 @@ public class BatteryDatabaseManager {
      * @param type of action been performed
      * @return {@link SparseLongArray} where key is uid and value is timestamp
      */
-    public synchronized SparseLongArray queryActionTime(
+    public SparseLongArray queryActionTime(
             @AnomalyDatabaseHelper.ActionType int type) {
         final SparseLongArray timeStamps = new SparseLongArray();
         final SQLiteDatabase db = mDatabaseHelper.getReadableDatabase();
@@ -18,32 +18,61 @@ package com.android.settings.fuelgauge.batterytip;
 
 import android.content.Context;
 import android.os.BatteryUsageStats;
+import android.util.Log;
 
 import androidx.annotation.VisibleForTesting;
 
 import com.android.settings.fuelgauge.BatteryInfo;
+import com.android.settings.fuelgauge.BatteryUsageStatsCache;
 import com.android.settings.fuelgauge.BatteryUtils;
 import com.android.settings.fuelgauge.batterytip.detectors.BatteryDefenderDetector;
+import com.android.settings.fuelgauge.batterytip.detectors.BatteryTipDetector;
 import com.android.settings.fuelgauge.batterytip.detectors.HighUsageDetector;
 import com.android.settings.fuelgauge.batterytip.detectors.IncompatibleChargerDetector;
+import com.android.settings.fuelgauge.batterytip.tips.BatteryDefenderTip;
 import com.android.settings.fuelgauge.batterytip.tips.BatteryTip;
+import com.android.settings.fuelgauge.batterytip.tips.HighUsageTip;
+import com.android.settings.fuelgauge.batterytip.tips.IncompatibleChargerTip;
 import com.android.settings.overlay.FeatureFactory;
 import com.android.settingslib.utils.AsyncLoaderCompat;
 
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
 
 /**
  * Loader to compute and return a battery tip list. It will always return a full length list even
  * though some tips may have state {@code BaseBatteryTip.StateType.INVISIBLE}.
+ *
+ * <p>Detectors run concurrently against the same {@link BatteryUsageStats} and {@link BatteryInfo}
+ * snapshot. A detector exceeding its time budget is replaced by an invisible tip of its type, so a
+ * slow detector never delays the cheap ones.
  */
 public class BatteryTipLoader extends AsyncLoaderCompat<List<BatteryTip>> {
     private static final String TAG = "BatteryTipLoader";
 
+    private static final long DETECTOR_TIMEOUT_MS = 500L;
+    private static final long HIGH_USAGE_DETECTOR_TIMEOUT_MS = 2000L;
+    private static final int DETECTOR_THREADS = 3;
+    private static final long DETECTOR_KEEP_ALIVE_SECONDS = 30L;
+
+    private static final ExecutorService sDetectorExecutor = createDetectorExecutor();
+
     private BatteryUsageStats mBatteryUsageStats;
 
     @VisibleForTesting BatteryUtils mBatteryUtils;
+    @VisibleForTesting ExecutorService mExecutor = sDetectorExecutor;
+    @VisibleForTesting long mDetectorTimeoutMs = DETECTOR_TIMEOUT_MS;
+    @VisibleForTesting long mHighUsageDetectorTimeoutMs = HIGH_USAGE_DETECTOR_TIMEOUT_MS;
 
     public BatteryTipLoader(Context context, BatteryUsageStats batteryUsageStats) {
         super(context);
@@ -58,18 +87,95 @@ public class BatteryTipLoader extends AsyncLoaderCompat<List<BatteryTip>> {
         final BatteryInfo batteryInfo = mBatteryUtils.getBatteryInfo(TAG);
         final Context context = getContext().getApplicationContext();
 
-        tips.add(
-                new HighUsageDetector(context, batteryTipPolicy, mBatteryUsageStats, batteryInfo)
-                        .detect());
-        tips.add(new BatteryDefenderDetector(batteryInfo, context).detect());
-        tips.add(new IncompatibleChargerDetector(context).detect());
+        final long startTime = System.currentTimeMillis();
+
+        final HighUsageDetector highUsageDetector =
+                new HighUsageDetector(context, batteryTipPolicy, mBatteryUsageStats, batteryInfo);
+        final Future<BatteryTip> highUsageTip =
+                mExecutor.submit(() -> detectHighUsage(highUsageDetector));
+        final Future<BatteryTip> batteryDefenderTip =
+                mExecutor.submit(new BatteryDefenderDetector(batteryInfo, context)::detect);
+        final Future<BatteryTip> incompatibleChargerTip =
+                mExecutor.submit(new IncompatibleChargerDetector(context)::detect);
+
+        // Detectors contributed by the feature provider run on the loader thread meanwhile.
+        final List<BatteryTip> extraTips = new ArrayList<>();
         FeatureFactory.getFeatureFactory()
                 .getBatterySettingsFeatureProvider()
-                .addBatteryTipDetector(context, tips, batteryInfo, batteryTipPolicy);
+                .addBatteryTipDetector(context, extraTips, batteryInfo, batteryTipPolicy);
+
+        tips.add(
+                getTip(
+                        highUsageTip,
+                        mHighUsageDetectorTimeoutMs,
+                        () -> new HighUsageTip(0L /* lastFullChargeTimeMs */, new ArrayList<>())));
+        tips.add(
+                getTip(
+                        batteryDefenderTip,
+                        mDetectorTimeoutMs,
+                        () ->
+                                new BatteryDefenderTip(
+                                        BatteryTip.StateType.INVISIBLE,
+                                        batteryInfo.pluggedStatus != 0)));
+        tips.add(
+                getTip(
+                        incompatibleChargerTip,
+                        mDetectorTimeoutMs,
+                        () -> new IncompatibleChargerTip(BatteryTip.StateType.INVISIBLE)));
+        tips.addAll(extraTips);
         Collections.sort(tips);
+        Log.d(TAG, "loadInBackground() in " + (System.currentTimeMillis() - startTime) + "/ms");
         return tips;
     }
 
+    /** Detector threads are named for traces and exit once the loader has been idle a while. */
+    private static ExecutorService createDetectorExecutor() {
+        final AtomicInteger threadCount = new AtomicInteger();
+        final ThreadPoolExecutor executor = new ThreadPoolExecutor(DETECTOR_THREADS,
+                DETECTOR_THREADS, DETECTOR_KEEP_ALIVE_SECONDS, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(),
+                runnable -> new Thread(runnable, TAG + "-" + threadCount.incrementAndGet()));
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
+    /**
+     * Runs the {@link HighUsageDetector} while holding a reference on the shared
+     * {@link BatteryUsageStats}, which its loader may release meanwhile.
+     */
+    private BatteryTip detectHighUsage(HighUsageDetector detector) {
+        final BatteryUsageStatsCache cache = BatteryUsageStatsCache.getInstance();
+        if (!cache.retain(mBatteryUsageStats)) {
+            Log.w(TAG, "BatteryUsageStats released before the high usage detection");
+            return new HighUsageTip(0L /* lastFullChargeTimeMs */, new ArrayList<>());
+        }
+        try {
+            return detector.detect();
+        } finally {
+            cache.release(mBatteryUsageStats);
+        }
+    }
+
+    /**
+     * Waits up to {@code timeoutMs} for the result of a {@link BatteryTipDetector}, falling back
+     * to the invisible tip from {@code fallback} when it is too slow or fails.
+     */
+    private static BatteryTip getTip(
+            Future<BatteryTip> future, long timeoutMs, Supplier<BatteryTip> fallback) {
+        try {
+            return future.get(timeoutMs, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            future.cancel(true /* mayInterruptIfRunning */);
+            Log.w(TAG, "battery tip detector timed out after " + timeoutMs + "/ms");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            Log.w(TAG, "interrupted while waiting for battery tip detector", e);
+        } catch (ExecutionException e) {
+            Log.e(TAG, "battery tip detector failed", e);
+        }
+        return fallback.get();
+    }
+
     @Override
     protected void onDiscardResult(List<BatteryTip> result) {}
 }
@@ -78,8 +78,9 @@ public class HighUsageDetector implements BatteryTipDetector {
             if (mDataParser.isDeviceHeavilyUsed() || mPolicy.testHighUsageTip) {
                 final double totalPower = mBatteryUsageStats.getConsumedPower();
                 final int dischargeAmount = mBatteryUsageStats.getDischargePercentage();
+                // Copies the list since the snapshot may be shared with other consumers.
                 final List<UidBatteryConsumer> uidBatteryConsumers =
-                        mBatteryUsageStats.getUidBatteryConsumers();
+                        new ArrayList<>(mBatteryUsageStats.getUidBatteryConsumers());
                 // Sort by descending power
                 uidBatteryConsumers.sort(
                         (consumer1, consumer2) ->
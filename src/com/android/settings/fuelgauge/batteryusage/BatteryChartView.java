@@ -30,7 +30,9 @@ import android.graphics.Color;
 import android.graphics.CornerPathEffect;
 import android.graphics.Paint;
 import android.graphics.Path;
+import android.graphics.RecordingCanvas;
 import android.graphics.Rect;
+import android.graphics.RenderNode;
 import android.graphics.drawable.Drawable;
 import android.os.Bundle;
 import android.util.ArraySet;
@@ -102,10 +104,19 @@ public class BatteryChartView extends AppCompatImageView implements View.OnClick
     private Paint mTransomSelectedSlotPaint;
     private Paint mDividerPaint;
     private Paint mTrapezoidPaint;
+    private CornerPathEffect mTrapezoidCornerEffect;
     private Paint mTextPaint;
     private AccessibilityNodeProvider mAccessibilityNodeProvider;
     private BatteryChartView.OnSelectListener mOnSelectListener;
 
+    // Geometry which only depends on the view model and the view bounds. It is rebuilt when they
+    // change, so selection and hover updates only redraw the trapezoid colors.
+    private RenderNode mStaticLayerNode;
+    private Path[] mTrapezoidPaths;
+    private int mStaticLayerWidth;
+    private int mStaticLayerHeight;
+    @VisibleForTesting boolean mStaticLayerDirty = true;
+
     @VisibleForTesting TrapezoidSlot[] mTrapezoidSlots;
     // Records the location to calculate selected index.
     @VisibleForTesting float mTouchUpEventX = Float.MIN_VALUE;
@@ -127,6 +138,7 @@ public class BatteryChartView extends AppCompatImageView implements View.OnClick
     public void setViewModel(BatteryChartViewModel viewModel) {
         if (viewModel == null) {
             mViewModel = null;
+            invalidateStaticLayer();
             invalidate();
             return;
         }
@@ -138,10 +150,17 @@ public class BatteryChartView extends AppCompatImageView implements View.OnClick
                         viewModel.size(),
                         viewModel.selectedIndex(),
                         viewModel.getHighlightSlotIndex()));
+        final boolean isSameContent = viewModel.hasSameContent(mViewModel);
         mViewModel = viewModel;
+        setClickable(hasAnyValidTrapezoid(viewModel));
+        if (isSameContent) {
+            // Only the selection changed, so the static layer is still valid.
+            invalidate();
+            return;
+        }
         initializeAxisLabelsBounds();
         initializeTrapezoidSlots(viewModel.size() - 1);
-        setClickable(hasAnyValidTrapezoid(viewModel));
+        invalidateStaticLayer();
         requestLayout();
     }
 
@@ -160,12 +179,17 @@ public class BatteryChartView extends AppCompatImageView implements View.OnClick
         } else {
             mTextPaint = null;
         }
+        invalidateStaticLayer();
         requestLayout();
     }
 
     @Override
     public void onMeasure(int widthMeasureSpec, int heightMeasureSpec) {
         super.onMeasure(widthMeasureSpec, heightMeasureSpec);
+        final int indentLeft = mIndent.left;
+        final int indentTop = mIndent.top;
+        final int indentRight = mIndent.right;
+        final int indentBottom = mIndent.bottom;
         // Measures text bounds and updates indent configuration.
         if (mTextPaint != null) {
             mTextPaint.setTextAlign(Paint.Align.LEFT);
@@ -198,22 +222,83 @@ public class BatteryChartView extends AppCompatImageView implements View.OnClick
         } else {
             mIndent.set(0, 0, 0, 0);
         }
+        if (mIndent.left != indentLeft
+                || mIndent.top != indentTop
+                || mIndent.right != indentRight
+                || mIndent.bottom != indentBottom) {
+            invalidateStaticLayer();
+        }
     }
 
     @Override
     public void draw(Canvas canvas) {
         super.draw(canvas);
+        if (mStaticLayerDirty
+                || mStaticLayerWidth != getWidth()
+                || mStaticLayerHeight != getHeight()) {
+            rebuildStaticLayer();
+        }
         // Before mLevels initialized, the count of trapezoids is unknown. Only draws the
         // horizontal percentages and dividers.
-        drawHorizontalDividers(canvas);
+        drawStaticLayer(canvas);
         if (mViewModel == null) {
             return;
         }
-        drawVerticalDividers(canvas);
         drawTrapezoids(canvas);
         drawTransomLine(canvas);
     }
 
+    private void invalidateStaticLayer() {
+        mStaticLayerDirty = true;
+    }
+
+    private void rebuildStaticLayer() {
+        mStaticLayerDirty = false;
+        mStaticLayerWidth = getWidth();
+        mStaticLayerHeight = getHeight();
+        if (mStaticLayerNode != null) {
+            mStaticLayerNode.discardDisplayList();
+        }
+        if (mViewModel == null) {
+            mTrapezoidPaths = null;
+            return;
+        }
+        updateTrapezoidSlots();
+        updateTrapezoidPaths();
+    }
+
+    /**
+     * Draws the dividers, percentages and axis labels, which do not change with the selection.
+     * They are recorded once into a {@link RenderNode} on hardware accelerated canvases.
+     */
+    private void drawStaticLayer(Canvas canvas) {
+        if (!canvas.isHardwareAccelerated()) {
+            drawStaticContent(canvas);
+            return;
+        }
+        if (mStaticLayerNode == null) {
+            mStaticLayerNode = new RenderNode(TAG);
+        }
+        if (!mStaticLayerNode.hasDisplayList()) {
+            mStaticLayerNode.setPosition(0, 0, getWidth(), getHeight());
+            final RecordingCanvas recordingCanvas =
+                    mStaticLayerNode.beginRecording(getWidth(), getHeight());
+            try {
+                drawStaticContent(recordingCanvas);
+            } finally {
+                mStaticLayerNode.endRecording();
+            }
+        }
+        canvas.drawRenderNode(mStaticLayerNode);
+    }
+
+    private void drawStaticContent(Canvas canvas) {
+        drawHorizontalDividers(canvas);
+        if (mViewModel != null) {
+            drawVerticalDividers(canvas);
+        }
+    }
+
     @Override
     public boolean onTouchEvent(MotionEvent event) {
         // Caches the location to calculate selected trapezoid index.
@@ -353,9 +438,10 @@ public class BatteryChartView extends AppCompatImageView implements View.OnClick
         mTrapezoidPaint.setAntiAlias(true);
         mTrapezoidPaint.setColor(mTrapezoidSolidColor);
         mTrapezoidPaint.setStyle(Paint.Style.FILL);
-        mTrapezoidPaint.setPathEffect(
+        // The corner effect is baked into the cached trapezoid paths instead of the paint.
+        mTrapezoidCornerEffect =
                 new CornerPathEffect(
-                        resources.getDimensionPixelSize(R.dimen.chartview_trapezoid_radius)));
+                        resources.getDimensionPixelSize(R.dimen.chartview_trapezoid_radius));
         // Initializes for drawing text information.
         mTextPadding = resources.getDimensionPixelSize(R.dimen.chartview_text_padding);
         // Initializes the padding top for drawing text information.
@@ -438,7 +524,6 @@ public class BatteryChartView extends AppCompatImageView implements View.OnClick
         final float unitWidth = (width - dividerSpace) / (float) mTrapezoidSlots.length;
         final float bottomY = getHeight() - mIndent.bottom;
         final float startY = bottomY - mDividerHeight;
-        final float trapezoidSlotOffset = mTrapezoidHOffset + mDividerWidth * .5f;
         // Draws the axis label slot information.
         if (mViewModel != null) {
             final float baselineY = getHeight() - mTextPadding;
@@ -478,13 +563,23 @@ public class BatteryChartView extends AppCompatImageView implements View.OnClick
                 mDividerPaint.setColor(DIVIDER_COLOR);
             }
             canvas.drawLine(startX, startY, startX, dividerY, mDividerPaint);
+            startX += mDividerWidth + unitWidth;
+        }
+    }
+
+    /** Updates the trapezoid slots locations for drawing and touch handling. */
+    private void updateTrapezoidSlots() {
+        final int width = getWidth() - abs(mIndent.width());
+        final int dividerCount = mTrapezoidSlots.length + 1;
+        final float dividerSpace = dividerCount * mDividerWidth;
+        final float unitWidth = (width - dividerSpace) / (float) mTrapezoidSlots.length;
+        final float trapezoidSlotOffset = mTrapezoidHOffset + mDividerWidth * .5f;
+        float startX = mDividerWidth * .5f + mIndent.left;
+        for (int index = 0; index < mTrapezoidSlots.length; index++) {
             final float nextX = startX + mDividerWidth + unitWidth;
-            // Updates the trapezoid slots for drawing.
-            if (index < mTrapezoidSlots.length) {
-                final int trapezoidIndex = isRTL() ? mTrapezoidSlots.length - index - 1 : index;
-                mTrapezoidSlots[trapezoidIndex].mLeft = round(startX + trapezoidSlotOffset);
-                mTrapezoidSlots[trapezoidIndex].mRight = round(nextX - trapezoidSlotOffset);
-            }
+            final int trapezoidIndex = isRTL() ? mTrapezoidSlots.length - index - 1 : index;
+            mTrapezoidSlots[trapezoidIndex].mLeft = round(startX + trapezoidSlotOffset);
+            mTrapezoidSlots[trapezoidIndex].mRight = round(nextX - trapezoidSlotOffset);
             startX = nextX;
         }
     }
@@ -601,35 +696,22 @@ public class BatteryChartView extends AppCompatImageView implements View.OnClick
         mLabelDrawnIndexes.add(index);
     }
 
-    private void drawTrapezoids(Canvas canvas) {
-        // Ignores invalid trapezoid data.
-        if (mViewModel == null) {
-            return;
-        }
+    /** Precomputes the trapezoid shapes with the rounded corner effect already applied. */
+    private void updateTrapezoidPaths() {
         final float trapezoidBottom =
                 getHeight() - mIndent.bottom - mDividerHeight - mDividerWidth - mTrapezoidVOffset;
         final float availableSpace =
                 trapezoidBottom - mDividerWidth * .5f - mIndent.top - mTrapezoidVOffset;
         final float unitHeight = availableSpace / 100f;
-        // Draws all trapezoid shapes into the canvas.
+        final Paint effectPaint = new Paint(mTrapezoidPaint);
+        effectPaint.setPathEffect(mTrapezoidCornerEffect);
         final Path trapezoidPath = new Path();
-        Path trapezoidCurvePath = null;
+        mTrapezoidPaths = new Path[mTrapezoidSlots.length];
         for (int index = 0; index < mTrapezoidSlots.length; index++) {
             // Not draws the trapezoid for corner or not initialization cases.
             if (!isValidToDraw(mViewModel, index)) {
                 continue;
             }
-            // Configures the trapezoid paint color.
-            final int trapezoidColor =
-                    (mViewModel.selectedIndex() == index
-                                    || mViewModel.selectedIndex()
-                                            == BatteryChartViewModel.SELECTED_INDEX_ALL)
-                            ? mTrapezoidSolidColor
-                            : mTrapezoidColor;
-            final boolean isHoverState =
-                    mHoveredIndex == index && isValidToDraw(mViewModel, mHoveredIndex);
-            mTrapezoidPaint.setColor(isHoverState ? mTrapezoidHoverColor : trapezoidColor);
-
             float leftTop =
                     round(
                             trapezoidBottom
@@ -652,8 +734,32 @@ public class BatteryChartView extends AppCompatImageView implements View.OnClick
             // A tricky way to make the trapezoid shape drawing the rounded corner.
             trapezoidPath.lineTo(mTrapezoidSlots[index].mLeft, trapezoidBottom);
             trapezoidPath.lineTo(mTrapezoidSlots[index].mLeft, leftTop);
-            // Draws the trapezoid shape into canvas.
-            canvas.drawPath(trapezoidPath, mTrapezoidPaint);
+            mTrapezoidPaths[index] = new Path();
+            effectPaint.getFillPath(trapezoidPath, mTrapezoidPaths[index]);
+        }
+    }
+
+    private void drawTrapezoids(Canvas canvas) {
+        // Ignores invalid trapezoid data.
+        if (mViewModel == null || mTrapezoidPaths == null) {
+            return;
+        }
+        // Draws all cached trapezoid shapes into the canvas.
+        for (int index = 0; index < mTrapezoidPaths.length; index++) {
+            if (mTrapezoidPaths[index] == null) {
+                continue;
+            }
+            // Configures the trapezoid paint color.
+            final int trapezoidColor =
+                    (mViewModel.selectedIndex() == index
+                                    || mViewModel.selectedIndex()
+                                            == BatteryChartViewModel.SELECTED_INDEX_ALL)
+                            ? mTrapezoidSolidColor
+                            : mTrapezoidColor;
+            final boolean isHoverState =
+                    mHoveredIndex == index && isValidToDraw(mViewModel, mHoveredIndex);
+            mTrapezoidPaint.setColor(isHoverState ? mTrapezoidHoverColor : trapezoidColor);
+            canvas.drawPath(mTrapezoidPaths[index], mTrapezoidPaint);
         }
     }
 
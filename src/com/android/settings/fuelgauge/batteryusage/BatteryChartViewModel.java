@@ -134,6 +134,27 @@ class BatteryChartViewModel {
         mHighlightSlotIndex = index;
     }
 
+    /** Whether {@code other} draws the same levels and axis labels, ignoring the selection. */
+    public boolean hasSameContent(BatteryChartViewModel other) {
+        if (this == other) {
+            return true;
+        }
+        if (other == null
+                || !Objects.equals(mLevels, other.mLevels)
+                || !Objects.equals(mTimestamps, other.mTimestamps)
+                || mAxisLabelPosition != other.mAxisLabelPosition
+                || mLabelTextGenerator == null
+                || other.mLabelTextGenerator == null) {
+            return false;
+        }
+        for (int index = 0; index < size(); index++) {
+            if (!Objects.equals(getText(index), other.getText(index))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
     @Override
     public int hashCode() {
         return Objects.hash(mLevels, mTimestamps, mSelectedIndex, mAxisLabelPosition);
@@ -31,6 +31,7 @@ import androidx.annotation.GuardedBy;
 import androidx.annotation.VisibleForTesting;
 
 import com.android.settings.R;
+import com.android.settings.applications.AppIconLabelCache;
 import com.android.settings.fuelgauge.BatteryUtils;
 import com.android.settings.fuelgauge.batteryusage.BatteryEntry.NameAndIcon;
 import com.android.settingslib.utils.StringUtil;
@@ -473,8 +474,11 @@ public class BatteryDiffEntry {
                 final ApplicationInfo appInfo =
                         packageManager.getApplicationInfo(packageName, /*no flags*/ 0);
                 if (appInfo != null) {
-                    mAppLabel = packageManager.getApplicationLabel(appInfo).toString();
-                    mAppIcon = packageManager.getApplicationIcon(appInfo);
+                    // Shares the label and icon with the other app screens.
+                    final AppIconLabelCache cache = AppIconLabelCache.getInstance();
+                    final CharSequence appLabel = cache.getLabel(mContext, appInfo);
+                    mAppLabel = appLabel != null ? appLabel.toString() : null;
+                    mAppIcon = cache.getIcon(mContext, appInfo);
                 }
             } catch (NameNotFoundException e) {
                 Log.e(TAG, "failed to retrieve ApplicationInfo for: " + packageName);
@@ -17,22 +17,23 @@
 package com.android.settings.fuelgauge.batteryusage;
 
 import android.content.Context;
-import android.os.BatteryStatsManager;
 import android.os.BatteryUsageStats;
 import android.os.BatteryUsageStatsQuery;
-import android.util.Log;
 
+import com.android.settings.fuelgauge.BatteryUsageStatsCache;
 import com.android.settingslib.utils.AsyncLoaderCompat;
 
-/** Loader to get new {@link BatteryUsageStats} in the background */
+/**
+ * Loader to get {@link BatteryUsageStats} in the background. The result is shared through
+ * {@link BatteryUsageStatsCache} and owned by the loader, which releases it once it is replaced
+ * or the loader is reset. Consumers must neither close nor release it, and must
+ * {@link BatteryUsageStatsCache#retain} it to keep using it beyond that point.
+ */
 public class BatteryUsageStatsLoader extends AsyncLoaderCompat<BatteryUsageStats> {
-    private static final String TAG = "BatteryUsageStatsLoader";
-    private final BatteryStatsManager mBatteryStatsManager;
     private final boolean mIncludeBatteryHistory;
 
     public BatteryUsageStatsLoader(Context context, boolean includeBatteryHistory) {
         super(context);
-        mBatteryStatsManager = context.getSystemService(BatteryStatsManager.class);
         mIncludeBatteryHistory = includeBatteryHistory;
     }
 
@@ -42,16 +43,12 @@ public class BatteryUsageStatsLoader extends AsyncLoaderCompat<BatteryUsageStats
         if (mIncludeBatteryHistory) {
             builder.includeBatteryHistory();
         }
-        try {
-            return mBatteryStatsManager.getBatteryUsageStats(
-                    builder.includeProcessStateData().build());
-        } catch (RuntimeException e) {
-            Log.e(TAG, "loadInBackground() for getBatteryUsageStats()", e);
-            // Use default BatteryUsageStats.
-            return new BatteryUsageStats.Builder(new String[0]).build();
-        }
+        return BatteryUsageStatsCache.getInstance()
+                .acquire(getContext(), builder.includeProcessStateData().build());
     }
 
     @Override
-    protected void onDiscardResult(BatteryUsageStats result) {}
+    protected void onDiscardResult(BatteryUsageStats result) {
+        BatteryUsageStatsCache.getInstance().release(result);
+    }
 }
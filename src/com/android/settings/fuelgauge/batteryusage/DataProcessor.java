@@ -30,7 +30,6 @@ import android.content.Intent;
 import android.content.pm.PackageManager;
 import android.content.pm.UserInfo;
 import android.os.BatteryConsumer;
-import android.os.BatteryStatsManager;
 import android.os.BatteryUsageStats;
 import android.os.BatteryUsageStatsQuery;
 import android.os.Process;
@@ -53,6 +52,7 @@ import androidx.annotation.Nullable;
 import com.android.internal.annotations.VisibleForTesting;
 import com.android.internal.os.PowerProfile;
 import com.android.settings.Utils;
+import com.android.settings.fuelgauge.BatteryUsageStatsCache;
 import com.android.settings.fuelgauge.BatteryUtils;
 import com.android.settings.overlay.FeatureFactory;
 import com.android.settingslib.fuelgauge.BatteryStatus;
@@ -169,7 +169,10 @@ public final class DataProcessor {
                         batteryLevelData);
     }
 
-    /** Gets the {@link BatteryUsageStats} from system service. */
+    /**
+     * Gets the {@link BatteryUsageStats} from the shared {@link BatteryUsageStatsCache}, which
+     * must be handed back with {@link #closeBatteryUsageStats}.
+     */
     @Nullable
     public static BatteryUsageStats getBatteryUsageStats(final Context context) {
         final BatteryUsageStatsQuery batteryUsageStatsQuery =
@@ -177,8 +180,7 @@ public final class DataProcessor {
                         .includeBatteryHistory()
                         .includeProcessStateData()
                         .build();
-        return context.getSystemService(BatteryStatsManager.class)
-                .getBatteryUsageStats(batteryUsageStatsQuery);
+        return BatteryUsageStatsCache.getInstance().acquire(context, batteryUsageStatsQuery);
     }
 
     /** Gets the {@link UsageEvents} from system service for all unlocked users. */
@@ -236,15 +238,9 @@ public final class DataProcessor {
         return events;
     }
 
-    /** Closes the {@link BatteryUsageStats} after using it. */
+    /** Releases the {@link BatteryUsageStats} from {@link #getBatteryUsageStats} after using it. */
     public static void closeBatteryUsageStats(BatteryUsageStats batteryUsageStats) {
-        if (batteryUsageStats != null) {
-            try {
-                batteryUsageStats.close();
-            } catch (Exception e) {
-                Log.e(TAG, "BatteryUsageStats.close() failed", e);
-            }
-        }
+        BatteryUsageStatsCache.getInstance().release(batteryUsageStats);
     }
 
     /**
@@ -1701,8 +1697,9 @@ public final class DataProcessor {
         final UserManager userManager = context.getSystemService(UserManager.class);
         final SparseArray<BatteryEntry> batteryEntryList = new SparseArray<>();
         final ArrayList<BatteryEntry> results = new ArrayList<>();
+        // Copies the list since the snapshot may be shared with other consumers.
         final List<UidBatteryConsumer> uidBatteryConsumers =
-                batteryUsageStats.getUidBatteryConsumers();
+                new ArrayList<>(batteryUsageStats.getUidBatteryConsumers());
 
         // Sort to have all apps with "real" UIDs first, followed by apps that are supposed
         // to be combined with the real ones.
@@ -22,7 +22,6 @@ import android.content.Context;
 import android.os.BatteryUsageStats;
 import android.os.Bundle;
 import android.os.UserManager;
-import android.util.Log;
 
 import androidx.annotation.IntDef;
 import androidx.annotation.NonNull;
@@ -32,6 +31,7 @@ import androidx.loader.content.Loader;
 
 import com.android.settings.dashboard.DashboardFragment;
 import com.android.settings.fuelgauge.BatteryBroadcastReceiver;
+import com.android.settings.fuelgauge.BatteryUsageStatsCache;
 
 import java.lang.annotation.Retention;
 import java.lang.annotation.RetentionPolicy;
@@ -96,10 +96,13 @@ public abstract class PowerUsageBase extends DashboardFragment {
     public void onStop() {
         super.onStop();
         mBatteryBroadcastReceiver.unRegister();
-        closeBatteryUsageStatsIfNeeded();
     }
 
     protected void restartBatteryStatsLoader(int refreshType) {
+        if (refreshType != BatteryUpdateType.MANUAL) {
+            // The battery state changed, so the shared snapshot is outdated.
+            BatteryUsageStatsCache.getInstance().invalidate();
+        }
         final Bundle bundle = new Bundle();
         bundle.putInt(KEY_REFRESH_TYPE, refreshType);
         bundle.putBoolean(KEY_INCLUDE_HISTORY, false);
@@ -142,24 +145,13 @@ public abstract class PowerUsageBase extends DashboardFragment {
         @Override
         public void onLoadFinished(
                 Loader<BatteryUsageStats> loader, BatteryUsageStats batteryUsageStats) {
-            closeBatteryUsageStatsIfNeeded();
+            // Owned by the loader, which releases the previous result itself.
             mBatteryUsageStats = batteryUsageStats;
             PowerUsageBase.this.onLoadFinished(mRefreshType);
         }
 
         @Override
-        public void onLoaderReset(Loader<BatteryUsageStats> loader) {}
-    }
-
-    private void closeBatteryUsageStatsIfNeeded() {
-        if (mBatteryUsageStats == null) {
-            return;
-        }
-        try {
-            mBatteryUsageStats.close();
-        } catch (Exception e) {
-            Log.e(TAG, "BatteryUsageStats.close() failed", e);
-        } finally {
+        public void onLoaderReset(Loader<BatteryUsageStats> loader) {
             mBatteryUsageStats = null;
         }
     }
@@ -26,6 +26,7 @@ import android.content.Context;
 import android.content.Intent;
 import android.content.IntentFilter;
 import android.os.PersistableBundle;
+import android.os.SystemClock;
 import android.telephony.CarrierConfigManager;
 import android.telephony.SubscriptionManager;
 import android.util.Log;
@@ -35,10 +36,16 @@ import androidx.annotation.NonNull;
 import androidx.annotation.VisibleForTesting;
 
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * This is a singleton class for Carrier-Configuration cache.
+ *
+ * <p>Cached configurations are read without locking. A miss only waits for the fetch of its own
+ * subscription, and concurrent misses on the same subscription share one fetch.
  */
 public class CarrierConfigCache {
     private static final String TAG = "CarrConfCache";
@@ -65,6 +72,23 @@ public class CarrierConfigCache {
     @VisibleForTesting
     protected static CarrierConfigManager sCarrierConfigManager;
 
+    /**
+     * The partial Carrier-Configurations fetched by {@link #getConfigForSubId(int, String...)},
+     * replaced as a whole when more keys are fetched.
+     */
+    private static final Map<Integer, PersistableBundle> sPartialCarrierConfigs =
+            new ConcurrentHashMap<>();
+    // The full fetches in flight, by subscription ID.
+    private static final Map<Integer, CompletableFuture<PersistableBundle>> sPendingFetches =
+            new ConcurrentHashMap<>();
+    // Bumped on every invalidation, so a fetch started before it doesn't cache a stale config.
+    private static final AtomicInteger sGeneration = new AtomicInteger();
+
+    private static final AtomicLong sHitCount = new AtomicLong();
+    private static final AtomicLong sMissCount = new AtomicLong();
+    private static final AtomicLong sFetchCount = new AtomicLong();
+    private static final AtomicLong sFetchTimeMs = new AtomicLong();
+
     /**
      * Static method to create a singleton class for Carrier-Configuration cache.
      *
@@ -140,20 +164,135 @@ public class CarrierConfigCache {
     public PersistableBundle getConfigForSubId(int subId) {
         if (sCarrierConfigManager == null) return null;
 
-        synchronized (sCarrierConfigs) {
-            if (sCarrierConfigs.containsKey(subId)) {
-                return sCarrierConfigs.get(subId);
-            }
-            final PersistableBundle config = sCarrierConfigManager.getConfigForSubId(subId);
+        PersistableBundle config = sCarrierConfigs.get(subId);
+        if (config != null) {
+            sHitCount.incrementAndGet();
+            return config;
+        }
+        sMissCount.incrementAndGet();
+
+        final CompletableFuture<PersistableBundle> fetch = new CompletableFuture<>();
+        final CompletableFuture<PersistableBundle> pendingFetch =
+                sPendingFetches.putIfAbsent(subId, fetch);
+        if (pendingFetch != null) {
+            // Another thread is already fetching this subscription, wait for its result.
+            return pendingFetch.join();
+        }
+        try {
+            // The previous fetch may have completed in between.
+            config = sCarrierConfigs.get(subId);
             if (config == null) {
-                Log.e(TAG, "Could not get carrier config, subId:" + subId);
-                return null;
+                final int generation = sGeneration.get();
+                config = fetchConfig(subId);
+                if (config == null) {
+                    Log.e(TAG, "Could not get carrier config, subId:" + subId);
+                } else {
+                    cacheUnlessInvalidated(sCarrierConfigs, subId, config, generation);
+                }
             }
-            sCarrierConfigs.put(subId, config);
+            fetch.complete(config);
             return config;
+        } catch (RuntimeException e) {
+            fetch.completeExceptionally(e);
+            throw e;
+        } finally {
+            sPendingFetches.remove(subId, fetch);
         }
     }
 
+    /**
+     * Gets the values of {@code keys} of the Carrier-Configuration for a particular subscription,
+     * which is cheaper than the whole configuration when only a few keys are needed.
+     *
+     * <p>The returned bundle contains at least {@code keys}, and is the whole configuration if it
+     * is already cached.
+     *
+     * @param subId the subscription ID, normally obtained from {@link SubscriptionManager}.
+     * @param keys the Carrier-Configuration keys to get.
+     * @return A {@link PersistableBundle} containing the values of the keys for the given subId.
+     */
+    public PersistableBundle getConfigForSubId(int subId, @NonNull String... keys) {
+        if (sCarrierConfigManager == null) return null;
+
+        final PersistableBundle config = sCarrierConfigs.get(subId);
+        if (config != null) {
+            sHitCount.incrementAndGet();
+            return config;
+        }
+        final PersistableBundle partialConfig = sPartialCarrierConfigs.get(subId);
+        if (partialConfig != null && containsAllKeys(partialConfig, keys)) {
+            sHitCount.incrementAndGet();
+            return partialConfig;
+        }
+        sMissCount.incrementAndGet();
+
+        final int generation = sGeneration.get();
+        final long startTimeMs = SystemClock.elapsedRealtime();
+        final PersistableBundle fetchedConfig =
+                sCarrierConfigManager.getConfigForSubId(subId, keys);
+        recordFetch(startTimeMs);
+        if (fetchedConfig == null) {
+            Log.e(TAG, "Could not get carrier config keys, subId:" + subId);
+            return null;
+        }
+        // Merges into a new bundle, the cached ones are never modified once published.
+        final PersistableBundle mergedConfig = partialConfig != null
+                ? new PersistableBundle(partialConfig) : new PersistableBundle();
+        mergedConfig.putAll(fetchedConfig);
+        cacheUnlessInvalidated(sPartialCarrierConfigs, subId, mergedConfig, generation);
+        return mergedConfig;
+    }
+
+    /** Returns the number of configuration requests answered from the cache. */
+    public long getHitCount() {
+        return sHitCount.get();
+    }
+
+    /** Returns the number of configuration requests that had to fetch from the system. */
+    public long getMissCount() {
+        return sMissCount.get();
+    }
+
+    /** Returns the average time in milliseconds of a fetch from the system, or 0 if none. */
+    public long getAverageFetchLatencyMs() {
+        final long fetchCount = sFetchCount.get();
+        return fetchCount == 0 ? 0 : sFetchTimeMs.get() / fetchCount;
+    }
+
+    private static PersistableBundle fetchConfig(int subId) {
+        final long startTimeMs = SystemClock.elapsedRealtime();
+        final PersistableBundle config = sCarrierConfigManager.getConfigForSubId(subId);
+        recordFetch(startTimeMs);
+        return config;
+    }
+
+    /**
+     * Caches {@code config} fetched at {@code generation}, or drops it again if an invalidation
+     * happened since. Checking the generation before the put would race with an invalidation
+     * landing in between, whose removal would then be undone by the put.
+     */
+    private static void cacheUnlessInvalidated(Map<Integer, PersistableBundle> configs,
+            int subId, PersistableBundle config, int generation) {
+        configs.put(subId, config);
+        if (generation != sGeneration.get()) {
+            configs.remove(subId, config);
+        }
+    }
+
+    private static void recordFetch(long startTimeMs) {
+        sFetchCount.incrementAndGet();
+        sFetchTimeMs.addAndGet(SystemClock.elapsedRealtime() - startTimeMs);
+    }
+
+    private static boolean containsAllKeys(PersistableBundle config, String[] keys) {
+        for (String key : keys) {
+            if (!config.containsKey(key)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
     /**
      * Gets the Carrier-Configuration for the default subscription.
      *
@@ -171,12 +310,13 @@ public class CarrierConfigCache {
             if (!ACTION_CARRIER_CONFIG_CHANGED.equals(intent.getAction())) return;
 
             final int subId = intent.getIntExtra(EXTRA_SUBSCRIPTION_INDEX, INVALID_SUBSCRIPTION_ID);
-            synchronized (sCarrierConfigs) {
-                if (SubscriptionManager.isValidSubscriptionId(subId)) {
-                    sCarrierConfigs.remove(subId);
-                } else {
-                    sCarrierConfigs.clear();
-                }
+            sGeneration.incrementAndGet();
+            if (SubscriptionManager.isValidSubscriptionId(subId)) {
+                sCarrierConfigs.remove(subId);
+                sPartialCarrierConfigs.remove(subId);
+            } else {
+                sCarrierConfigs.clear();
+                sPartialCarrierConfigs.clear();
             }
         }
     }
@@ -40,6 +40,7 @@ import androidx.preference.Preference;
 import androidx.preference.PreferenceScreen;
 
 import com.android.settings.R;
+import com.android.settings.datausage.lib.DataUsagePrefetcher;
 import com.android.settings.widget.SummaryUpdater;
 import com.android.settings.wifi.WifiPickerTrackerHelper;
 import com.android.settings.wifi.WifiSummaryUpdater;
@@ -197,6 +198,7 @@ public class InternetPreferenceController extends AbstractPreferenceController i
         mSummaryHelper.register(true);
         mDataSubscriptionChangedReceiver.registerReceiver();
         mDefaultDataSubId = SubscriptionManager.getDefaultDataSubscriptionId();
+        DataUsagePrefetcher.prefetch(mContext);
     }
 
     /** @OnLifecycleEvent(ON_PAUSE) */
@@ -18,6 +18,9 @@ package com.android.settings.network;
 import static android.telephony.SubscriptionManager.PROFILE_CLASS_PROVISIONING;
 import static android.telephony.UiccSlotInfo.CARD_STATE_INFO_PRESENT;
 
+import static com.android.settings.network.SubscriptionTaskExecutor.PRIORITY_HIGH;
+import static com.android.settings.network.SubscriptionTaskExecutor.PRIORITY_NORMAL;
+
 import android.app.settings.SettingsEnums;
 import android.content.Context;
 import android.database.ContentObserver;
@@ -33,6 +36,7 @@ import android.telephony.UiccCardInfo;
 import android.telephony.UiccPortInfo;
 import android.telephony.UiccSlotInfo;
 import android.util.ArrayMap;
+import android.util.ArraySet;
 import android.util.IndentingPrintWriter;
 import android.util.Log;
 
@@ -54,13 +58,11 @@ import com.android.settingslib.mobile.dataservice.UiccInfoEntity;
 
 import java.util.ArrayList;
 import java.util.Collection;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CopyOnWriteArrayList;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
 import java.util.stream.Collectors;
 
 public class MobileNetworkRepository extends SubscriptionManager.OnSubscriptionsChangedListener {
@@ -68,12 +70,20 @@ public class MobileNetworkRepository extends SubscriptionManager.OnSubscriptions
     private static final String TAG = "MobileNetworkRepository";
     private static final boolean DEBUG = Log.isLoggable(TAG, Log.DEBUG);
 
-    private static ExecutorService sExecutor = Executors.newSingleThreadExecutor();
+    // Keys of the tasks coalesced by sExecutor while they wait in the queue of a subscription.
+    private static final String TASK_SUBSCRIPTION_LIST = "subscriptionList";
+    private static final String TASK_SUB_INFO = "subInfo";
+    private static final String TASK_MOBILE_NETWORK_INFO = "mobileNetworkInfo";
+    private static final String TASK_DELETE = "delete";
+
+    private static SubscriptionTaskExecutor sExecutor = new SubscriptionTaskExecutor();
+    // The subscriptions are loaded in parallel, so the caches are accessed from several threads.
     private static Map<Integer, SubscriptionInfoEntity> sCacheSubscriptionInfoEntityMap =
-            new ArrayMap<>();
+            new ConcurrentHashMap<>();
     private static Map<Integer, MobileNetworkInfoEntity> sCacheMobileNetworkInfoEntityMap =
-            new ArrayMap<>();
-    private static Map<Integer, UiccInfoEntity> sCacheUiccInfoEntityMap = new ArrayMap<>();
+            new ConcurrentHashMap<>();
+    private static Map<Integer, UiccInfoEntity> sCacheUiccInfoEntityMap =
+            new ConcurrentHashMap<>();
     private static Collection<MobileNetworkCallback> sCallbacks = new CopyOnWriteArrayList<>();
     private static final Object sInstanceLock = new Object();
     @GuardedBy("sInstanceLock")
@@ -92,16 +102,9 @@ public class MobileNetworkRepository extends SubscriptionManager.OnSubscriptions
     private AirplaneModeObserver mAirplaneModeObserver;
     private DataRoamingObserver mDataRoamingObserver;
     private MetricsFeatureProvider mMetricsFeatureProvider;
-    private Map<Integer, MobileDataContentObserver> mDataContentObserverMap = new HashMap<>();
-    private int mPhysicalSlotIndex = SubscriptionManager.INVALID_SIM_SLOT_INDEX;
-    private int mLogicalSlotIndex = SubscriptionManager.INVALID_SIM_SLOT_INDEX;
-    private int mCardState = UiccSlotInfo.CARD_STATE_INFO_ABSENT;
-    private int mPortIndex = TelephonyManager.INVALID_PORT_INDEX;
-    private int mCardId = TelephonyManager.UNINITIALIZED_CARD_ID;
-    private boolean mIsEuicc = false;
-    private boolean mIsRemovable = false;
-    private boolean mIsActive = false;
-    private Map<Integer, SubscriptionInfo> mSubscriptionInfoMap = new ArrayMap<>();
+    private Map<Integer, MobileDataContentObserver> mDataContentObserverMap =
+            new ConcurrentHashMap<>();
+    private Map<Integer, SubscriptionInfo> mSubscriptionInfoMap = new ConcurrentHashMap<>();
     private ConcurrentHashMap<Integer, TelephonyManager> mTelephonyManagerMap =
             new ConcurrentHashMap<>();
     private ConcurrentHashMap<Integer, PhoneCallStateTelephonyCallback> mTelephonyCallbackMap =
@@ -192,8 +195,9 @@ public class MobileNetworkRepository extends SubscriptionManager.OnSubscriptions
             if (tm == null) {
                 return;
             }
-            sExecutor.execute(() -> {
-                insertMobileNetworkInfo(mContext, mRegSubId, tm);
+            final int subId = mRegSubId;
+            sExecutor.execute(subId, TASK_MOBILE_NETWORK_INFO, PRIORITY_NORMAL, () -> {
+                insertMobileNetworkInfo(mContext, subId, tm);
             });
             boolean isDataRoamingEnabled = tm.isDataRoamingEnabled();
             for (MobileNetworkCallback callback : sCallbacks) {
@@ -238,7 +242,7 @@ public class MobileNetworkRepository extends SubscriptionManager.OnSubscriptions
         MobileDataContentObserver dataContentObserver = new MobileDataContentObserver(
                 new Handler(Looper.getMainLooper()));
         dataContentObserver.setOnMobileDataChangedListener(() -> {
-            sExecutor.execute(() -> {
+            sExecutor.execute(subId, TASK_MOBILE_NETWORK_INFO, PRIORITY_NORMAL, () -> {
                 insertMobileNetworkInfo(mContext, subId,
                         getTelephonyManagerBySubId(mContext, subId));
             });
@@ -251,6 +255,11 @@ public class MobileNetworkRepository extends SubscriptionManager.OnSubscriptions
         if (subId == SubscriptionManager.INVALID_SUBSCRIPTION_ID) {
             return;
         }
+        if (mTelephonyCallbackMap.containsKey(subId) && mTelephonyManagerMap.containsKey(subId)) {
+            // Already listening, registering again on every subscription change would leak the
+            // previous callback.
+            return;
+        }
         PhoneCallStateTelephonyCallback
                 telephonyCallback = new PhoneCallStateTelephonyCallback();
         TelephonyManager telephonyManager = mContext.getSystemService(
@@ -281,19 +290,20 @@ public class MobileNetworkRepository extends SubscriptionManager.OnSubscriptions
     }
 
     private void removerRegisterBySubId(int subId) {
+        // Subscriptions are removed on their own task queues, so each entry is taken out of its
+        // map atomically and only unregistered by the thread that removed it.
         if (mTelephonyCallbackMap.containsKey(subId)) {
             TelephonyManager telephonyManager = getTelephonyManagerBySubId(mContext, subId);
             if (telephonyManager != null) {
-                PhoneCallStateTelephonyCallback callback = mTelephonyCallbackMap.get(subId);
+                PhoneCallStateTelephonyCallback callback = mTelephonyCallbackMap.remove(subId);
                 if (callback != null) {
                     telephonyManager.unregisterTelephonyCallback(callback);
-                    mTelephonyCallbackMap.remove(subId);
                 }
             }
         }
-        if (mDataContentObserverMap.containsKey(subId)) {
-            mDataContentObserverMap.get(subId).unRegister(mContext);
-            mDataContentObserverMap.remove(subId);
+        MobileDataContentObserver dataContentObserver = mDataContentObserverMap.remove(subId);
+        if (dataContentObserver != null) {
+            dataContentObserver.unRegister(mContext);
         }
     }
 
@@ -325,9 +335,7 @@ public class MobileNetworkRepository extends SubscriptionManager.OnSubscriptions
     public void updateEntity() {
         // Check the latest state after back to the UI.
         if (sCacheSubscriptionInfoEntityMap != null || !sCacheSubscriptionInfoEntityMap.isEmpty()) {
-            sExecutor.execute(() -> {
-                onSubscriptionsChanged();
-            });
+            onSubscriptionsChanged();
         }
 
         boolean isAirplaneModeOn = isAirplaneModeOn();
@@ -385,30 +393,30 @@ public class MobileNetworkRepository extends SubscriptionManager.OnSubscriptions
     }
 
     private void getUiccInfoBySubscriptionInfo(@NonNull UiccSlotInfo[] uiccSlotInfos,
-            SubscriptionInfo subInfo) {
+            SubscriptionInfo subInfo, UiccSlotState slotState) {
         for (int i = 0; i < uiccSlotInfos.length; i++) {
             UiccSlotInfo curSlotInfo = uiccSlotInfos[i];
             if (curSlotInfo != null && curSlotInfo.getCardStateInfo() == CARD_STATE_INFO_PRESENT) {
                 final int index = i;
-                mIsEuicc = curSlotInfo.getIsEuicc();
-                mCardState = curSlotInfo.getCardStateInfo();
-                mIsRemovable = curSlotInfo.isRemovable();
-                mCardId = subInfo.getCardId();
+                slotState.mIsEuicc = curSlotInfo.getIsEuicc();
+                slotState.mCardState = curSlotInfo.getCardStateInfo();
+                slotState.mIsRemovable = curSlotInfo.isRemovable();
+                slotState.mCardId = subInfo.getCardId();
 
                 Collection<UiccPortInfo> uiccPortInfos = curSlotInfo.getPorts();
                 uiccPortInfos.forEach(portInfo -> {
                     if (portInfo.getPortIndex() == subInfo.getPortIndex()
                             && portInfo.getLogicalSlotIndex() == subInfo.getSimSlotIndex()) {
-                        mPhysicalSlotIndex = index;
-                        mLogicalSlotIndex = portInfo.getLogicalSlotIndex();
-                        mIsActive = portInfo.isActive();
-                        mPortIndex = portInfo.getPortIndex();
+                        slotState.mPhysicalSlotIndex = index;
+                        slotState.mLogicalSlotIndex = portInfo.getLogicalSlotIndex();
+                        slotState.mIsActive = portInfo.isActive();
+                        slotState.mPortIndex = portInfo.getPortIndex();
                     } else if (DEBUG) {
                         Log.d(TAG, "Can not get port index and physicalSlotIndex for subId "
                                 + subInfo.getSubscriptionId());
                     }
                 });
-                if (mPhysicalSlotIndex != SubscriptionManager.INVALID_SIM_SLOT_INDEX) {
+                if (slotState.mPhysicalSlotIndex != SubscriptionManager.INVALID_SIM_SLOT_INDEX) {
                     break;
                 }
             } else if (DEBUG) {
@@ -486,7 +494,13 @@ public class MobileNetworkRepository extends SubscriptionManager.OnSubscriptions
     }
 
     private void onAllUiccInfoChanged(List<UiccInfoEntity> uiccInfoEntityList) {
-        mUiccInfoEntityList = new ArrayList<>(uiccInfoEntityList);
+        synchronized (this) {
+            if (mUiccInfoEntityList.equals(uiccInfoEntityList)) {
+                Log.d(TAG, "onAllUiccInfoChanged, duplicates = " + uiccInfoEntityList);
+                return;
+            }
+            mUiccInfoEntityList = new ArrayList<>(uiccInfoEntityList);
+        }
         for (MobileNetworkCallback callback : sCallbacks) {
             callback.onAllUiccInfoChanged(uiccInfoEntityList);
         }
@@ -496,7 +510,14 @@ public class MobileNetworkRepository extends SubscriptionManager.OnSubscriptions
 
     private void onAllMobileNetworkInfoChanged(
             List<MobileNetworkInfoEntity> mobileNetworkInfoEntityList) {
-        mMobileNetworkInfoEntityList = new ArrayList<>(mobileNetworkInfoEntityList);
+        synchronized (this) {
+            if (mMobileNetworkInfoEntityList.equals(mobileNetworkInfoEntityList)) {
+                Log.d(TAG, "onAllMobileNetworkInfoChanged, duplicates = "
+                        + mobileNetworkInfoEntityList);
+                return;
+            }
+            mMobileNetworkInfoEntityList = new ArrayList<>(mobileNetworkInfoEntityList);
+        }
         for (MobileNetworkCallback callback : sCallbacks) {
             callback.onAllMobileNetworkInfoChanged(mobileNetworkInfoEntityList);
         }
@@ -508,8 +529,9 @@ public class MobileNetworkRepository extends SubscriptionManager.OnSubscriptions
         int subId = info.getSubscriptionId();
         createTelephonyManagerBySubId(subId);
         TelephonyManager telephonyManager = getTelephonyManagerBySubId(context, subId);
+        UiccSlotState slotState = new UiccSlotState();
         SubscriptionInfoEntity subInfoEntity =
-                convertToSubscriptionInfoEntity(context, info, telephonyManager);
+                convertToSubscriptionInfoEntity(context, info, telephonyManager, slotState);
         if (subInfoEntity != null) {
             if (!sCacheSubscriptionInfoEntityMap.containsKey(subId)
                     || (sCacheSubscriptionInfoEntityMap.get(subId) != null
@@ -519,11 +541,19 @@ public class MobileNetworkRepository extends SubscriptionManager.OnSubscriptions
                     Log.d(TAG, "Convert subId " + subId + " to SubscriptionInfoEntity: "
                             + subInfoEntity);
                 }
-                mMobileNetworkDatabase.insertSubsInfo(subInfoEntity);
+                // Query the telephony state first, then write all the rows of the subscription in
+                // one transaction so that the observers of the database are notified once.
+                UiccInfoEntity uiccInfoEntity =
+                        convertToUiccInfoEntity(subId, telephonyManager, slotState);
+                MobileNetworkInfoEntity mobileNetworkInfoEntity =
+                        convertToMobileNetworkInfoEntity(context, subId, telephonyManager);
+                mMobileNetworkDatabase.runInTransaction(() -> {
+                    mMobileNetworkDatabase.insertSubsInfo(subInfoEntity);
+                    insertUiccInfo(subId, uiccInfoEntity);
+                    insertMobileNetworkInfo(subId, mobileNetworkInfoEntity);
+                });
                 mMetricsFeatureProvider.action(mContext,
                         SettingsEnums.ACTION_MOBILE_NETWORK_DB_INSERT_SUB_INFO, subId);
-                insertUiccInfo(subId, telephonyManager);
-                insertMobileNetworkInfo(context, subId, telephonyManager);
             }
         } else if (DEBUG) {
             Log.d(TAG, "Can not insert subInfo, the entity is null");
@@ -534,14 +564,23 @@ public class MobileNetworkRepository extends SubscriptionManager.OnSubscriptions
         if (DEBUG) {
             Log.d(TAG, "deleteAllInfoBySubId, subId = " + subId);
         }
-        mMobileNetworkDatabase.deleteSubInfoBySubId(subId);
-        mMobileNetworkDatabase.deleteUiccInfoBySubId(subId);
-        mMobileNetworkDatabase.deleteMobileNetworkInfoBySubId(subId);
-        mUiccInfoEntityList.removeIf(info -> info.subId.equals(subId));
-        mMobileNetworkInfoEntityList.removeIf(info -> info.subId.equals(subId));
+        mMobileNetworkDatabase.runInTransaction(() -> {
+            mMobileNetworkDatabase.deleteSubInfoBySubId(subId);
+            mMobileNetworkDatabase.deleteUiccInfoBySubId(subId);
+            mMobileNetworkDatabase.deleteMobileNetworkInfoBySubId(subId);
+        });
+        // Copied, not changed in place, since the lists are handed out to the callers.
+        synchronized (this) {
+            final List<UiccInfoEntity> uiccInfoEntityList = new ArrayList<>(mUiccInfoEntityList);
+            uiccInfoEntityList.removeIf(info -> info.subId.equals(subId));
+            mUiccInfoEntityList = uiccInfoEntityList;
+            final List<MobileNetworkInfoEntity> mobileNetworkInfoEntityList =
+                    new ArrayList<>(mMobileNetworkInfoEntityList);
+            mobileNetworkInfoEntityList.removeIf(info -> info.subId.equals(subId));
+            mMobileNetworkInfoEntityList = mobileNetworkInfoEntityList;
+        }
         int id = Integer.parseInt(subId);
         removerRegisterBySubId(id);
-        mSubscriptionInfoMap.remove(id);
         mTelephonyManagerMap.remove(id);
         sCacheSubscriptionInfoEntityMap.remove(id);
         sCacheUiccInfoEntityMap.remove(id);
@@ -551,7 +590,8 @@ public class MobileNetworkRepository extends SubscriptionManager.OnSubscriptions
     }
 
     private SubscriptionInfoEntity convertToSubscriptionInfoEntity(Context context,
-            SubscriptionInfo subInfo, TelephonyManager telephonyManager) {
+            SubscriptionInfo subInfo, TelephonyManager telephonyManager,
+            UiccSlotState slotState) {
         int subId = subInfo.getSubscriptionId();
         if (telephonyManager == null) {
             if (DEBUG) {
@@ -566,7 +606,7 @@ public class MobileNetworkRepository extends SubscriptionManager.OnSubscriptions
             }
             return null;
         } else {
-            getUiccInfoBySubscriptionInfo(uiccSlotInfos, subInfo);
+            getUiccInfoBySubscriptionInfo(uiccSlotInfos, subInfo, slotState);
             SubscriptionInfo firstRemovableSubInfo = SubscriptionUtil.getFirstRemovableSubscription(
                     context);
             if (DEBUG) {
@@ -577,7 +617,7 @@ public class MobileNetworkRepository extends SubscriptionManager.OnSubscriptions
                     subInfo.getCarrierId(), subInfo.getDisplayName().toString(),
                     subInfo.getCarrierName() != null ? subInfo.getCarrierName().toString() : "",
                     subInfo.getDataRoaming(), subInfo.getMccString(), subInfo.getMncString(),
-                    subInfo.getCountryIso(), subInfo.isEmbedded(), mCardId,
+                    subInfo.getCountryIso(), subInfo.isEmbedded(), slotState.mCardId,
                     subInfo.getPortIndex(), subInfo.isOpportunistic(),
                     String.valueOf(subInfo.getGroupUuid()),
                     subInfo.getSubscriptionType(),
@@ -595,8 +635,7 @@ public class MobileNetworkRepository extends SubscriptionManager.OnSubscriptions
         }
     }
 
-    private void insertUiccInfo(int subId, TelephonyManager telephonyManager) {
-        UiccInfoEntity uiccInfoEntity = convertToUiccInfoEntity(subId, telephonyManager);
+    private void insertUiccInfo(int subId, UiccInfoEntity uiccInfoEntity) {
         if (DEBUG) {
             Log.d(TAG, "uiccInfoEntity = " + uiccInfoEntity);
         }
@@ -611,9 +650,16 @@ public class MobileNetworkRepository extends SubscriptionManager.OnSubscriptions
 
     private void insertMobileNetworkInfo(Context context, int subId,
             TelephonyManager telephonyManager) {
-        MobileNetworkInfoEntity mobileNetworkInfoEntity = convertToMobileNetworkInfoEntity(context,
-                subId, telephonyManager);
+        if (!sCacheSubscriptionInfoEntityMap.containsKey(subId)) {
+            // Not inserted yet or already deleted, the insertion of the subscription writes it.
+            return;
+        }
+        insertMobileNetworkInfo(subId,
+                convertToMobileNetworkInfoEntity(context, subId, telephonyManager));
+    }
 
+    private void insertMobileNetworkInfo(int subId,
+            MobileNetworkInfoEntity mobileNetworkInfoEntity) {
         if (DEBUG) {
             Log.d(TAG, "insertMobileNetworkInfo, mobileNetworkInfoEntity = "
                     + mobileNetworkInfoEntity);
@@ -658,11 +704,13 @@ public class MobileNetworkRepository extends SubscriptionManager.OnSubscriptions
         );
     }
 
-    private UiccInfoEntity convertToUiccInfoEntity(int subId, TelephonyManager telephonyManager) {
-        return new UiccInfoEntity(String.valueOf(subId), String.valueOf(mPhysicalSlotIndex),
-                mLogicalSlotIndex, mCardId, mIsEuicc,
-                isMultipleEnabledProfilesSupported(telephonyManager), mCardState, mIsRemovable,
-                mIsActive, mPortIndex
+    private UiccInfoEntity convertToUiccInfoEntity(int subId, TelephonyManager telephonyManager,
+            UiccSlotState slotState) {
+        return new UiccInfoEntity(String.valueOf(subId),
+                String.valueOf(slotState.mPhysicalSlotIndex), slotState.mLogicalSlotIndex,
+                slotState.mCardId, slotState.mIsEuicc,
+                isMultipleEnabledProfilesSupported(telephonyManager), slotState.mCardState,
+                slotState.mIsRemovable, slotState.mIsActive, slotState.mPortIndex
         );
     }
 
@@ -687,76 +735,74 @@ public class MobileNetworkRepository extends SubscriptionManager.OnSubscriptions
 
     @Override
     public void onSubscriptionsChanged() {
-        insertAvailableSubInfoToEntity(
-                SubscriptionUtil.getSelectableSubscriptionInfoList(mContext));
+        SubscriptionUtil.invalidateUniqueSubscriptionDisplayNames();
+        // The list is read when the task runs, so a burst of changes is served by one read.
+        sExecutor.execute(SubscriptionManager.INVALID_SUBSCRIPTION_ID, TASK_SUBSCRIPTION_LIST,
+                PRIORITY_HIGH, () -> insertAvailableSubInfoToEntity(
+                        SubscriptionUtil.getSelectableSubscriptionInfoList(mContext)));
     }
 
     private void insertAvailableSubInfoToEntity(List<SubscriptionInfo> inputAvailableInfoList) {
-        sExecutor.execute(() -> {
-            SubscriptionInfoEntity[] availableInfoArray = null;
-            int availableEntitySize = 0;
-            synchronized (this) {
-                availableInfoArray = mAvailableSubInfoEntityList.toArray(
-                    new SubscriptionInfoEntity[0]);
-                availableEntitySize = mAvailableSubInfoEntityList.size();
-            }
-            if ((inputAvailableInfoList == null || inputAvailableInfoList.size() == 0)
-                    && availableEntitySize != 0) {
-                if (DEBUG) {
-                    Log.d(TAG, "availableSudInfoList from framework is empty, remove all subs");
+        // The subscriptions to keep in the database, without the provisioning and satellite eSIMs.
+        Map<Integer, SubscriptionInfo> availableInfoMap = new ArrayMap<>();
+        if (inputAvailableInfoList != null) {
+            for (SubscriptionInfo subInfo : inputAvailableInfoList) {
+                if (subInfo.isEmbedded()
+                    && (subInfo.getProfileClass() == PROFILE_CLASS_PROVISIONING
+                        || (Flags.oemEnabledSatelliteFlag()
+                        && subInfo.isOnlyNonTerrestrialNetwork()))) {
+                    if (DEBUG) {
+                        Log.d(TAG, "Do not insert the provisioning or satellite eSIM");
+                    }
+                    continue;
                 }
+                availableInfoMap.put(subInfo.getSubscriptionId(), subInfo);
+            }
+        }
 
-                for (SubscriptionInfoEntity info : availableInfoArray) {
-                    deleteAllInfoBySubId(info.subId);
-                }
+        // Diff the new list from framework with the subscriptions already stored: only the ones
+        // which are gone are deleted, the others are compared with their cached entities and
+        // rewritten only if they changed.
+        Set<Integer> storedSubIds = new ArraySet<>(sCacheSubscriptionInfoEntityMap.keySet());
+        storedSubIds.addAll(mSubscriptionInfoMap.keySet());
+        synchronized (this) {
+            for (SubscriptionInfoEntity info : mAvailableSubInfoEntityList) {
+                storedSubIds.add(Integer.parseInt(info.subId));
+            }
+        }
+        for (int subId : storedSubIds) {
+            if (!availableInfoMap.containsKey(subId)) {
+                scheduleDeleteAllInfoBySubId(subId);
+            }
+        }
 
-            } else if (inputAvailableInfoList != null) {
-                SubscriptionInfo[] inputAvailableInfoArray = inputAvailableInfoList.toArray(
-                        new SubscriptionInfo[0]);
-                // Remove the redundant subInfo
-                if (inputAvailableInfoList.size() <= availableEntitySize) {
-                    for (SubscriptionInfo subInfo : inputAvailableInfoArray) {
-                        int subId = subInfo.getSubscriptionId();
-                        if (mSubscriptionInfoMap.containsKey(subId)) {
-                            mSubscriptionInfoMap.remove(subId);
-                        }
-                    }
+        for (SubscriptionInfo subInfo : availableInfoMap.values()) {
+            if (DEBUG) {
+                Log.d(TAG, "insert subInfo to subInfoEntity, subInfo = " + subInfo);
+            }
+            mSubscriptionInfoMap.put(subInfo.getSubscriptionId(), subInfo);
+            scheduleInsertSubInfo(subInfo.getSubscriptionId());
+        }
+    }
 
-                    if (!mSubscriptionInfoMap.isEmpty()) {
-                        for (Integer key : mSubscriptionInfoMap.keySet()) {
-                            if (key != null) {
-                                deleteAllInfoBySubId(String.valueOf(key));
-                            }
-                        }
-                    } else if (inputAvailableInfoList.size() < availableEntitySize) {
-                        // Check the subInfo between the new list from framework and old list in
-                        // the database, if the subInfo is not existed in the new list, delete it
-                        // from the database.
-                        for (SubscriptionInfoEntity info : availableInfoArray) {
-                            if (sCacheSubscriptionInfoEntityMap.containsKey(info.getSubId())) {
-                                deleteAllInfoBySubId(info.subId);
-                            }
-                        }
-                    }
-                }
+    private void scheduleInsertSubInfo(int subId) {
+        sExecutor.execute(subId, TASK_SUB_INFO, PRIORITY_HIGH, () -> {
+            // Coalesced requests are served by the latest info of the subscription.
+            SubscriptionInfo info = mSubscriptionInfoMap.get(subId);
+            if (info != null) {
+                insertSubInfo(mContext, info);
+            }
+        });
+    }
 
-                // Insert all new available subInfo to database.
-                for (SubscriptionInfo subInfo : inputAvailableInfoArray) {
-                    if (DEBUG) {
-                        Log.d(TAG, "insert subInfo to subInfoEntity, subInfo = " + subInfo);
-                    }
-                    if (subInfo.isEmbedded()
-                        && (subInfo.getProfileClass() == PROFILE_CLASS_PROVISIONING
-                            || (Flags.oemEnabledSatelliteFlag()
-                            && subInfo.isOnlyNonTerrestrialNetwork()))) {
-                        if (DEBUG) {
-                            Log.d(TAG, "Do not insert the provisioning or satellite eSIM");
-                        }
-                        continue;
-                    }
-                    mSubscriptionInfoMap.put(subInfo.getSubscriptionId(), subInfo);
-                    insertSubInfo(mContext, subInfo);
-                }
+    private void scheduleDeleteAllInfoBySubId(int subId) {
+        // Forget the subscription right away, so an insertion still waiting in its queue doesn't
+        // write it back.
+        mSubscriptionInfoMap.remove(subId);
+        sExecutor.execute(subId, TASK_DELETE, PRIORITY_HIGH, () -> {
+            // The subscription came back while the deletion was waiting, keep it.
+            if (!mSubscriptionInfoMap.containsKey(subId)) {
+                deleteAllInfoBySubId(String.valueOf(subId));
             }
         });
     }
@@ -766,6 +812,18 @@ public class MobileNetworkRepository extends SubscriptionManager.OnSubscriptions
                 Settings.Global.AIRPLANE_MODE_ON, 0) != 0;
     }
 
+    /** The UICC slot of a subscription, resolved while converting its {@link SubscriptionInfo}. */
+    private static class UiccSlotState {
+        int mPhysicalSlotIndex = SubscriptionManager.INVALID_SIM_SLOT_INDEX;
+        int mLogicalSlotIndex = SubscriptionManager.INVALID_SIM_SLOT_INDEX;
+        int mCardState = UiccSlotInfo.CARD_STATE_INFO_ABSENT;
+        int mPortIndex = TelephonyManager.INVALID_PORT_INDEX;
+        int mCardId = TelephonyManager.UNINITIALIZED_CARD_ID;
+        boolean mIsEuicc = false;
+        boolean mIsRemovable = false;
+        boolean mIsActive = false;
+    }
+
     private class PhoneCallStateTelephonyCallback extends TelephonyCallback implements
             TelephonyCallback.CallStateListener {
 
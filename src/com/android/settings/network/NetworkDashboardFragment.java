@@ -25,6 +25,7 @@ import com.android.settings.R;
 import com.android.settings.SettingsDumpService;
 import com.android.settings.core.OnActivityResultListener;
 import com.android.settings.dashboard.DashboardFragment;
+import com.android.settings.datausage.lib.DataUsagePrefetcher;
 import com.android.settings.search.BaseSearchIndexProvider;
 import com.android.settingslib.core.AbstractPreferenceController;
 import com.android.settingslib.core.lifecycle.Lifecycle;
@@ -60,6 +61,8 @@ public class NetworkDashboardFragment extends DashboardFragment implements
 
         use(AirplaneModePreferenceController.class).setFragment(this);
         use(NetworkProviderCallsSmsController.class).init(this);
+        // Data usage is likely opened from here, have its numbers ready.
+        DataUsagePrefetcher.prefetch(context);
     }
 
     @Override
@@ -33,12 +33,14 @@ import android.net.wifi.WifiConfiguration;
 import android.net.wifi.WifiManager;
 import android.os.Bundle;
 import android.os.PowerManager;
+import android.os.SystemClock;
 import android.os.UserHandle;
 import android.os.UserManager;
 import android.provider.Settings;
 import android.telephony.SubscriptionManager;
 import android.telephony.TelephonyManager;
 import android.text.TextUtils;
+import android.util.ArrayMap;
 import android.util.EventLog;
 import android.util.Log;
 import android.view.ContextMenu;
@@ -59,6 +61,7 @@ import androidx.core.view.MenuProvider;
 import androidx.fragment.app.Fragment;
 import androidx.preference.Preference;
 import androidx.preference.PreferenceCategory;
+import androidx.preference.PreferenceGroup;
 import androidx.preference.PreferenceScreen;
 import androidx.recyclerview.widget.RecyclerView;
 
@@ -103,6 +106,7 @@ import com.google.android.setupcompat.util.WizardManagerHelper;
 import com.google.android.setupdesign.GlifPreferenceLayout;
 
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 /**
@@ -157,6 +161,10 @@ public class NetworkProviderSettings extends RestrictedSettingsFragment
 
     private static final int REQUEST_CODE_WIFI_DPP_ENROLLEE_QR_CODE_SCANNER = 0;
 
+    // Scan results come in bursts, the Wi-Fi entry list is rebuilt for them at most this often.
+    @VisibleForTesting
+    static final long WIFI_ENTRIES_UPDATE_THROTTLE_MS = 500L;
+
     public static final int WIFI_DIALOG_ID = 1;
 
     // Instance state keys
@@ -204,6 +212,11 @@ public class NetworkProviderSettings extends RestrictedSettingsFragment
         }
     };
     @VisibleForTesting
+    final Runnable mThrottledUpdateWifiEntryPreferencesRunnable = () -> {
+        updateWifiEntryPreferences();
+    };
+    private long mLastWifiEntryPreferencesUpdateMs;
+    @VisibleForTesting
     final Runnable mHideProgressBarRunnable = () -> {
         setProgressBarVisible(false);
     };
@@ -590,6 +603,7 @@ public class NetworkProviderSettings extends RestrictedSettingsFragment
     public void onStop() {
         getView().removeCallbacks(mRemoveLoadingRunnable);
         getView().removeCallbacks(mUpdateWifiEntryPreferencesRunnable);
+        getView().removeCallbacks(mThrottledUpdateWifiEntryPreferencesRunnable);
         getView().removeCallbacks(mHideProgressBarRunnable);
         mAirplaneModeEnabler.stop();
         mDataStateListener.stop();
@@ -966,9 +980,11 @@ public class NetworkProviderSettings extends RestrictedSettingsFragment
 
     @Override
     public void onWifiEntriesChanged(@WifiPickerTracker.WifiEntriesChangedReason int reason) {
-        updateWifiEntryPreferences();
         if (reason == WifiPickerTracker.WIFI_ENTRIES_CHANGED_REASON_SCAN_RESULTS) {
+            updateWifiEntryPreferencesThrottled();
             setProgressBarVisible(false);
+        } else {
+            updateWifiEntryPreferences();
         }
         changeNextButtonState(mWifiPickerTracker != null
                 && mWifiPickerTracker.getConnectedWifiEntry() != null
@@ -1006,6 +1022,24 @@ public class NetworkProviderSettings extends RestrictedSettingsFragment
         setAdditionalSettingsSummaries();
     }
 
+    /**
+     * Updates the Wi-Fi entries right away, unless they were updated less than
+     * {@link #WIFI_ENTRIES_UPDATE_THROTTLE_MS} ago. Then a single update is scheduled once that
+     * time has passed, and serves all the changes arriving until then.
+     */
+    private void updateWifiEntryPreferencesThrottled() {
+        final View view = getView();
+        final long sinceLastUpdateMs =
+                SystemClock.elapsedRealtime() - mLastWifiEntryPreferencesUpdateMs;
+        if (view == null || sinceLastUpdateMs >= WIFI_ENTRIES_UPDATE_THROTTLE_MS) {
+            updateWifiEntryPreferences();
+            return;
+        }
+        view.removeCallbacks(mThrottledUpdateWifiEntryPreferencesRunnable);
+        view.postDelayed(mThrottledUpdateWifiEntryPreferencesRunnable,
+                WIFI_ENTRIES_UPDATE_THROTTLE_MS - sinceLastUpdateMs);
+    }
+
     protected void updateWifiEntryPreferences() {
         // bypass the update if the activity and the view are not ready, or it's restricted UI.
         if (getActivity() == null || getView() == null || mIsRestricted) {
@@ -1016,6 +1050,8 @@ public class NetworkProviderSettings extends RestrictedSettingsFragment
                 || mWifiPickerTracker.getWifiState() != WifiManager.WIFI_STATE_ENABLED) {
             return;
         }
+        getView().removeCallbacks(mThrottledUpdateWifiEntryPreferencesRunnable);
+        mLastWifiEntryPreferencesUpdateMs = SystemClock.elapsedRealtime();
 
         boolean hasAvailableWifiEntries = false;
         mWifiEntryPreferenceCategory.setVisible(true);
@@ -1053,25 +1089,34 @@ public class NetworkProviderSettings extends RestrictedSettingsFragment
                 }
             }
         } else {
-            connectedWifiPreferenceCategory.removeAll();
+            removeAllPreferences(connectedWifiPreferenceCategory);
         }
 
+        // Reconcile the category with the entries by key: a preference whose WifiEntry is
+        // unchanged is kept and only reordered if it moved, since it refreshes itself when its
+        // WifiEntry is updated. Only the new and the gone entries add or remove a preference, so
+        // a scan result doesn't rebuild the whole list.
         int index = 0;
-        cacheRemoveAllPrefs(mWifiEntryPreferenceCategory);
+        final Map<String, LongPressWifiEntryPreference> stalePrefs = new ArrayMap<>();
+        for (int i = 0; i < mWifiEntryPreferenceCategory.getPreferenceCount(); i++) {
+            final Preference pref = mWifiEntryPreferenceCategory.getPreference(i);
+            if (pref instanceof LongPressWifiEntryPreference && pref.getKey() != null) {
+                stalePrefs.put(pref.getKey(), (LongPressWifiEntryPreference) pref);
+            }
+        }
         List<WifiEntry> wifiEntries = mWifiPickerTracker.getWifiEntries();
         for (WifiEntry wifiEntry : wifiEntries) {
             hasAvailableWifiEntries = true;
 
             String key = wifiEntry.getKey();
-            LongPressWifiEntryPreference pref =
-                    (LongPressWifiEntryPreference) getCachedPreference(key);
+            LongPressWifiEntryPreference pref = stalePrefs.remove(key);
             if (pref != null) {
                 if (pref.getWifiEntry() == wifiEntry) {
                     pref.setOrder(index++);
                     continue;
                 } else {
                     // Create a new preference if the underlying WifiEntry object has changed
-                    removePreference(key);
+                    mWifiEntryPreferenceCategory.removePreference(pref);
                 }
             }
 
@@ -1087,19 +1132,31 @@ public class NetworkProviderSettings extends RestrictedSettingsFragment
             }
             mWifiEntryPreferenceCategory.addPreference(pref);
         }
-        removeCachedPrefs(mWifiEntryPreferenceCategory);
+        for (Preference pref : stalePrefs.values()) {
+            mWifiEntryPreferenceCategory.removePreference(pref);
+        }
 
+        Preference emptyPref = mWifiEntryPreferenceCategory.findPreference(
+                PREF_KEY_EMPTY_WIFI_LIST);
         if (!hasAvailableWifiEntries) {
-            Preference pref = new Preference(getPrefContext());
-            pref.setSelectable(false);
-            pref.setSummary(R.string.wifi_empty_list_wifi_on);
-            pref.setOrder(index++);
-            pref.setKey(PREF_KEY_EMPTY_WIFI_LIST);
-            mWifiEntryPreferenceCategory.addPreference(pref);
+            if (emptyPref == null) {
+                emptyPref = new Preference(getPrefContext());
+                emptyPref.setSelectable(false);
+                emptyPref.setSummary(R.string.wifi_empty_list_wifi_on);
+                emptyPref.setOrder(index++);
+                emptyPref.setKey(PREF_KEY_EMPTY_WIFI_LIST);
+                mWifiEntryPreferenceCategory.addPreference(emptyPref);
+            } else {
+                emptyPref.setOrder(index++);
+            }
+        } else if (emptyPref != null) {
+            mWifiEntryPreferenceCategory.removePreference(emptyPref);
         }
 
         mAddWifiNetworkPreference.setOrder(index++);
-        mWifiEntryPreferenceCategory.addPreference(mAddWifiNetworkPreference);
+        if (mWifiEntryPreferenceCategory.findPreference(PREF_KEY_ADD_WIFI_NETWORK) == null) {
+            mWifiEntryPreferenceCategory.addPreference(mAddWifiNetworkPreference);
+        }
         setAdditionalSettingsSummaries();
     }
 
@@ -1107,15 +1164,22 @@ public class NetworkProviderSettings extends RestrictedSettingsFragment
     PreferenceCategory getConnectedWifiPreferenceCategory() {
         if (mInternetUpdater.getInternetType() == InternetUpdater.INTERNET_WIFI) {
             mFirstWifiEntryPreferenceCategory.setVisible(false);
-            mFirstWifiEntryPreferenceCategory.removeAll();
+            removeAllPreferences(mFirstWifiEntryPreferenceCategory);
             return mConnectedWifiEntryPreferenceCategory;
         }
 
         mConnectedWifiEntryPreferenceCategory.setVisible(false);
-        mConnectedWifiEntryPreferenceCategory.removeAll();
+        removeAllPreferences(mConnectedWifiEntryPreferenceCategory);
         return mFirstWifiEntryPreferenceCategory;
     }
 
+    /** Removes the preferences of {@code group}, without notifying a change if it's empty. */
+    private static void removeAllPreferences(PreferenceGroup group) {
+        if (group.getPreferenceCount() > 0) {
+            group.removeAll();
+        }
+    }
+
     @VisibleForTesting
     ConnectedWifiEntryPreference createConnectedWifiEntryPreference(WifiEntry wifiEntry) {
         if (mInternetUpdater.getInternetType() == InternetUpdater.INTERNET_WIFI) {
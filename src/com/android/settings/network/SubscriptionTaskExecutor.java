@@ -0,0 +1,213 @@
+/*
+ * Copyright (C) 2026 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.network;
+
+import android.util.ArrayMap;
+
+import androidx.annotation.GuardedBy;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.annotation.VisibleForTesting;
+
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs the telephony state loading of {@link MobileNetworkRepository} on a small thread pool.
+ *
+ * <p>Tasks are queued per subscription and the tasks of one subscription run one at a time, in
+ * priority order, so a slow telephony call of one SIM doesn't hold back the other one. Between two
+ * tasks the queue yields its thread, which lets the high priority tasks of the other queues run
+ * first. A task submitted with the key of the task last queued for the same subscription, while
+ * that one is still waiting, is dropped: the waiting task reads the latest state when it runs
+ * anyway. If other tasks were queued after it, e.g. an insertion after a deletion, the new task
+ * is queued as well so it isn't undone by them.
+ */
+class SubscriptionTaskExecutor {
+
+    /** Priority of refreshes triggered by a setting observer. */
+    static final int PRIORITY_NORMAL = 0;
+    /** Priority of refreshes triggered by a subscription change. */
+    static final int PRIORITY_HIGH = 1;
+
+    // One thread for the subscription list plus one per SIM on a dual SIM device.
+    private static final int THREAD_COUNT = 3;
+    private static final long KEEP_ALIVE_SECONDS = 10L;
+
+    private final Executor mExecutor;
+    private final Object mLock = new Object();
+    @GuardedBy("mLock")
+    private final Map<Integer, TaskQueue> mQueues = new ArrayMap<>();
+    @GuardedBy("mLock")
+    private long mNextSequence;
+
+    SubscriptionTaskExecutor() {
+        this(createThreadPool());
+    }
+
+    @VisibleForTesting
+    SubscriptionTaskExecutor(Executor executor) {
+        mExecutor = executor;
+    }
+
+    private static Executor createThreadPool() {
+        final ThreadPoolExecutor threadPool = new ThreadPoolExecutor(THREAD_COUNT, THREAD_COUNT,
+                KEEP_ALIVE_SECONDS, TimeUnit.SECONDS, new PriorityBlockingQueue<>());
+        threadPool.allowCoreThreadTimeOut(true);
+        return threadPool;
+    }
+
+    /**
+     * Queues {@code runnable} behind the other tasks of {@code subId}.
+     *
+     * @param subId The subscription the task belongs to, or
+     *              {@link android.telephony.SubscriptionManager#INVALID_SUBSCRIPTION_ID} for the
+     *              tasks of the whole subscription list.
+     * @param key Identifies duplicate tasks of the subscription, or {@code null} if the task is
+     *            never coalesced.
+     * @param priority One of {@link #PRIORITY_NORMAL} and {@link #PRIORITY_HIGH}.
+     * @return {@code false} if the task was coalesced into a waiting one.
+     */
+    boolean execute(int subId, @Nullable String key, int priority, @NonNull Runnable runnable) {
+        final QueueRunner runner;
+        synchronized (mLock) {
+            TaskQueue queue = mQueues.get(subId);
+            if (queue == null) {
+                queue = new TaskQueue(subId);
+                mQueues.put(subId, queue);
+            }
+            if (key != null && queue.mLastTask != null
+                    && queue.mPendingTasks.get(key) == queue.mLastTask) {
+                return false;
+            }
+            final Task task = new Task(key, priority, mNextSequence++, runnable);
+            queue.mTasks.add(task);
+            queue.mLastTask = task;
+            if (key != null) {
+                queue.mPendingTasks.put(key, task);
+            }
+            if (queue.mScheduled) {
+                return true;
+            }
+            queue.mScheduled = true;
+            runner = new QueueRunner(queue, task);
+        }
+        mExecutor.execute(runner);
+        return true;
+    }
+
+    private void runNext(TaskQueue queue) {
+        final Task task;
+        synchronized (mLock) {
+            task = queue.mTasks.poll();
+            // A new request arriving while the task runs may have missed the latest state.
+            if (task.mKey != null && queue.mPendingTasks.get(task.mKey) == task) {
+                queue.mPendingTasks.remove(task.mKey);
+            }
+            if (queue.mLastTask == task) {
+                queue.mLastTask = null;
+            }
+        }
+        try {
+            task.mRunnable.run();
+        } finally {
+            scheduleNext(queue);
+        }
+    }
+
+    private void scheduleNext(TaskQueue queue) {
+        final QueueRunner runner;
+        synchronized (mLock) {
+            final Task next = queue.mTasks.peek();
+            if (next == null) {
+                queue.mScheduled = false;
+                mQueues.remove(queue.mSubId);
+                return;
+            }
+            runner = new QueueRunner(queue, next);
+        }
+        mExecutor.execute(runner);
+    }
+
+    private static int compare(int priority, long sequence, int otherPriority,
+            long otherSequence) {
+        if (priority != otherPriority) {
+            return Integer.compare(otherPriority, priority);
+        }
+        return Long.compare(sequence, otherSequence);
+    }
+
+    private static class Task implements Comparable<Task> {
+        final String mKey;
+        final int mPriority;
+        final long mSequence;
+        final Runnable mRunnable;
+
+        Task(String key, int priority, long sequence, Runnable runnable) {
+            mKey = key;
+            mPriority = priority;
+            mSequence = sequence;
+            mRunnable = runnable;
+        }
+
+        @Override
+        public int compareTo(Task other) {
+            return compare(mPriority, mSequence, other.mPriority, other.mSequence);
+        }
+    }
+
+    private static class TaskQueue {
+        final int mSubId;
+        final PriorityQueue<Task> mTasks = new PriorityQueue<>();
+        // The latest waiting task of each key.
+        final Map<String, Task> mPendingTasks = new ArrayMap<>();
+        // The task queued last, while it is still waiting.
+        Task mLastTask;
+        boolean mScheduled;
+
+        TaskQueue(int subId) {
+            mSubId = subId;
+        }
+    }
+
+    /** Runs the head task of a queue, ordered in the thread pool by the priority of that task. */
+    private class QueueRunner implements Runnable, Comparable<QueueRunner> {
+        final TaskQueue mQueue;
+        final int mPriority;
+        final long mSequence;
+
+        QueueRunner(TaskQueue queue, Task head) {
+            mQueue = queue;
+            mPriority = head.mPriority;
+            mSequence = head.mSequence;
+        }
+
+        @Override
+        public void run() {
+            runNext(mQueue);
+        }
+
+        @Override
+        public int compareTo(QueueRunner other) {
+            return compare(mPriority, mSequence, other.mPriority, other.mSequence);
+        }
+    }
+}
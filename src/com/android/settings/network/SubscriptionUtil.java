@@ -39,6 +39,7 @@ import android.text.TextDirectionHeuristics;
 import android.text.TextUtils;
 import android.util.Log;
 
+import androidx.annotation.GuardedBy;
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 import androidx.annotation.VisibleForTesting;
@@ -81,9 +82,17 @@ public class SubscriptionUtil {
     private static List<SubscriptionInfo> sAvailableResultsForTesting;
     private static List<SubscriptionInfo> sActiveResultsForTesting;
 
+    private static final Object sDisplayNamesLock = new Object();
+    // Bumped whenever the subscriptions change, which also drops the memoized display names.
+    @GuardedBy("sDisplayNamesLock")
+    private static int sSubscriptionListGeneration;
+    @GuardedBy("sDisplayNamesLock")
+    private static DisplayNameTable sDisplayNameTable;
+
     @VisibleForTesting
     public static void setAvailableSubscriptionsForTesting(List<SubscriptionInfo> results) {
         sAvailableResultsForTesting = results;
+        invalidateUniqueSubscriptionDisplayNames();
     }
 
     @VisibleForTesting
@@ -287,6 +296,47 @@ public class SubscriptionUtil {
      */
     @VisibleForTesting
     public static Map<Integer, CharSequence> getUniqueSubscriptionDisplayNames(Context context) {
+        // Looking up the phone numbers and the cached names is costly, the names are computed
+        // once per subscription list and shared by all the controllers of a screen.
+        final List<SubscriptionInfo> subscriptions = getAvailableSubscriptions(context);
+        final List<String> displayNames = new ArrayList<>(subscriptions.size());
+        for (SubscriptionInfo info : subscriptions) {
+            final CharSequence displayName = info != null ? info.getDisplayName() : null;
+            displayNames.add(displayName != null ? displayName.toString() : null);
+        }
+        final Locale locale = Locale.getDefault();
+        final int generation;
+        synchronized (sDisplayNamesLock) {
+            if (sDisplayNameTable != null && sDisplayNameTable.matches(
+                    sSubscriptionListGeneration, subscriptions, displayNames, locale)) {
+                return new HashMap<>(sDisplayNameTable.mUniqueNames);
+            }
+            generation = sSubscriptionListGeneration;
+        }
+        final Map<Integer, CharSequence> uniqueNames =
+                computeUniqueSubscriptionDisplayNames(context, subscriptions);
+        synchronized (sDisplayNamesLock) {
+            if (generation == sSubscriptionListGeneration) {
+                sDisplayNameTable = new DisplayNameTable(generation,
+                        new ArrayList<>(subscriptions), displayNames, locale,
+                        new HashMap<>(uniqueNames));
+            }
+        }
+        return uniqueNames;
+    }
+
+    /**
+     * Drops the memoized unique display names, to be called when the subscriptions changed.
+     */
+    public static void invalidateUniqueSubscriptionDisplayNames() {
+        synchronized (sDisplayNamesLock) {
+            sSubscriptionListGeneration++;
+            sDisplayNameTable = null;
+        }
+    }
+
+    private static Map<Integer, CharSequence> computeUniqueSubscriptionDisplayNames(
+            Context context, List<SubscriptionInfo> subscriptions) {
         class DisplayInfo {
             public SubscriptionInfo subscriptionInfo;
             public CharSequence originalName;
@@ -295,7 +345,7 @@ public class SubscriptionUtil {
 
         // Map of SubscriptionId to DisplayName
         final Supplier<Stream<DisplayInfo>> originalInfos =
-                () -> getAvailableSubscriptions(context)
+                () -> subscriptions
                         .stream()
                         .filter(i -> {
                             // Filter out null values.
@@ -426,6 +476,33 @@ public class SubscriptionUtil {
     }
 
 
+    /** The unique display names computed for one subscription list. */
+    private static class DisplayNameTable {
+        final int mGeneration;
+        final List<SubscriptionInfo> mSubscriptions;
+        final List<String> mDisplayNames;
+        final Locale mLocale;
+        final Map<Integer, CharSequence> mUniqueNames;
+
+        DisplayNameTable(int generation, List<SubscriptionInfo> subscriptions,
+                List<String> displayNames, Locale locale,
+                Map<Integer, CharSequence> uniqueNames) {
+            mGeneration = generation;
+            mSubscriptions = subscriptions;
+            mDisplayNames = displayNames;
+            mLocale = locale;
+            mUniqueNames = uniqueNames;
+        }
+
+        boolean matches(int generation, List<SubscriptionInfo> subscriptions,
+                List<String> displayNames, Locale locale) {
+            return mGeneration == generation
+                    && mSubscriptions.equals(subscriptions)
+                    && mDisplayNames.equals(displayNames)
+                    && mLocale.equals(locale);
+        }
+    }
+
     private static SharedPreferences getDisplayNameSharedPreferences(Context context) {
         return context.getSharedPreferences(
                 KEY_UNIQUE_SUBSCRIPTION_DISPLAYNAME, Context.MODE_PRIVATE);
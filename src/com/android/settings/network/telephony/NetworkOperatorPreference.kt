@@ -66,6 +66,13 @@ open class NetworkOperatorPreference(
      */
     fun isSameCell(cellInfo: CellInfo): Boolean = cellInfo.cellIdentity == cellId
 
+    /**
+     * Return true when showing the given cell would not change this preference
+     */
+    fun isSameContent(cellInfo: CellInfo): Boolean =
+        isSameCell(cellInfo) && this.cellInfo?.javaClass == cellInfo.javaClass &&
+            this.cellInfo?.cellSignalStrength?.level == cellInfo.cellSignalStrength.level
+
     /**
      * Return true when this preference is for forbidden network
      */
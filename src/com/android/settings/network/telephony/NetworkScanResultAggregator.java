@@ -0,0 +1,138 @@
+/*
+ * Copyright (C) 2026 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.network.telephony;
+
+import android.os.SystemClock;
+import android.telephony.CellInfo;
+import android.util.SparseArray;
+
+import androidx.annotation.GuardedBy;
+import androidx.annotation.Nullable;
+import androidx.annotation.VisibleForTesting;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Aggregates the partial results of a manual network scan, and keeps the last completed scan of
+ * each subscription for {@link #COMPLETED_SCAN_TTL_MS}.
+ *
+ * <p>The cells of the partial results are deduplicated by operator: a cell replaces the one of
+ * the same operator and radio technology in place, unless that one is registered and the new one
+ * isn't, so the operators keep their position while the scan goes on.
+ */
+class NetworkScanResultAggregator {
+
+    @VisibleForTesting
+    static final long COMPLETED_SCAN_TTL_MS = 5 * 60 * 1000L;
+
+    private static final Object sLock = new Object();
+    @GuardedBy("sLock")
+    private static final SparseArray<CompletedScan> sCompletedScans = new SparseArray<>();
+
+    private final boolean mByOperator;
+    private final Map<String, CellInfo> mCells = new LinkedHashMap<>();
+
+    /**
+     * @param byOperator Whether the cells of one operator and radio technology are shown as one
+     *                   entry, otherwise only the cells with the same identity are merged.
+     */
+    NetworkScanResultAggregator(boolean byOperator) {
+        mByOperator = byOperator;
+    }
+
+    /** Forgets the cells of the previous scan. */
+    void clear() {
+        mCells.clear();
+    }
+
+    /**
+     * Merges a partial result into the cells of the scan.
+     *
+     * @return {@code true} if the cells changed.
+     */
+    boolean merge(List<CellInfo> results) {
+        boolean changed = false;
+        for (CellInfo cellInfo : results) {
+            final String key = getKey(cellInfo);
+            final CellInfo existing = mCells.get(key);
+            if (existing != null && existing.isRegistered() && !cellInfo.isRegistered()) {
+                continue;
+            }
+            if (!cellInfo.equals(existing)) {
+                mCells.put(key, cellInfo);
+                changed = true;
+            }
+        }
+        return changed;
+    }
+
+    /** Returns the cells of the scan, in the order their operators were first found. */
+    List<CellInfo> getCells() {
+        return new ArrayList<>(mCells.values());
+    }
+
+    private String getKey(CellInfo cellInfo) {
+        final String identity = mByOperator
+                ? CellInfoUtil.getNetworkTitle(cellInfo.getCellIdentity())
+                : String.valueOf(cellInfo.getCellIdentity());
+        return cellInfo.getClass().getName() + "/" + identity;
+    }
+
+    /** Keeps {@code cells} as the last completed scan of {@code subId}. */
+    static void putCompletedScan(int subId, List<CellInfo> cells) {
+        synchronized (sLock) {
+            sCompletedScans.put(subId,
+                    new CompletedScan(new ArrayList<>(cells), SystemClock.elapsedRealtime()));
+        }
+    }
+
+    /** Returns the last completed scan of {@code subId}, if it is recent enough. */
+    @Nullable
+    static List<CellInfo> getCompletedScan(int subId) {
+        synchronized (sLock) {
+            final CompletedScan scan = sCompletedScans.get(subId);
+            if (scan == null) {
+                return null;
+            }
+            if (SystemClock.elapsedRealtime() - scan.mCompletedTimeMs > COMPLETED_SCAN_TTL_MS) {
+                sCompletedScans.remove(subId);
+                return null;
+            }
+            return new ArrayList<>(scan.mCells);
+        }
+    }
+
+    @VisibleForTesting
+    static void clearCompletedScans() {
+        synchronized (sLock) {
+            sCompletedScans.clear();
+        }
+    }
+
+    private static class CompletedScan {
+        final List<CellInfo> mCells;
+        final long mCompletedTimeMs;
+
+        CompletedScan(List<CellInfo> cells, long completedTimeMs) {
+            mCells = cells;
+            mCompletedTimeMs = completedTimeMs;
+        }
+    }
+}
@@ -91,6 +91,7 @@ public class NetworkSelectSettings extends DashboardFragment {
     private List<String> mForbiddenPlmns;
     private boolean mShow4GForLTE = false;
     private NetworkScanHelper mNetworkScanHelper;
+    private NetworkScanResultAggregator mScanResultAggregator;
     private final ExecutorService mNetworkScanExecutor = Executors.newFixedThreadPool(1);
     private MetricsFeatureProvider mMetricsFeatureProvider;
     private boolean mUseNewApi;
@@ -136,6 +137,7 @@ public class NetworkSelectSettings extends DashboardFragment {
 
         mMetricsFeatureProvider = getMetricsFeatureProvider(context);
         mIsAggregationEnabled = enableAggregation(context);
+        mScanResultAggregator = new NetworkScanResultAggregator(mIsAggregationEnabled);
         Log.d(TAG, "init: mUseNewApi:" + mUseNewApi
                 + " ,mIsAggregationEnabled:" + mIsAggregationEnabled + " ,mSubId:" + mSubId);
 
@@ -239,10 +241,28 @@ public class NetworkSelectSettings extends DashboardFragment {
             return;
         }
         if (mWaitingForNumberOfScanResults <= 0) {
+            showCompletedScan();
             startNetworkQuery();
         }
     }
 
+    /**
+     * Shows the last completed scan of the subscription, if it is recent, until the results of
+     * the new scan arrive.
+     */
+    private void showCompletedScan() {
+        if (mCellInfoList != null && !mCellInfoList.isEmpty()) {
+            return;
+        }
+        final List<CellInfo> cells = NetworkScanResultAggregator.getCompletedScan(mSubId);
+        if (cells == null || cells.isEmpty()) {
+            return;
+        }
+        Log.d(TAG, "Show the completed scan: " + CellInfoUtil.cellInfoListToString(cells));
+        mCellInfoList = cells;
+        updateAllPreferenceCategory();
+    }
+
     /**
      * Update forbidden PLMNs from the USIM App
      */
@@ -372,6 +392,10 @@ public class NetworkSelectSettings extends DashboardFragment {
                     if (mRequestIdManualNetworkScan < mRequestIdManualNetworkSelect) {
                         break;
                     }
+                    final List<CellInfo> scannedCells = mScanResultAggregator.getCells();
+                    if (!scannedCells.isEmpty()) {
+                        NetworkScanResultAggregator.putCompletedScan(mSubId, scannedCells);
+                    }
                     if (!isPreferenceScreenEnabled()) {
                         clearPreferenceSummary();
                         enablePreferenceScreen(true);
@@ -483,7 +507,10 @@ public class NetworkSelectSettings extends DashboardFragment {
             stopNetworkQuery();
         }
 
-        mCellInfoList = doAggregation(results);
+        // The partial results of one scan are merged, so an operator found by an earlier partial
+        // scan stays listed.
+        mScanResultAggregator.merge(doAggregation(results));
+        mCellInfoList = mScanResultAggregator.getCells();
         Log.d(TAG, "CellInfoList: " + CellInfoUtil.cellInfoListToString(mCellInfoList));
         if (mCellInfoList != null && mCellInfoList.size() != 0) {
             final NetworkOperatorPreference connectedPref = updateAllPreferenceCategory();
@@ -540,9 +567,11 @@ public class NetworkSelectSettings extends DashboardFragment {
             if (index < numberOfPreferences) {
                 final Preference rawPref = mPreferenceCategory.getPreference(index);
                 if (rawPref instanceof NetworkOperatorPreference) {
-                    // replace existing preference
+                    // replace existing preference, unless it already shows the same cell
                     pref = (NetworkOperatorPreference) rawPref;
-                    pref.updateCell(cellInfo);
+                    if (!pref.isSameContent(cellInfo)) {
+                        pref.updateCell(cellInfo);
+                    }
                 } else {
                     mPreferenceCategory.removePreference(rawPref);
                 }
@@ -670,6 +699,7 @@ public class NetworkSelectSettings extends DashboardFragment {
     private void startNetworkQuery() {
         setProgressBarVisible(true);
         if (mNetworkScanHelper != null) {
+            mScanResultAggregator.clear();
             mRequestIdManualNetworkScan = getNewRequestId();
             mWaitingForNumberOfScanResults = MIN_NUMBER_OF_SCAN_REQUIRED;
             mNetworkScanHelper.startNetworkScan(
@@ -42,6 +42,7 @@ import androidx.fragment.app.Fragment;
 
 import com.android.settings.R;
 import com.android.settings.Utils;
+import com.android.settings.applications.AppIconLabelCache;
 import com.android.settings.overlay.FeatureFactory;
 import com.android.settingslib.applications.ApplicationsState;
 import com.android.settingslib.widget.LayoutPreference;
@@ -135,7 +136,8 @@ public class EntityHeaderController {
      * accessibility purposes.
      */
     public EntityHeaderController setIcon(ApplicationsState.AppEntry appEntry) {
-        mIcon = Utils.getBadgedIcon(mAppContext, appEntry.info);
+        final Drawable cached = AppIconLabelCache.getInstance().getCachedBadgedIcon(appEntry.info);
+        mIcon = cached != null ? cached : Utils.getBadgedIcon(mAppContext, appEntry.info);
         mPackageNameReal = appEntry.info.packageName;
         return this;
     }
@@ -62,6 +62,14 @@ public class AppStateChangeWifiStateBridge extends AppStateAppOpsBridge {
         }
     }
 
+    @Override
+    protected void loadExtraInfoForPackages(List<AppEntry> changedApps,
+            List<AppEntry> removedApps) {
+        for (AppEntry entry : changedApps) {
+            updateExtraInfo(entry, entry.info.packageName, entry.info.uid);
+        }
+    }
+
     public WifiSettingsState getWifiSettingsInfo(String pkg, int uid) {
         PermissionState permissionState = super.getPermissionInfo(pkg, uid);
         return new WifiSettingsState(permissionState);
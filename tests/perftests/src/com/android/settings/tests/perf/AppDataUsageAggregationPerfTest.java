@@ -0,0 +1,143 @@
+/*
+ * Copyright (C) 2026 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.settings.tests.perf;
+
+import static androidx.test.platform.app.InstrumentationRegistry.getInstrumentation;
+
+import static org.junit.Assert.assertEquals;
+
+import android.app.usage.NetworkStats;
+import android.os.Bundle;
+import android.os.SystemClock;
+import android.util.Log;
+import android.util.SparseArray;
+
+import androidx.test.runner.AndroidJUnit4;
+
+import com.android.settings.datausage.lib.NetworkStatsRepository.Companion.Bucket;
+import com.android.settings.datausage.lib.UidUsageAggregator;
+import com.android.settingslib.AppItem;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.function.Supplier;
+
+/**
+ * Compares how long the per-app data usage list takes to sum the network stats buckets of a long
+ * cycle, one bucket at a time into the app items as it used to, and by UID first with
+ * {@link UidUsageAggregator}.
+ */
+@RunWith(AndroidJUnit4.class)
+public class AppDataUsageAggregationPerfTest {
+    private static final String TAG = "SettingsPerfTests";
+    private static final int BUCKET_COUNT = 10_000;
+    private static final int UID_COUNT = 300;
+    private static final int WARM_UP_TIME = 10;
+    private static final int TEST_TIME = 100;
+
+    private List<Bucket> mBuckets;
+
+    @Before
+    public void setUp() {
+        // A fixed seed keeps the input identical between runs.
+        final Random random = new Random(0);
+        mBuckets = new ArrayList<>(BUCKET_COUNT);
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            final int uid = 10_000 + random.nextInt(UID_COUNT);
+            final long startTime = i * 3_600_000L;
+            mBuckets.add(new Bucket(uid, random.nextInt(1_000_000), NetworkStats.Bucket.STATE_ALL,
+                    startTime, startTime + 3_600_000L));
+        }
+    }
+
+    @Test
+    public void aggregateBuckets() {
+        final Bundle bundle = new Bundle();
+        final List<AppItem> perBucketItems =
+                measure("per_bucket", this::aggregatePerBucket, bundle);
+        final List<AppItem> byUidItems = measure("by_uid", this::aggregateByUid, bundle);
+        assertEquals(perBucketItems.size(), byUidItems.size());
+        for (int i = 0, size = perBucketItems.size(); i < size; i++) {
+            assertEquals(perBucketItems.get(i).total, byUidItems.get(i).total);
+        }
+
+        Log.i(TAG, "AppDataUsageAggregationPerfTest: " + bundle);
+        getInstrumentation().sendStatus(0, bundle);
+    }
+
+    /** The path before {@link UidUsageAggregator}: an item lookup for every bucket. */
+    private List<AppItem> aggregatePerBucket() {
+        final SparseArray<AppItem> knownItems = new SparseArray<>();
+        final List<AppItem> items = new ArrayList<>();
+        for (int i = 0, size = mBuckets.size(); i < size; i++) {
+            final Bucket bucket = mBuckets.get(i);
+            accumulate(knownItems, items, bucket.getUid(), bucket.getBytes());
+        }
+        return items;
+    }
+
+    private List<AppItem> aggregateByUid() {
+        final UidUsageAggregator usages = UidUsageAggregator.aggregate(mBuckets);
+        final SparseArray<AppItem> knownItems = new SparseArray<>();
+        final List<AppItem> items = new ArrayList<>();
+        for (int i = 0, size = usages.getSize(); i < size; i++) {
+            accumulate(knownItems, items, usages.uidAt(i), usages.bytesAt(i));
+        }
+        return items;
+    }
+
+    private static void accumulate(SparseArray<AppItem> knownItems, List<AppItem> items, int uid,
+            long bytes) {
+        AppItem item = knownItems.get(uid);
+        if (item == null) {
+            item = new AppItem(uid);
+            items.add(item);
+            knownItems.put(uid, item);
+        }
+        item.addUid(uid);
+        item.total += bytes;
+    }
+
+    private static List<AppItem> measure(String name, Supplier<List<AppItem>> aggregation,
+            Bundle bundle) {
+        for (int i = 0; i < WARM_UP_TIME; i++) {
+            aggregation.get();
+        }
+        long minNanos = Long.MAX_VALUE;
+        long maxNanos = 0;
+        long totalNanos = 0;
+        List<AppItem> items = null;
+        for (int i = 0; i < TEST_TIME; i++) {
+            final long startNanos = SystemClock.elapsedRealtimeNanos();
+            items = aggregation.get();
+            final long nanos = SystemClock.elapsedRealtimeNanos() - startNanos;
+            minNanos = Math.min(minNanos, nanos);
+            maxNanos = Math.max(maxNanos, nanos);
+            totalNanos += nanos;
+        }
+
+        final String prefix = "AppDataUsageAggregationPerfTest_" + name;
+        bundle.putString(prefix + "_min_us", String.valueOf(minNanos / 1000));
+        bundle.putString(prefix + "_max_us", String.valueOf(maxNanos / 1000));
+        bundle.putString(prefix + "_avg_us", String.valueOf(totalNanos / TEST_TIME / 1000));
+        return items;
+    }
+}
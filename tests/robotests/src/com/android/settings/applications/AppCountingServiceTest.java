@@ -0,0 +1,165 @@
+/*
+ * Copyright (C) 2026 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.applications;
+
+import static com.android.settings.testutils.ApplicationTestUtils.buildInfo;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.robolectric.Shadows.shadowOf;
+
+import android.content.Context;
+import android.content.pm.ApplicationInfo;
+import android.content.pm.PackageManager;
+import android.content.pm.PackageManager.ApplicationInfoFlags;
+import android.content.pm.UserInfo;
+import android.os.Looper;
+import android.os.UserHandle;
+import android.os.UserManager;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.robolectric.RobolectricTestRunner;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+@RunWith(RobolectricTestRunner.class)
+public class AppCountingServiceTest {
+
+    @Mock
+    private Context mContext;
+    @Mock
+    private UserManager mUserManager;
+    @Mock
+    private PackageManager mPackageManager;
+
+    private final List<Runnable> mBackgroundTasks = new ArrayList<>();
+    private AppCountingService mService;
+
+    @Before
+    public void setUp() {
+        MockitoAnnotations.initMocks(this);
+        when(mContext.getSystemService(UserManager.class)).thenReturn(mUserManager);
+        when(mUserManager.getProfiles(UserHandle.myUserId())).thenReturn(Arrays.asList(
+                new UserInfo(UserHandle.myUserId(), "main", UserInfo.FLAG_ADMIN)));
+        when(mPackageManager.getInstalledApplicationsAsUser(any(ApplicationInfoFlags.class),
+                anyInt())).thenReturn(Arrays.asList(
+                        buildInfo(10001, "app1", 0 /* flags */, 0 /* targetSdkVersion */),
+                        buildInfo(10002, "app2", 0 /* flags */, 0 /* targetSdkVersion */),
+                        buildInfo(10003, "app3", ApplicationInfo.FLAG_SYSTEM,
+                                0 /* targetSdkVersion */)));
+        mService = new AppCountingService(mBackgroundTasks::add);
+        AppCountingService.setUpForTest(mService);
+    }
+
+    @After
+    public void tearDown() {
+        AppCountingService.setUpForTest(null);
+    }
+
+    @Test
+    public void execute_concurrentCounters_shareOneScan() {
+        final TestCounter userApps = new TestCounter("user");
+        final TestCounter otherUserApps = new TestCounter("user");
+        final TestCounter allApps = new TestCounter(null /* cacheKey */) {
+            @Override
+            protected boolean includeInCount(ApplicationInfo info) {
+                return true;
+            }
+        };
+
+        userApps.execute();
+        otherUserApps.execute();
+        allApps.execute();
+        runBackgroundTasks();
+
+        assertThat(userApps.mCount).isEqualTo(2);
+        assertThat(otherUserApps.mCount).isEqualTo(2);
+        assertThat(allApps.mCount).isEqualTo(3);
+        verify(mPackageManager, times(1))
+                .getInstalledApplicationsAsUser(any(ApplicationInfoFlags.class), anyInt());
+    }
+
+    @Test
+    public void execute_cachedCount_doesNotRescan() {
+        final TestCounter first = new TestCounter("user");
+        first.execute();
+        runBackgroundTasks();
+
+        final TestCounter second = new TestCounter("user");
+        second.execute();
+        runBackgroundTasks();
+
+        assertThat(second.mCount).isEqualTo(2);
+        verify(mPackageManager, times(1))
+                .getInstalledApplicationsAsUser(any(ApplicationInfoFlags.class), anyInt());
+    }
+
+    @Test
+    public void execute_afterInvalidate_rescans() {
+        new TestCounter("user").executeInForeground();
+
+        mService.invalidate();
+        new TestCounter("user").executeInForeground();
+
+        verify(mPackageManager, times(2))
+                .getInstalledApplicationsAsUser(any(ApplicationInfoFlags.class), anyInt());
+    }
+
+    private void runBackgroundTasks() {
+        while (!mBackgroundTasks.isEmpty()) {
+            mBackgroundTasks.remove(0).run();
+        }
+        shadowOf(Looper.getMainLooper()).idle();
+    }
+
+    private class TestCounter extends AppCounter {
+        private final String mCacheKey;
+        private int mCount = -1;
+
+        TestCounter(String cacheKey) {
+            super(mContext, mPackageManager);
+            mCacheKey = cacheKey;
+        }
+
+        @Override
+        protected String getCacheKey() {
+            return mCacheKey;
+        }
+
+        @Override
+        protected boolean includeInCount(ApplicationInfo info) {
+            return (info.flags & ApplicationInfo.FLAG_SYSTEM) == 0;
+        }
+
+        @Override
+        protected void onCountComplete(int num) {
+            mCount = num;
+        }
+    }
+}
@@ -0,0 +1,141 @@
+/*
+ * Copyright (C) 2026 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.applications;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import android.content.ComponentCallbacks2;
+import android.content.Context;
+import android.content.pm.ApplicationInfo;
+import android.content.pm.PackageManager;
+import android.content.res.Configuration;
+import android.graphics.Bitmap;
+import android.graphics.drawable.BitmapDrawable;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.robolectric.RobolectricTestRunner;
+
+@RunWith(RobolectricTestRunner.class)
+public class AppIconLabelCacheTest {
+    private static final String PACKAGE_NAME = "com.example.app";
+
+    @Mock
+    private Context mContext;
+    @Mock
+    private PackageManager mPackageManager;
+
+    private AppIconLabelCache mCache;
+    private ApplicationInfo mAppInfo;
+
+    @Before
+    public void setUp() {
+        MockitoAnnotations.initMocks(this);
+        when(mContext.getPackageManager()).thenReturn(mPackageManager);
+        when(mPackageManager.getApplicationLabel(any())).thenReturn("App");
+        when(mPackageManager.getApplicationIcon(any(ApplicationInfo.class))).thenAnswer(
+                invocation -> new BitmapDrawable(null,
+                        Bitmap.createBitmap(10, 10, Bitmap.Config.ARGB_8888)));
+        mCache = new AppIconLabelCache(/* maxIconBytes= */ 1024 * 1024);
+        mAppInfo = new ApplicationInfo();
+        mAppInfo.packageName = PACKAGE_NAME;
+        mAppInfo.longVersionCode = 1;
+    }
+
+    @Test
+    public void getLabel_samePackageAndVersion_loadsOnce() {
+        assertThat(mCache.getLabel(mContext, mAppInfo).toString()).isEqualTo("App");
+        assertThat(mCache.getLabel(mContext, copyAppInfo(1)).toString()).isEqualTo("App");
+
+        verify(mPackageManager, times(1)).getApplicationLabel(any());
+    }
+
+    @Test
+    public void getLabel_newVersion_reloads() {
+        mCache.getLabel(mContext, mAppInfo);
+        mCache.getLabel(mContext, copyAppInfo(2));
+
+        verify(mPackageManager, times(2)).getApplicationLabel(any());
+    }
+
+    @Test
+    public void getIcon_returnsNewDrawableEachTime() {
+        final BitmapDrawable first = (BitmapDrawable) mCache.getIcon(mContext, mAppInfo);
+        final BitmapDrawable second = (BitmapDrawable) mCache.getIcon(mContext, mAppInfo);
+
+        assertThat(second).isNotSameInstanceAs(first);
+        assertThat(second.getBitmap()).isSameInstanceAs(first.getBitmap());
+        verify(mPackageManager, times(1)).getApplicationIcon(any(ApplicationInfo.class));
+    }
+
+    @Test
+    public void trimMemory_background_evictsIconsButKeepsLabels() {
+        mCache.getIcon(mContext, mAppInfo);
+        mCache.getLabel(mContext, mAppInfo);
+
+        mCache.trimMemory(ComponentCallbacks2.TRIM_MEMORY_BACKGROUND);
+        mCache.getIcon(mContext, mAppInfo);
+        mCache.getLabel(mContext, mAppInfo);
+
+        verify(mPackageManager, times(2)).getApplicationIcon(any(ApplicationInfo.class));
+        verify(mPackageManager, times(1)).getApplicationLabel(any());
+    }
+
+    @Test
+    public void onConfigurationChanged_density_evictsIcons() {
+        final Configuration config = new Configuration();
+        config.densityDpi = 320;
+        mCache.onConfigurationChanged(config);
+        mCache.getIcon(mContext, mAppInfo);
+
+        final Configuration newConfig = new Configuration(config);
+        newConfig.densityDpi = 480;
+        mCache.onConfigurationChanged(newConfig);
+        mCache.getIcon(mContext, mAppInfo);
+
+        verify(mPackageManager, times(2)).getApplicationIcon(any(ApplicationInfo.class));
+    }
+
+    @Test
+    public void onConfigurationChanged_fontScale_keepsIcons() {
+        final Configuration config = new Configuration();
+        config.fontScale = 1f;
+        mCache.onConfigurationChanged(config);
+        mCache.getIcon(mContext, mAppInfo);
+
+        final Configuration newConfig = new Configuration(config);
+        newConfig.fontScale = 1.3f;
+        mCache.onConfigurationChanged(newConfig);
+        mCache.getIcon(mContext, mAppInfo);
+
+        verify(mPackageManager, times(1)).getApplicationIcon(any(ApplicationInfo.class));
+    }
+
+    private ApplicationInfo copyAppInfo(long versionCode) {
+        final ApplicationInfo info = new ApplicationInfo(mAppInfo);
+        info.longVersionCode = versionCode;
+        return info;
+    }
+}
@@ -18,12 +18,16 @@ package com.android.settings.applications;
 
 import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
 
 import android.Manifest;
 import android.app.AppOpsManager;
 import android.content.Context;
+import android.content.pm.ApplicationInfo;
 import android.content.pm.IPackageManager;
+import android.content.pm.PackageInfo;
 import android.os.RemoteException;
 import android.os.UserHandle;
 import android.os.UserManager;
@@ -39,6 +43,9 @@ import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
 import org.robolectric.RobolectricTestRunner;
 
+import java.util.Collections;
+import java.util.List;
+
 @RunWith(RobolectricTestRunner.class)
 public final class AppStateAppOpsBridgeTest {
 
@@ -115,6 +122,59 @@ public final class AppStateAppOpsBridgeTest {
         Truth.assertThat(permissionState.isPermissible()).isFalse();
     }
 
+    @Test
+    public void loadExtraInfoForPackages_declaringPackage_setsPermissionState()
+            throws RemoteException {
+        when(mUserManager.getUserProfiles()).thenReturn(List.of(UserHandle.SYSTEM));
+        when(mPackageManagerService.isPackageAvailable(anyString(), anyInt())).thenReturn(true);
+        when(mPackageManagerService.getPackageInfo(eq("pkg1"), anyInt(), anyInt()))
+                .thenReturn(createPackageInfo(Manifest.permission.SYSTEM_ALERT_WINDOW));
+        when(mPackageManagerService.getPackageInfo(eq("pkg2"), anyInt(), anyInt()))
+                .thenReturn(createPackageInfo(Manifest.permission.CAMERA));
+        final AppEntry declaringApp = createAppEntry("pkg1", 10001);
+        final AppEntry otherApp = createAppEntry("pkg2", 10002);
+
+        new TestAppStateAppOpsBridge().loadExtraInfoForPackages(
+                List.of(declaringApp, otherApp), Collections.emptyList());
+
+        Truth.assertThat(declaringApp.extraInfo)
+                .isInstanceOf(AppStateAppOpsBridge.PermissionState.class);
+        Truth.assertThat(
+                ((AppStateAppOpsBridge.PermissionState) declaringApp.extraInfo)
+                        .staticPermissionGranted).isTrue();
+        Truth.assertThat(otherApp.extraInfo).isNull();
+    }
+
+    @Test
+    public void loadExtraInfoForPackages_otherUser_noPermissionState() throws RemoteException {
+        when(mUserManager.getUserProfiles()).thenReturn(List.of(UserHandle.SYSTEM));
+        when(mPackageManagerService.isPackageAvailable(anyString(), anyInt())).thenReturn(true);
+        when(mPackageManagerService.getPackageInfo(anyString(), anyInt(), anyInt()))
+                .thenReturn(createPackageInfo(Manifest.permission.SYSTEM_ALERT_WINDOW));
+        final AppEntry app = createAppEntry("pkg1", UserHandle.getUid(10, 10001));
+
+        new TestAppStateAppOpsBridge().loadExtraInfoForPackages(
+                List.of(app), Collections.emptyList());
+
+        Truth.assertThat(app.extraInfo).isNull();
+    }
+
+    private static PackageInfo createPackageInfo(String permission) {
+        final PackageInfo packageInfo = new PackageInfo();
+        packageInfo.requestedPermissions = new String[] {permission};
+        packageInfo.requestedPermissionsFlags =
+                new int[] {PackageInfo.REQUESTED_PERMISSION_GRANTED};
+        return packageInfo;
+    }
+
+    private static AppEntry createAppEntry(String packageName, int uid) {
+        final AppEntry appEntry = mock(AppEntry.class);
+        appEntry.info = new ApplicationInfo();
+        appEntry.info.packageName = packageName;
+        appEntry.info.uid = uid;
+        return appEntry;
+    }
+
     private class TestAppStateAppOpsBridge extends AppStateAppOpsBridge {
         private TestAppStateAppOpsBridge() {
             super(mContext, null, null, AppOpsManager.OP_SYSTEM_ALERT_WINDOW,
@@ -34,8 +34,10 @@ import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
+import static org.robolectric.Shadows.shadowOf;
 
 import android.app.usage.IUsageStatsManager;
 import android.app.usage.UsageEvents;
@@ -216,6 +218,56 @@ public class AppStateNotificationBridgeTest {
         assertThat(((NotificationsSentState) apps.get(0).extraInfo).lastSent).isEqualTo(0);
     }
 
+    @Test
+    public void testParallelLoad_appliesInfoOnLooperOnceComputed() throws RemoteException {
+        when(mUsageStats.queryEventsForUser(anyLong(), anyLong(), anyInt(), anyString()))
+                .thenReturn(mock(UsageEvents.class));
+        when(mState.getBackgroundLooper()).thenReturn(Looper.getMainLooper());
+        AppStateBaseBridge.Callback callback = mock(AppStateBaseBridge.Callback.class);
+        AppStateNotificationBridge bridge = new AppStateNotificationBridge(mContext, mState,
+                callback, mUsageStats, mUserManager, mBackend);
+        List<Runnable> computations = new ArrayList<>();
+        bridge.mParallelLoadExecutor = computations::add;
+        ArrayList<AppEntry> apps = new ArrayList<>();
+        apps.add(getMockAppEntry(PKG1));
+        when(mSession.getAllApps()).thenReturn(apps);
+
+        bridge.onLoadEntriesCompleted();
+        shadowOf(Looper.getMainLooper()).idle();
+        assertThat(computations).hasSize(1);
+        computations.get(0).run();
+
+        // Computed but not applied until the looper picks up the result.
+        assertThat(apps.get(0).extraInfo).isNull();
+        verify(mBackend, never()).getNotificationsBanned(PKG1, 0);
+        shadowOf(Looper.getMainLooper()).idle();
+        assertThat(apps.get(0).extraInfo).isInstanceOf(NotificationsSentState.class);
+        verify(mBackend).getNotificationsBanned(PKG1, 0);
+        verify(callback).onExtraInfoUpdated();
+    }
+
+    @Test
+    public void testParallelLoad_coalescesLoadsRequestedWhileComputing() throws RemoteException {
+        when(mUsageStats.queryEventsForUser(anyLong(), anyLong(), anyInt(), anyString()))
+                .thenReturn(mock(UsageEvents.class));
+        when(mState.getBackgroundLooper()).thenReturn(Looper.getMainLooper());
+        AppStateNotificationBridge bridge = new AppStateNotificationBridge(mContext, mState,
+                mock(AppStateBaseBridge.Callback.class), mUsageStats, mUserManager, mBackend);
+        List<Runnable> computations = new ArrayList<>();
+        bridge.mParallelLoadExecutor = computations::add;
+        when(mSession.getAllApps()).thenReturn(new ArrayList<>());
+
+        bridge.onLoadEntriesCompleted();
+        bridge.onPackageListChanged();
+        bridge.onPackageListChanged();
+        shadowOf(Looper.getMainLooper()).idle();
+        assertThat(computations).hasSize(1);
+
+        computations.get(0).run();
+        shadowOf(Looper.getMainLooper()).idle();
+        assertThat(computations).hasSize(2);
+    }
+
     @Test
     public void testLoadAllExtraInfo_multipleEventsAgg() throws RemoteException {
         List<Event> events = new ArrayList<>();
@@ -39,6 +39,7 @@ import android.os.RemoteException;
 import android.os.UserHandle;
 import android.os.UserManager;
 
+import org.junit.After;
 import org.junit.Before;
 import org.junit.Ignore;
 import org.junit.Test;
@@ -100,6 +101,7 @@ public final class AppWithAdminGrantedPermissionsCounterTest {
     @Before
     public void setUp() {
         MockitoAnnotations.initMocks(this);
+        AppCountingService.setUpForTest(new AppCountingService(Runnable::run));
         when(mContext.getSystemService(Context.USER_SERVICE)).thenReturn(mUserManager);
 
         mApp1 = buildInfo(APP_1_UID, APP_1, 0 /* flags */, Build.VERSION_CODES.M);
@@ -110,6 +112,11 @@ public final class AppWithAdminGrantedPermissionsCounterTest {
         mApp6 = buildInfo(APP_6_UID, APP_6, 0 /* flags */, Build.VERSION_CODES.M);
     }
 
+    @After
+    public void tearDown() {
+        AppCountingService.setUpForTest(null);
+    }
+
     private void verifyCountInstalledApps(boolean async) throws Exception {
         configureUserManager();
         configurePackageManager();
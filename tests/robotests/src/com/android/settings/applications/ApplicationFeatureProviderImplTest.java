@@ -49,6 +49,7 @@ import com.android.settings.webview.WebViewUpdateServiceWrapper;
 import com.android.settingslib.testutils.shadow.ShadowDefaultDialerManager;
 import com.android.settingslib.testutils.shadow.ShadowSmsApplication;
 
+import org.junit.After;
 import org.junit.Before;
 import org.junit.Ignore;
 import org.junit.Rule;
@@ -118,6 +119,7 @@ public final class ApplicationFeatureProviderImplTest {
     @Before
     public void setUp() {
         MockitoAnnotations.initMocks(this);
+        AppCountingService.setUpForTest(new AppCountingService(Runnable::run));
 
         when(mContext.getApplicationContext()).thenReturn(mContext);
         when(mContext.getSystemService(Context.USER_SERVICE)).thenReturn(mUserManager);
@@ -128,6 +130,11 @@ public final class ApplicationFeatureProviderImplTest {
                 mPackageManagerService, mDevicePolicyManager, mWebViewUpdateServiceWrapper);
     }
 
+    @After
+    public void tearDown() {
+        AppCountingService.setUpForTest(null);
+    }
+
     private void verifyCalculateNumberOfPolicyInstalledApps(boolean async) {
         setUpUsersAndInstalledApps();
 
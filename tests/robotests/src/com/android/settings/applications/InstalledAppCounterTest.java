@@ -43,6 +43,7 @@ import android.os.UserHandle;
 import android.os.UserManager;
 import android.platform.test.flag.junit.SetFlagsRule;
 
+import org.junit.After;
 import org.junit.Before;
 import org.junit.Ignore;
 import org.junit.Rule;
@@ -104,6 +105,7 @@ public final class InstalledAppCounterTest {
     @Before
     public void setUp() {
         MockitoAnnotations.initMocks(this);
+        AppCountingService.setUpForTest(new AppCountingService(Runnable::run));
         when(mContext.getSystemService(UserManager.class)).thenReturn(mUserManager);
         mFakeFeatureFlags = new FakeFeatureFlagsImpl();
         mFakeFeatureFlags.setFlag(Flags.FLAG_ARCHIVING, true);
@@ -125,6 +127,11 @@ public final class InstalledAppCounterTest {
         mApp7.isArchived = true;
     }
 
+    @After
+    public void tearDown() {
+        AppCountingService.setUpForTest(null);
+    }
+
     private void expectQueryIntentActivities(int userId, String packageName, boolean launchable) {
         when(mPackageManager.queryIntentActivitiesAsUser(
                 argThat(isLaunchIntentFor(packageName)),
@@ -0,0 +1,173 @@
+/*
+ * Copyright (C) 2026 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.applications;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import android.content.Context;
+import android.os.ParcelFileDescriptor;
+
+import com.android.internal.app.procstats.IProcessStats;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.shadows.ShadowSystemClock;
+
+import java.io.File;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+@RunWith(RobolectricTestRunner.class)
+public class ProcStatsDataTest {
+    private static final long DURATION = ProcessStatsBase.sDurations[0];
+    private static final long OTHER_DURATION = ProcessStatsBase.sDurations[1];
+
+    @Mock private IProcessStats mProcessStats;
+    private Context mContext;
+    private File mStatsFile;
+
+    @Before
+    public void setUp() throws Exception {
+        MockitoAnnotations.initMocks(this);
+        mContext = RuntimeEnvironment.application;
+        mStatsFile = File.createTempFile("procstats", null);
+        // An empty dump still parses into stats, with a read error.
+        when(mProcessStats.getStatsOverTime(anyLong())).thenAnswer(invocation ->
+                ParcelFileDescriptor.open(mStatsFile, ParcelFileDescriptor.MODE_READ_ONLY));
+        ProcStatsData.clearStatsCache();
+    }
+
+    @After
+    public void tearDown() {
+        ProcStatsData.clearStatsCache();
+        // Clears the transferred stats.
+        new ProcStatsData(mContext, false).xferStats();
+        mStatsFile.delete();
+    }
+
+    @Test
+    public void load_statsCachedByAnotherInstance_reusesThem() throws Exception {
+        final ProcStatsData first = createStatsData(DURATION);
+        first.load(false /* forceLoad */);
+        final ProcStatsData second = createStatsData(DURATION);
+
+        assertThat(second.shouldLoad(false /* forceLoad */)).isTrue();
+        second.load(false /* forceLoad */);
+
+        assertThat(second.getStats()).isSameInstanceAs(first.getStats());
+        assertThat(second.shouldLoad(false /* forceLoad */)).isFalse();
+        verify(mProcessStats, times(1)).getStatsOverTime(DURATION);
+    }
+
+    @Test
+    public void load_afterTtl_readsAgain() throws Exception {
+        final ProcStatsData statsData = createStatsData(DURATION);
+        statsData.load(false /* forceLoad */);
+        ShadowSystemClock.advanceBy(Duration.ofMillis(ProcStatsData.STATS_CACHE_TTL_MS + 1));
+
+        assertThat(statsData.shouldLoad(false /* forceLoad */)).isTrue();
+        statsData.load(false /* forceLoad */);
+
+        verify(mProcessStats, times(2)).getStatsOverTime(DURATION);
+    }
+
+    @Test
+    public void load_forceLoad_readsAgain() throws Exception {
+        final ProcStatsData statsData = createStatsData(DURATION);
+        statsData.load(false /* forceLoad */);
+
+        assertThat(statsData.shouldLoad(true /* forceLoad */)).isTrue();
+        statsData.load(true /* forceLoad */);
+
+        verify(mProcessStats, times(2)).getStatsOverTime(DURATION);
+    }
+
+    @Test
+    public void shouldLoad_otherDuration_true() throws Exception {
+        final ProcStatsData statsData = createStatsData(DURATION);
+        statsData.load(false /* forceLoad */);
+
+        statsData.setDuration(OTHER_DURATION);
+
+        assertThat(statsData.shouldLoad(false /* forceLoad */)).isTrue();
+        verify(mProcessStats, never()).getStatsOverTime(OTHER_DURATION);
+    }
+
+    @Test
+    public void shouldLoad_transferredStats_onlyForOtherDuration() {
+        final ProcStatsData statsData = createStatsData(DURATION);
+        statsData.load(false /* forceLoad */);
+        statsData.xferStats();
+
+        final ProcStatsData transferred = new ProcStatsData(mContext, true /* useXfer */);
+        transferred.setDuration(DURATION);
+        assertThat(transferred.getStats()).isSameInstanceAs(statsData.getStats());
+        assertThat(transferred.shouldLoad(false /* forceLoad */)).isFalse();
+
+        transferred.setDuration(OTHER_DURATION);
+        assertThat(transferred.shouldLoad(false /* forceLoad */)).isTrue();
+    }
+
+    @Test
+    public void copy_keepsStatsAndDuration() {
+        final ProcStatsData statsData = createStatsData(DURATION);
+        statsData.load(false /* forceLoad */);
+
+        final ProcStatsData copy = new ProcStatsData(statsData);
+
+        assertThat(copy.getStats()).isSameInstanceAs(statsData.getStats());
+        assertThat(copy.getDuration()).isEqualTo(DURATION);
+        assertThat(copy.shouldLoad(false /* forceLoad */)).isFalse();
+    }
+
+    @Test
+    public void evaluateTargetPackages_manyProcesses_evaluatesEveryOne() {
+        final List<ProcStatsEntry> entries = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            final ProcStatsEntry entry = new ProcStatsEntry("package" + i, 10000 + i,
+                    "process" + i, 1000L /* duration */, 10L /* mem */, 1000L /* memDuration */);
+            entry.addPackage("package" + i);
+            entries.add(entry);
+        }
+
+        createStatsData(DURATION).evaluateTargetPackages(entries);
+
+        for (int i = 0; i < entries.size(); i++) {
+            assertThat(entries.get(i).mBestTargetPackage).isEqualTo("package" + i);
+        }
+    }
+
+    private ProcStatsData createStatsData(long duration) {
+        final ProcStatsData statsData = new ProcStatsData(mContext, false /* useXfer */);
+        statsData.mProcessStats = mProcessStats;
+        statsData.setDuration(duration);
+        return statsData;
+    }
+}
@@ -25,6 +25,8 @@ import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import android.app.usage.UsageStats;
@@ -106,6 +108,7 @@ public class RecentAppStatsMixinTest {
                 .thenReturn(new ArrayList<>(Arrays.asList(NORMAL_USER)));
 
         mRecentAppStatsMixin = new RecentAppStatsMixin(mContext, 3 /* maximumApps */);
+        RecentAppStatsMixin.clearCache();
     }
 
     @Test
@@ -486,4 +489,30 @@ public class RecentAppStatsMixinTest {
         assertThat(mRecentAppStatsMixin.mRecentApps.get(3).mUsageStats.mPackageName).isEqualTo(
                 "personal.pkg.class2");
     }
+
+    @Test
+    public void onStart_freshCache_callsListenerBackWithoutQuerying() {
+        final List<UsageStats> stats = new ArrayList<>();
+        final UsageStats stat1 = new UsageStats();
+        stat1.mLastTimeUsed = System.currentTimeMillis();
+        stat1.mPackageName = "pkg.class";
+        stats.add(stat1);
+        when(mAppState.getEntry(stat1.mPackageName, UserHandle.myUserId()))
+                .thenReturn(mAppEntry);
+        when(mPackageManager.resolveActivityAsUser(any(Intent.class), anyInt(), anyInt()))
+                .thenReturn(new ResolveInfo());
+        when(mUsageStatsManager.queryUsageStats(anyInt(), anyLong(), anyLong()))
+                .thenReturn(stats);
+        mAppEntry.info = mApplicationInfo;
+        mRecentAppStatsMixin.loadDisplayableRecentApps(3);
+
+        final List<RecentAppStatsMixin.UsageStatsWrapper> reloadedApps = new ArrayList<>();
+        final RecentAppStatsMixin mixin = new RecentAppStatsMixin(mContext, 3 /* maximumApps */);
+        mixin.addListener(reloadedApps::addAll);
+        mixin.onStart();
+
+        assertThat(reloadedApps).hasSize(1);
+        assertThat(reloadedApps.get(0).mUsageStats.mPackageName).isEqualTo("pkg.class");
+        verify(mUsageStatsManager, times(1)).queryUsageStats(anyInt(), anyLong(), anyLong());
+    }
 }
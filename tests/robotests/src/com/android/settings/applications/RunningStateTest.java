@@ -0,0 +1,172 @@
+/*
+ * Copyright (C) 2026 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.applications;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import android.app.ActivityManager;
+import android.content.ComponentName;
+import android.content.Context;
+import android.content.pm.PackageManager;
+import android.content.res.Configuration;
+import android.content.res.Resources;
+import android.os.UserHandle;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+
+import java.util.Locale;
+
+@RunWith(RobolectricTestRunner.class)
+public class RunningStateTest {
+    private static final int UID = 10001;
+    private static final String CLIENT_PACKAGE = "com.example.client";
+    private static final int CLIENT_LABEL = 0x7f010001;
+    private static final int OTHER_CLIENT_LABEL = 0x7f010002;
+    private static final ComponentName SERVICE =
+            new ComponentName("com.example.app", "com.example.app.Service");
+
+    @Mock private PackageManager mPackageManager;
+    @Mock private Resources mClientResources;
+    private Context mContext;
+
+    @Before
+    public void setUp() throws Exception {
+        MockitoAnnotations.initMocks(this);
+        mContext = spy(RuntimeEnvironment.application);
+        doReturn(mPackageManager).when(mContext).getPackageManager();
+        when(mPackageManager.getResourcesForApplication(CLIENT_PACKAGE))
+                .thenReturn(mClientResources);
+        when(mClientResources.getString(CLIENT_LABEL)).thenReturn("Client");
+        when(mClientResources.getString(OTHER_CLIENT_LABEL)).thenReturn("Other client");
+    }
+
+    @After
+    public void tearDown() {
+        synchronized (RunningState.sGlobalLock) {
+            if (RunningState.sInstance != null) {
+                RunningState.sInstance.mBackgroundThread.quit();
+                RunningState.sInstance = null;
+            }
+        }
+    }
+
+    @Test
+    public void getNextContentsUpdateDelay_unchanged_backsOffToMax() {
+        long delay = RunningState.CONTENTS_UPDATE_DELAY;
+
+        delay = RunningState.getNextContentsUpdateDelay(delay, false /* reset */);
+        assertThat(delay).isEqualTo(4000L);
+        delay = RunningState.getNextContentsUpdateDelay(delay, false /* reset */);
+        assertThat(delay).isEqualTo(8000L);
+        delay = RunningState.getNextContentsUpdateDelay(delay, false /* reset */);
+        assertThat(delay).isEqualTo(RunningState.MAX_CONTENTS_UPDATE_DELAY);
+    }
+
+    @Test
+    public void getNextContentsUpdateDelay_reset_backToMin() {
+        assertThat(RunningState.getNextContentsUpdateDelay(
+                RunningState.MAX_CONTENTS_UPDATE_DELAY, true /* reset */))
+                .isEqualTo(RunningState.CONTENTS_UPDATE_DELAY);
+    }
+
+    @Test
+    public void uidImportanceChanged_backedOff_pollsAtMinDelayAgain() {
+        final RunningState state = RunningState.getInstance(mContext);
+        final RunningState.BackgroundHandler handler = state.mBackgroundHandler;
+        state.mContentsUpdateDelay = RunningState.MAX_CONTENTS_UPDATE_DELAY;
+
+        state.mUidImportanceListener.onUidImportance(UID,
+                ActivityManager.RunningAppProcessInfo.IMPORTANCE_FOREGROUND);
+        state.mUidImportanceListener.onUidImportance(UID,
+                ActivityManager.RunningAppProcessInfo.IMPORTANCE_CACHED);
+        assertThat(handler.hasMessages(RunningState.MSG_UID_STATE_CHANGED)).isTrue();
+        handler.removeMessages(RunningState.MSG_UID_STATE_CHANGED);
+        handler.handleMessage(handler.obtainMessage(RunningState.MSG_UID_STATE_CHANGED));
+
+        assertThat(state.mContentsUpdateDelay).isEqualTo(RunningState.CONTENTS_UPDATE_DELAY);
+    }
+
+    @Test
+    public void updateService_sameClient_resolvesLabelOnce() throws Exception {
+        final RunningState.ProcessItem process = createProcessWithService();
+        final ActivityManager.RunningServiceInfo service = createService(CLIENT_LABEL);
+
+        process.updateService(mContext, service);
+        process.updateService(mContext, service);
+
+        verify(mPackageManager, times(1)).getResourcesForApplication(CLIENT_PACKAGE);
+        assertThat(process.mServices.get(SERVICE).mDescription).contains("Client");
+    }
+
+    @Test
+    public void updateService_otherClientLabel_resolvesLabelAgain() throws Exception {
+        final RunningState.ProcessItem process = createProcessWithService();
+
+        process.updateService(mContext, createService(CLIENT_LABEL));
+        process.updateService(mContext, createService(OTHER_CLIENT_LABEL));
+
+        verify(mPackageManager, times(2)).getResourcesForApplication(CLIENT_PACKAGE);
+        assertThat(process.mServices.get(SERVICE).mDescription).contains("Other client");
+    }
+
+    @Test
+    public void updateService_configurationChanged_resolvesLabelAgain() throws Exception {
+        final RunningState.ProcessItem process = createProcessWithService();
+        final ActivityManager.RunningServiceInfo service = createService(CLIENT_LABEL);
+        process.updateService(mContext, service);
+
+        // As if the description was resolved before a locale change.
+        final Configuration oldConfig =
+                new Configuration(mContext.getResources().getConfiguration());
+        oldConfig.setLocale(Locale.JAPANESE);
+        process.mServices.get(SERVICE).mDescriptionConfig = oldConfig;
+        process.updateService(mContext, service);
+
+        verify(mPackageManager, times(2)).getResourcesForApplication(CLIENT_PACKAGE);
+    }
+
+    private RunningState.ProcessItem createProcessWithService() {
+        final RunningState.ProcessItem process =
+                new RunningState.ProcessItem(mContext, UID, "com.example.app");
+        // Already known, so updating it doesn't look its service info up.
+        process.mServices.put(SERVICE, new RunningState.ServiceItem(UserHandle.getUserId(UID)));
+        return process;
+    }
+
+    private static ActivityManager.RunningServiceInfo createService(int clientLabel) {
+        final ActivityManager.RunningServiceInfo service =
+                new ActivityManager.RunningServiceInfo();
+        service.service = SERVICE;
+        service.uid = UID;
+        service.clientPackage = CLIENT_PACKAGE;
+        service.clientLabel = clientLabel;
+        return service;
+    }
+}
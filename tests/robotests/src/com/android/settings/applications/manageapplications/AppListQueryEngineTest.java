@@ -0,0 +1,150 @@
+/*
+ * Copyright (C) 2026 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.applications.manageapplications;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import android.content.Context;
+import android.content.pm.ApplicationInfo;
+
+import com.android.settingslib.applications.ApplicationsState;
+import com.android.settingslib.applications.ApplicationsState.AppEntry;
+import com.android.settingslib.applications.ApplicationsState.AppFilter;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+@RunWith(RobolectricTestRunner.class)
+public class AppListQueryEngineTest {
+
+    @Mock
+    private ApplicationsState.Session mSession;
+
+    private Context mContext;
+    private AppListQueryEngine mEngine;
+    private CountingFilter mStartsWithB;
+    private CountingFilter mLongLabel;
+
+    @Before
+    public void setUp() {
+        MockitoAnnotations.initMocks(this);
+        mContext = RuntimeEnvironment.application;
+        when(mSession.getAllApps()).thenReturn(
+                createApps("Cherry", "Banana", "Apple", "Blueberry", "Bean"));
+        mEngine = new AppListQueryEngine(mContext, mSession);
+        mStartsWithB = new CountingFilter(entry -> entry.label.startsWith("B"));
+        mLongLabel = new CountingFilter(entry -> entry.label.length() > 4);
+    }
+
+    @Test
+    public void query_multipleFilters_returnsIntersectionInComparatorOrder() {
+        final List<AppEntry> result = mEngine.query(Arrays.asList(mStartsWithB, mLongLabel),
+                ApplicationsState.ALPHA_COMPARATOR);
+
+        assertThat(getLabels(result)).containsExactly("Banana", "Blueberry").inOrder();
+    }
+
+    @Test
+    public void query_noFilter_returnsAllAppsSorted() {
+        final List<AppEntry> result =
+                mEngine.query(Collections.emptyList(), ApplicationsState.ALPHA_COMPARATOR);
+
+        assertThat(getLabels(result))
+                .containsExactly("Apple", "Banana", "Bean", "Blueberry", "Cherry").inOrder();
+    }
+
+    @Test
+    public void query_repeatedWithOtherFilters_evaluatesEachFilterOnce() {
+        mEngine.query(Arrays.asList(mStartsWithB, mLongLabel), ApplicationsState.ALPHA_COMPARATOR);
+        mEngine.query(Collections.singletonList(mStartsWithB), ApplicationsState.ALPHA_COMPARATOR);
+        mEngine.query(Collections.singletonList(mLongLabel), ApplicationsState.ALPHA_COMPARATOR);
+
+        assertThat(mStartsWithB.mCalls).isEqualTo(5);
+        assertThat(mLongLabel.mCalls).isEqualTo(5);
+        verify(mSession, times(1)).getAllApps();
+    }
+
+    @Test
+    public void query_afterInvalidate_reloadsApps() {
+        mEngine.query(Collections.singletonList(mStartsWithB), ApplicationsState.ALPHA_COMPARATOR);
+        when(mSession.getAllApps()).thenReturn(createApps("Blackberry", "Apricot"));
+
+        mEngine.invalidate();
+        final List<AppEntry> result = mEngine.query(Collections.singletonList(mStartsWithB),
+                ApplicationsState.ALPHA_COMPARATOR);
+
+        assertThat(getLabels(result)).containsExactly("Blackberry");
+    }
+
+    private static ArrayList<AppEntry> createApps(String... labels) {
+        final ArrayList<AppEntry> apps = new ArrayList<>();
+        for (String label : labels) {
+            final AppEntry entry = mock(AppEntry.class);
+            entry.label = label;
+            entry.info = new ApplicationInfo();
+            entry.info.packageName = "com.example." + label.toLowerCase();
+            apps.add(entry);
+        }
+        return apps;
+    }
+
+    private static List<String> getLabels(List<AppEntry> entries) {
+        final List<String> labels = new ArrayList<>();
+        for (AppEntry entry : entries) {
+            labels.add(entry.label);
+        }
+        return labels;
+    }
+
+    private interface Predicate {
+        boolean test(AppEntry entry);
+    }
+
+    private static class CountingFilter implements AppFilter {
+        private final Predicate mPredicate;
+        int mCalls;
+
+        CountingFilter(Predicate predicate) {
+            mPredicate = predicate;
+        }
+
+        @Override
+        public void init() {
+        }
+
+        @Override
+        public boolean filterApp(AppEntry entry) {
+            mCalls++;
+            return mPredicate.test(entry);
+        }
+    }
+}
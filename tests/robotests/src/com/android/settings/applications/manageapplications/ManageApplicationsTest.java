@@ -35,6 +35,7 @@ import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.spy;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
+import static org.robolectric.Shadows.shadowOf;
 
 import android.content.Context;
 import android.content.pm.ApplicationInfo;
@@ -74,6 +75,7 @@ import org.robolectric.annotation.Config;
 import org.robolectric.fakes.RoboMenuItem;
 import org.robolectric.util.ReflectionHelpers;
 
+import java.time.Duration;
 import java.util.ArrayList;
 
 @RunWith(RobolectricTestRunner.class)
@@ -456,6 +458,58 @@ public class ManageApplicationsTest {
         assertThat(adapter.getAppEntry(2).label).isEqualTo("Mango");
     }
 
+    @Test
+    public void applicationsAdapter_filterSearch_ignoresCaseAndAccents() {
+        final ManageApplications.ApplicationsAdapter adapter =
+                new ManageApplications.ApplicationsAdapter(
+                        mState, mFragment, mock(AppFilterItem.class), Bundle.EMPTY);
+        final String[] appNames = {"Café", "Crème", "Calendar"};
+        ReflectionHelpers.setField(adapter, "mOriginalEntries", getTestAppList(appNames));
+
+        adapter.filterSearch("CAFE");
+
+        assertThat(adapter.getItemCount()).isEqualTo(1);
+        assertThat(adapter.getAppEntry(0).label).isEqualTo("Café");
+    }
+
+    @Test
+    public void applicationsAdapter_filterSearch_extendedQuery_narrowsPreviousMatches() {
+        final ManageApplications.ApplicationsAdapter adapter =
+                new ManageApplications.ApplicationsAdapter(
+                        mState, mFragment, mock(AppFilterItem.class), Bundle.EMPTY);
+        final String[] appNames = {"Apricot", "Banana", "Cantaloupe", "Fig", "Mango"};
+        ReflectionHelpers.setField(adapter, "mOriginalEntries", getTestAppList(appNames));
+
+        adapter.filterSearch("an");
+        adapter.filterSearch("ang");
+
+        assertThat(adapter.getItemCount()).isEqualTo(1);
+        assertThat(adapter.getAppEntry(0).label).isEqualTo("Mango");
+
+        adapter.filterSearch("a");
+
+        assertThat(adapter.getItemCount()).isEqualTo(4);
+    }
+
+    @Test
+    public void applicationsAdapter_onSearchQueryChanged_filtersAfterTypingPauses() {
+        final ManageApplications.ApplicationsAdapter adapter =
+                new ManageApplications.ApplicationsAdapter(
+                        mState, mFragment, mock(AppFilterItem.class), Bundle.EMPTY);
+        final String[] appNames = {"Apricot", "Banana", "Cantaloupe", "Fig", "Mango"};
+        ReflectionHelpers.setField(adapter, "mOriginalEntries", getTestAppList(appNames));
+
+        adapter.onSearchQueryChanged("m");
+        adapter.onSearchQueryChanged("ma");
+        adapter.onSearchQueryChanged("man");
+        assertThat(adapter.getItemCount()).isEqualTo(0);
+
+        shadowOf(Looper.getMainLooper()).idleFor(Duration.ofSeconds(1));
+
+        assertThat(adapter.getItemCount()).isEqualTo(1);
+        assertThat(adapter.getAppEntry(0).label).isEqualTo("Mango");
+    }
+
     @Test
     public void sortOrderSavedOnRebuild() {
         when(mUserManager.getProfileIdsWithDisabled(anyInt())).thenReturn(new int[]{});
@@ -54,6 +54,7 @@ public class BatteryInfoLoaderTest {
     @Before
     public void setUp() {
         MockitoAnnotations.initMocks(this);
+        BatteryUsageStatsCache.setUpForTest(null);
         mContext = spy(RuntimeEnvironment.application);
         FakeFeatureFactory.setupForTest().getPowerUsageFeatureProvider();
 
@@ -0,0 +1,191 @@
+/*
+ * Copyright (C) 2026 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.fuelgauge;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import android.content.Context;
+import android.os.BatteryStatsManager;
+import android.os.BatteryUsageStats;
+import android.os.BatteryUsageStatsQuery;
+import android.os.Handler;
+import android.os.Looper;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.shadows.ShadowSystemClock;
+
+import java.time.Duration;
+
+@RunWith(RobolectricTestRunner.class)
+public class BatteryUsageStatsCacheTest {
+    private static final BatteryUsageStatsQuery QUERY_WITH_HISTORY =
+            new BatteryUsageStatsQuery.Builder().includeBatteryHistory().build();
+    private static final BatteryUsageStatsQuery QUERY_WITH_HISTORY_AND_PROCESS_STATE =
+            new BatteryUsageStatsQuery.Builder()
+                    .includeBatteryHistory()
+                    .includeProcessStateData()
+                    .build();
+
+    @Mock private BatteryStatsManager mBatteryStatsManager;
+    @Mock private BatteryUsageStats mBatteryUsageStats;
+    @Mock private BatteryUsageStats mNewBatteryUsageStats;
+    private Context mContext;
+    private BatteryUsageStatsCache mCache;
+
+    @Before
+    public void setUp() {
+        MockitoAnnotations.initMocks(this);
+        mContext = spy(RuntimeEnvironment.application);
+        doReturn(mBatteryStatsManager)
+                .when(mContext)
+                .getSystemService(Context.BATTERY_STATS_SERVICE);
+        when(mBatteryStatsManager.getBatteryUsageStats(any(BatteryUsageStatsQuery.class)))
+                .thenReturn(mBatteryUsageStats, mNewBatteryUsageStats);
+        mCache = new BatteryUsageStatsCache(new Handler(Looper.getMainLooper()));
+    }
+
+    @Test
+    public void acquire_withinTtl_sharesSnapshot() {
+        final BatteryUsageStats first = mCache.acquire(mContext, QUERY_WITH_HISTORY);
+        final BatteryUsageStats second = mCache.acquire(mContext, QUERY_WITH_HISTORY);
+
+        assertThat(second).isSameInstanceAs(first);
+        verify(mBatteryStatsManager, times(1))
+                .getBatteryUsageStats(any(BatteryUsageStatsQuery.class));
+    }
+
+    @Test
+    public void acquire_coveredQuery_reusesWiderSnapshot() {
+        mCache.acquire(mContext, QUERY_WITH_HISTORY_AND_PROCESS_STATE);
+
+        final BatteryUsageStats stats = mCache.acquire(mContext, QUERY_WITH_HISTORY);
+
+        assertThat(stats).isSameInstanceAs(mBatteryUsageStats);
+    }
+
+    @Test
+    public void acquire_notCoveredQuery_fetchesNewSnapshot() {
+        mCache.acquire(mContext, QUERY_WITH_HISTORY);
+
+        final BatteryUsageStats stats =
+                mCache.acquire(mContext, QUERY_WITH_HISTORY_AND_PROCESS_STATE);
+
+        assertThat(stats).isSameInstanceAs(mNewBatteryUsageStats);
+    }
+
+    @Test
+    public void acquire_afterTtl_fetchesNewSnapshot() {
+        mCache.acquire(mContext, QUERY_WITH_HISTORY);
+        ShadowSystemClock.advanceBy(Duration.ofMillis(BatteryUsageStatsCache.TTL_MS));
+
+        final BatteryUsageStats stats = mCache.acquire(mContext, QUERY_WITH_HISTORY);
+
+        assertThat(stats).isSameInstanceAs(mNewBatteryUsageStats);
+    }
+
+    @Test
+    public void release_stillReferenced_doesNotClose() throws Exception {
+        final BatteryUsageStats first = mCache.acquire(mContext, QUERY_WITH_HISTORY);
+        mCache.acquire(mContext, QUERY_WITH_HISTORY);
+        ShadowSystemClock.advanceBy(Duration.ofMillis(BatteryUsageStatsCache.TTL_MS));
+
+        mCache.release(first);
+
+        verify(mBatteryUsageStats, never()).close();
+    }
+
+    @Test
+    public void release_lastReferenceAfterTtl_closes() throws Exception {
+        final BatteryUsageStats first = mCache.acquire(mContext, QUERY_WITH_HISTORY);
+        final BatteryUsageStats second = mCache.acquire(mContext, QUERY_WITH_HISTORY);
+        ShadowSystemClock.advanceBy(Duration.ofMillis(BatteryUsageStatsCache.TTL_MS));
+
+        mCache.release(first);
+        mCache.release(second);
+
+        verify(mBatteryUsageStats).close();
+    }
+
+    @Test
+    public void release_unbalanced_doesNotClose() throws Exception {
+        final BatteryUsageStats stats = mCache.acquire(mContext, QUERY_WITH_HISTORY);
+        mCache.release(stats);
+        ShadowSystemClock.advanceBy(Duration.ofMillis(BatteryUsageStatsCache.TTL_MS));
+
+        mCache.release(stats);
+
+        verify(mBatteryUsageStats, never()).close();
+    }
+
+    @Test
+    public void retain_heldSnapshot_keepsItOpenUntilReleased() throws Exception {
+        final BatteryUsageStats stats = mCache.acquire(mContext, QUERY_WITH_HISTORY);
+
+        assertThat(mCache.retain(stats)).isTrue();
+        ShadowSystemClock.advanceBy(Duration.ofMillis(BatteryUsageStatsCache.TTL_MS));
+        mCache.release(stats);
+        verify(mBatteryUsageStats, never()).close();
+        mCache.release(stats);
+
+        verify(mBatteryUsageStats).close();
+    }
+
+    @Test
+    public void retain_closedSnapshot_returnsFalse() {
+        final BatteryUsageStats stats = mCache.acquire(mContext, QUERY_WITH_HISTORY);
+        ShadowSystemClock.advanceBy(Duration.ofMillis(BatteryUsageStatsCache.TTL_MS));
+        mCache.release(stats);
+
+        assertThat(mCache.retain(stats)).isFalse();
+    }
+
+    @Test
+    public void trimExpired_unreferencedSnapshot_closes() throws Exception {
+        mCache.release(mCache.acquire(mContext, QUERY_WITH_HISTORY));
+        verify(mBatteryUsageStats, never()).close();
+        ShadowSystemClock.advanceBy(Duration.ofMillis(BatteryUsageStatsCache.TTL_MS));
+
+        mCache.trimExpired();
+
+        verify(mBatteryUsageStats).close();
+    }
+
+    @Test
+    public void invalidate_fetchesNewSnapshot() throws Exception {
+        mCache.release(mCache.acquire(mContext, QUERY_WITH_HISTORY));
+
+        mCache.invalidate();
+        final BatteryUsageStats stats = mCache.acquire(mContext, QUERY_WITH_HISTORY);
+
+        verify(mBatteryUsageStats).close();
+        assertThat(stats).isSameInstanceAs(mNewBatteryUsageStats);
+    }
+}
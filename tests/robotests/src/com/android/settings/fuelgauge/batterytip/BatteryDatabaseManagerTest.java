@@ -0,0 +1,152 @@
+/*
+ * Copyright (C) 2026 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.fuelgauge.batterytip;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import android.content.Context;
+
+import androidx.test.core.app.ApplicationProvider;
+
+import com.android.settings.testutils.DatabaseTestUtils;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@RunWith(RobolectricTestRunner.class)
+public class BatteryDatabaseManagerTest {
+    private static final int UID_1 = 10001;
+    private static final int UID_2 = 10002;
+    private static final String PACKAGE_NAME_1 = "com.android.app1";
+    private static final String PACKAGE_NAME_2 = "com.android.app2";
+    private static final int ANOMALY_WAKEUP = 0;
+    private static final int ANOMALY_BT = 1;
+    private static final long NOW = 1000L;
+    private static final long ONE_DAY_BEFORE = 100L;
+
+    private Context mContext;
+    private BatteryDatabaseManager mBatteryDatabaseManager;
+    private List<AppInfo> mAppInfos;
+
+    @Before
+    public void setUp() {
+        mContext = ApplicationProvider.getApplicationContext();
+        mBatteryDatabaseManager = BatteryDatabaseManager.getInstance(mContext);
+        mAppInfos = new ArrayList<>();
+        mAppInfos.add(
+                new AppInfo.Builder()
+                        .setUid(UID_1)
+                        .setPackageName(PACKAGE_NAME_1)
+                        .addAnomalyType(ANOMALY_WAKEUP)
+                        .addAnomalyType(ANOMALY_BT)
+                        .build());
+        mAppInfos.add(
+                new AppInfo.Builder()
+                        .setUid(UID_2)
+                        .setPackageName(PACKAGE_NAME_2)
+                        .addAnomalyType(ANOMALY_WAKEUP)
+                        .build());
+    }
+
+    @After
+    public void cleanUp() {
+        DatabaseTestUtils.clearDb(mContext);
+    }
+
+    @Test
+    public void insertAnomalies_insertsEveryAnomalyType() {
+        final int count =
+                mBatteryDatabaseManager.insertAnomalies(
+                        mAppInfos, AnomalyDatabaseHelper.State.NEW, NOW);
+
+        final List<AppInfo> newAppInfos =
+                mBatteryDatabaseManager.queryAllAnomalies(
+                        ONE_DAY_BEFORE, AnomalyDatabaseHelper.State.NEW);
+        assertThat(count).isEqualTo(3);
+        assertThat(newAppInfos).hasSize(2);
+    }
+
+    @Test
+    public void insertAnomalies_duplicatedRows_ignored() {
+        mBatteryDatabaseManager.insertAnomalies(mAppInfos, AnomalyDatabaseHelper.State.NEW, NOW);
+
+        final int count =
+                mBatteryDatabaseManager.insertAnomalies(
+                        mAppInfos, AnomalyDatabaseHelper.State.NEW, NOW);
+
+        assertThat(count).isEqualTo(0);
+    }
+
+    @Test
+    public void insertAnomaly_insertsSingleRow() {
+        final boolean inserted =
+                mBatteryDatabaseManager.insertAnomaly(
+                        UID_1, PACKAGE_NAME_1, ANOMALY_WAKEUP, AnomalyDatabaseHelper.State.NEW, NOW);
+
+        assertThat(inserted).isTrue();
+        assertThat(
+                        mBatteryDatabaseManager.queryAllAnomalies(
+                                ONE_DAY_BEFORE, AnomalyDatabaseHelper.State.NEW))
+                .hasSize(1);
+    }
+
+    @Test
+    public void onUpgrade_fromVersion5_keepsAnomalies() {
+        mBatteryDatabaseManager.insertAnomalies(mAppInfos, AnomalyDatabaseHelper.State.NEW, NOW);
+        final AnomalyDatabaseHelper helper = AnomalyDatabaseHelper.getInstance(mContext);
+
+        helper.onUpgrade(helper.getWritableDatabase(), 5 /* oldVersion */, 6 /* newVersion */);
+
+        assertThat(
+                        mBatteryDatabaseManager.queryAllAnomalies(
+                                ONE_DAY_BEFORE, AnomalyDatabaseHelper.State.NEW))
+                .hasSize(2);
+    }
+
+    @Test
+    public void updateAnomalies_updatesStateInOneTransaction() {
+        mBatteryDatabaseManager.insertAnomalies(mAppInfos, AnomalyDatabaseHelper.State.NEW, NOW);
+
+        mBatteryDatabaseManager.updateAnomalies(mAppInfos, AnomalyDatabaseHelper.State.HANDLED);
+
+        assertThat(
+                        mBatteryDatabaseManager.queryAllAnomalies(
+                                ONE_DAY_BEFORE, AnomalyDatabaseHelper.State.NEW))
+                .isEmpty();
+        assertThat(
+                        mBatteryDatabaseManager.queryAllAnomalies(
+                                ONE_DAY_BEFORE, AnomalyDatabaseHelper.State.HANDLED))
+                .hasSize(2);
+    }
+
+    @Test
+    public void deleteAllAnomaliesBeforeTimeStamp_removesOldAnomalies() {
+        mBatteryDatabaseManager.insertAnomalies(
+                mAppInfos, AnomalyDatabaseHelper.State.NEW, ONE_DAY_BEFORE);
+
+        mBatteryDatabaseManager.deleteAllAnomaliesBeforeTimeStamp(NOW);
+
+        assertThat(mBatteryDatabaseManager.queryAllAnomalies(0L, AnomalyDatabaseHelper.State.NEW))
+                .isEmpty();
+    }
+}
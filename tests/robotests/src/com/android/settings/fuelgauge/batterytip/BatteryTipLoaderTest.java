@@ -33,6 +33,8 @@ import com.android.settings.fuelgauge.batterytip.tips.AppLabelPredicate;
 import com.android.settings.fuelgauge.batterytip.tips.AppRestrictionPredicate;
 import com.android.settings.fuelgauge.batterytip.tips.BatteryTip;
 
+import com.google.common.util.concurrent.MoreExecutors;
+
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
@@ -45,6 +47,9 @@ import org.robolectric.RuntimeEnvironment;
 import org.robolectric.util.ReflectionHelpers;
 
 import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 @RunWith(RobolectricTestRunner.class)
 public class BatteryTipLoaderTest {
@@ -77,6 +82,7 @@ public class BatteryTipLoaderTest {
         doReturn(mBatteryInfo).when(mBatteryUtils).getBatteryInfo(any());
         mBatteryTipLoader = new BatteryTipLoader(mContext, mBatteryUsageStats);
         mBatteryTipLoader.mBatteryUtils = mBatteryUtils;
+        mBatteryTipLoader.mExecutor = MoreExecutors.newDirectExecutorService();
     }
 
     @After
@@ -94,4 +100,43 @@ public class BatteryTipLoaderTest {
             assertThat(batteryTips.get(i).getType()).isEqualTo(TIP_ORDER[i]);
         }
     }
+
+    @Test
+    public void testLoadBackground_statsAlreadyReleased_returnsInvisibleHighUsageTip() {
+        // The mocked snapshot isn't held by the cache, like one its loader already released.
+        final List<BatteryTip> batteryTips = mBatteryTipLoader.loadInBackground();
+
+        final BatteryTip highUsageTip = batteryTips.get(TIP_ORDER.length - 1);
+        assertThat(highUsageTip.getType()).isEqualTo(BatteryTip.TipType.HIGH_DEVICE_USAGE);
+        assertThat(highUsageTip.getState()).isEqualTo(BatteryTip.StateType.INVISIBLE);
+    }
+
+    @Test
+    public void testLoadBackground_detectorTimesOut_returnsInvisibleTipWithOrder() {
+        final ExecutorService executor = Executors.newSingleThreadExecutor();
+        mBatteryTipLoader.mExecutor = executor;
+        mBatteryTipLoader.mDetectorTimeoutMs = 1L;
+        mBatteryTipLoader.mHighUsageDetectorTimeoutMs = 1L;
+        final CountDownLatch blocker = new CountDownLatch(1);
+        // Occupies the only thread so every detector exceeds its budget.
+        executor.submit(
+                () -> {
+                    blocker.await();
+                    return null;
+                });
+
+        try {
+            final List<BatteryTip> batteryTips = mBatteryTipLoader.loadInBackground();
+
+            assertThat(batteryTips.size()).isEqualTo(TIP_ORDER.length);
+            for (int i = 0, size = batteryTips.size(); i < size; i++) {
+                assertThat(batteryTips.get(i).getType()).isEqualTo(TIP_ORDER[i]);
+            }
+            assertThat(batteryTips.get(TIP_ORDER.length - 1).getState())
+                    .isEqualTo(BatteryTip.StateType.INVISIBLE);
+        } finally {
+            blocker.countDown();
+            executor.shutdownNow();
+        }
+    }
 }
@@ -33,6 +33,7 @@ import android.os.BatteryUsageStats;
 import android.os.BatteryUsageStatsQuery;
 import android.os.UidBatteryConsumer;
 
+import com.android.settings.fuelgauge.BatteryUsageStatsCache;
 import com.android.settings.fuelgauge.BatteryUtils;
 import com.android.settings.fuelgauge.batterytip.AppInfo;
 import com.android.settings.fuelgauge.batterytip.BatteryTipPolicy;
@@ -78,6 +79,7 @@ public class HighUsageDetectorTest {
     @Before
     public void setUp() {
         MockitoAnnotations.initMocks(this);
+        BatteryUsageStatsCache.setUpForTest(null);
 
         mContext = spy(RuntimeEnvironment.application);
         mPolicy = spy(new BatteryTipPolicy(mContext));
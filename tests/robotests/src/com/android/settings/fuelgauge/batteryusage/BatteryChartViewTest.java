@@ -20,6 +20,8 @@ import static com.google.common.truth.Truth.assertThat;
 import static org.mockito.Mockito.spy;
 
 import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
 import android.os.LocaleList;
 import android.view.View;
 
@@ -91,4 +93,38 @@ public final class BatteryChartViewTest {
         mBatteryChartView.onClick(mMockView);
         assertThat(selectedIndex[0]).isEqualTo(BatteryChartViewModel.SELECTED_INDEX_ALL);
     }
+
+    @Test
+    public void draw_selectionChanged_reusesStaticLayer() {
+        final BatteryChartView batteryChartView = new BatteryChartView(mContext, null);
+        final BatteryChartViewModel batteryChartViewModel =
+                new BatteryChartViewModel(
+                        List.of(90, 80, 70, 60),
+                        List.of(0L, 0L, 0L, 0L),
+                        BatteryChartViewModel.AxisLabelPosition.BETWEEN_TRAPEZOIDS,
+                        null);
+        batteryChartView.setViewModel(batteryChartViewModel);
+        batteryChartView.layout(0, 0, 300, 200);
+        final Canvas canvas = new Canvas(Bitmap.createBitmap(300, 200, Bitmap.Config.ARGB_8888));
+
+        batteryChartView.draw(canvas);
+        assertThat(batteryChartView.mStaticLayerDirty).isFalse();
+
+        batteryChartViewModel.setSelectedIndex(1);
+        batteryChartView.invalidate();
+        batteryChartView.draw(canvas);
+        assertThat(batteryChartView.mStaticLayerDirty).isFalse();
+
+        // A select-only update hands the same levels and labels back.
+        batteryChartView.setViewModel(batteryChartViewModel);
+        assertThat(batteryChartView.mStaticLayerDirty).isFalse();
+
+        batteryChartView.setViewModel(
+                new BatteryChartViewModel(
+                        List.of(90, 80, 70, 50),
+                        List.of(0L, 0L, 0L, 0L),
+                        BatteryChartViewModel.AxisLabelPosition.BETWEEN_TRAPEZOIDS,
+                        null));
+        assertThat(batteryChartView.mStaticLayerDirty).isTrue();
+    }
 }
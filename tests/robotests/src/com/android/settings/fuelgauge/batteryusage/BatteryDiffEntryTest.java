@@ -35,6 +35,7 @@ import android.os.UserHandle;
 import android.os.UserManager;
 
 import com.android.settings.R;
+import com.android.settings.applications.AppIconLabelCache;
 import com.android.settings.fuelgauge.BatteryUtils;
 
 import org.junit.Before;
@@ -97,6 +98,7 @@ public final class BatteryDiffEntryTest {
                 .when(mMockPackageManager)
                 .getPackageUidAsUser(UID_ZERO_PACKAGE_NAME, PackageManager.GET_META_DATA, USER_ID);
         BatteryDiffEntry.clearCache();
+        AppIconLabelCache.getInstance().clear();
     }
 
     @Test
@@ -63,6 +63,7 @@ public final class BatteryUsageDataLoaderTest {
     @Before
     public void setUp() {
         MockitoAnnotations.initMocks(this);
+        BatteryUsageStatsCache.setUpForTest(null);
         mContext = spy(RuntimeEnvironment.application);
         doReturn(mContext).when(mContext).getApplicationContext();
         doReturn(mBatteryStatsManager)
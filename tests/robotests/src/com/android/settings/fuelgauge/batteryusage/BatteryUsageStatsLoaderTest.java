@@ -46,6 +46,7 @@ public class BatteryUsageStatsLoaderTest {
     @Before
     public void setUp() {
         MockitoAnnotations.initMocks(this);
+        BatteryUsageStatsCache.setUpForTest(null);
         mContext = spy(RuntimeEnvironment.application);
         doReturn(mBatteryStatsManager)
                 .when(mContext)
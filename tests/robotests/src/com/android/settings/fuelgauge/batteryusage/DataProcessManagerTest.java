@@ -41,6 +41,7 @@ import android.os.RemoteException;
 import android.os.UserManager;
 import android.text.format.DateUtils;
 
+import com.android.settings.fuelgauge.BatteryUsageStatsCache;
 import com.android.settings.fuelgauge.batteryusage.db.AppUsageEventEntity;
 
 import org.junit.After;
@@ -80,6 +81,7 @@ public final class DataProcessManagerTest {
     @Before
     public void setUp() {
         MockitoAnnotations.initMocks(this);
+        BatteryUsageStatsCache.setUpForTest(null);
 
         mContext = spy(RuntimeEnvironment.application);
         DataProcessor.sTestSystemAppsPackageNames = Set.of();
@@ -18,6 +18,8 @@ package com.android.settings.fuelgauge.batteryusage;
 import static com.android.settings.fuelgauge.batteryusage.PowerUsageBase.KEY_INCLUDE_HISTORY;
 import static com.android.settings.fuelgauge.batteryusage.PowerUsageBase.KEY_REFRESH_TYPE;
 
+import static com.google.common.truth.Truth.assertThat;
+
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.ArgumentMatchers.eq;
@@ -26,26 +28,35 @@ import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.spy;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
 
 import android.content.Context;
+import android.os.BatteryStatsManager;
 import android.os.BatteryUsageStats;
+import android.os.BatteryUsageStatsQuery;
 import android.os.Bundle;
 
 import androidx.loader.app.LoaderManager;
 import androidx.loader.content.Loader;
 
 import com.android.settings.fuelgauge.BatteryBroadcastReceiver;
+import com.android.settings.fuelgauge.BatteryUsageStatsCache;
 import com.android.settings.testutils.shadow.ShadowDashboardFragment;
 import com.android.settingslib.core.AbstractPreferenceController;
 
+import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
 import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
 import org.robolectric.annotation.Config;
+import org.robolectric.shadows.ShadowSystemClock;
+import org.robolectric.util.ReflectionHelpers;
 
+import java.time.Duration;
 import java.util.List;
 
 @RunWith(RobolectricTestRunner.class)
@@ -54,6 +65,9 @@ public class PowerUsageBaseTest {
 
     @Mock private LoaderManager mLoaderManager;
     @Mock private Loader<BatteryUsageStats> mBatteryUsageStatsLoader;
+    @Mock private BatteryBroadcastReceiver mBatteryBroadcastReceiver;
+    @Mock private BatteryStatsManager mBatteryStatsManager;
+    @Mock private BatteryUsageStats mBatteryUsageStats;
     private TestFragment mFragment;
 
     @Before
@@ -63,6 +77,11 @@ public class PowerUsageBaseTest {
         mFragment = spy(new TestFragment(mLoaderManager));
     }
 
+    @After
+    public void tearDown() {
+        BatteryUsageStatsCache.setUpForTest(null);
+    }
+
     @Test
     public void testOnCreate_batteryStatsLoaderNotInvoked() {
         mFragment.onCreate(null);
@@ -129,6 +148,36 @@ public class PowerUsageBaseTest {
                         any());
     }
 
+    @Test
+    public void onLoadFinishedTwiceThenStop_statsStillHeldByLoader_notClosed() throws Exception {
+        final Context context = spy(RuntimeEnvironment.application);
+        doReturn(mBatteryStatsManager)
+                .when(context)
+                .getSystemService(Context.BATTERY_STATS_SERVICE);
+        when(mBatteryStatsManager.getBatteryUsageStats(any(BatteryUsageStatsQuery.class)))
+                .thenReturn(mBatteryUsageStats);
+        // Starts from a fresh process-wide cache.
+        BatteryUsageStatsCache.setUpForTest(null);
+        // Acquired on behalf of the loader, which owns it until it is replaced or reset.
+        final BatteryUsageStats stats =
+                BatteryUsageStatsCache.getInstance()
+                        .acquire(context, new BatteryUsageStatsQuery.Builder().build());
+        ReflectionHelpers.setField(
+                mFragment, "mBatteryBroadcastReceiver", mBatteryBroadcastReceiver);
+        final LoaderManager.LoaderCallbacks<BatteryUsageStats> callbacks =
+                mFragment.mBatteryUsageStatsLoaderCallbacks;
+
+        // A restart may redeliver the same cached result.
+        callbacks.onLoadFinished(mBatteryUsageStatsLoader, stats);
+        callbacks.onLoadFinished(mBatteryUsageStatsLoader, stats);
+        // Past the cache TTL, so a stray release would close it right away.
+        ShadowSystemClock.advanceBy(Duration.ofMinutes(1));
+        mFragment.onStop();
+
+        verify(mBatteryUsageStats, never()).close();
+        assertThat(mFragment.mBatteryUsageStats).isSameInstanceAs(stats);
+    }
+
     private static class TestFragment extends PowerUsageBase {
 
         private LoaderManager mLoaderManager;
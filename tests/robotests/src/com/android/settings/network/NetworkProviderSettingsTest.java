@@ -23,12 +23,14 @@ import static com.android.settings.network.NetworkProviderSettings.MENU_ID_SHARE
 import static com.android.settings.wifi.WifiConfigUiBase2.MODE_CONNECT;
 import static com.android.settings.wifi.WifiConfigUiBase2.MODE_MODIFY;
 import static com.android.wifitrackerlib.WifiEntry.CONNECTED_STATE_DISCONNECTED;
+import static com.android.wifitrackerlib.WifiPickerTracker.WIFI_ENTRIES_CHANGED_REASON_SCAN_RESULTS;
 
 import static com.google.common.truth.Truth.assertThat;
 
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyBoolean;
 import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.doNothing;
 import static org.mockito.Mockito.doReturn;
@@ -653,6 +655,26 @@ public class NetworkProviderSettingsTest {
         verify(mNetworkProviderSettings.mWifiEntryPreferenceCategory, never()).setVisible(true);
     }
 
+    @Test
+    public void onWifiEntriesChanged_scanResultsBurst_throttlesUpdates() {
+        final FragmentActivity activity = mock(FragmentActivity.class);
+        final View view = mock(View.class);
+        when(mNetworkProviderSettings.getActivity()).thenReturn(activity);
+        when(mNetworkProviderSettings.getView()).thenReturn(view);
+        when(mMockWifiPickerTracker.getWifiState()).thenReturn(WifiManager.WIFI_STATE_ENABLED);
+        mNetworkProviderSettings.mWifiEntryPreferenceCategory = mock(PreferenceCategory.class);
+        doNothing().when(mNetworkProviderSettings).setProgressBarVisible(anyBoolean());
+        doNothing().when(mNetworkProviderSettings).setAdditionalSettingsSummaries();
+
+        mNetworkProviderSettings.onWifiEntriesChanged(WIFI_ENTRIES_CHANGED_REASON_SCAN_RESULTS);
+        mNetworkProviderSettings.onWifiEntriesChanged(WIFI_ENTRIES_CHANGED_REASON_SCAN_RESULTS);
+
+        verify(mMockWifiPickerTracker, times(1)).getWifiEntries();
+        verify(view).postDelayed(
+                eq(mNetworkProviderSettings.mThrottledUpdateWifiEntryPreferencesRunnable),
+                anyLong());
+    }
+
     @Test
     public void setWifiScanMessage_wifiOnScanOn_footerIsInvisible() {
         when(mWifiManager.isScanAlwaysAvailable()).thenReturn(true);
@@ -0,0 +1,108 @@
+/*
+ * Copyright (C) 2026 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.network;
+
+import static com.android.settings.network.SubscriptionTaskExecutor.PRIORITY_HIGH;
+import static com.android.settings.network.SubscriptionTaskExecutor.PRIORITY_NORMAL;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@RunWith(RobolectricTestRunner.class)
+public class SubscriptionTaskExecutorTest {
+    private static final int SUB_ID_1 = 1;
+    private static final int SUB_ID_2 = 2;
+
+    private final List<Runnable> mThreadPoolTasks = new ArrayList<>();
+    private final List<String> mRunTasks = new ArrayList<>();
+    private SubscriptionTaskExecutor mExecutor;
+
+    @Before
+    public void setUp() {
+        mExecutor = new SubscriptionTaskExecutor(mThreadPoolTasks::add);
+    }
+
+    @Test
+    public void execute_duplicateWaitingTask_isCoalesced() {
+        assertThat(execute(SUB_ID_1, "refresh", PRIORITY_NORMAL, "first")).isTrue();
+        assertThat(execute(SUB_ID_1, "refresh", PRIORITY_NORMAL, "second")).isFalse();
+        runAll();
+
+        assertThat(mRunTasks).containsExactly("first");
+    }
+
+    @Test
+    public void execute_duplicateWaitingBehindOtherTask_isQueuedAgain() {
+        // The subscription is present, then absent, then present again.
+        execute(SUB_ID_1, "insert", PRIORITY_HIGH, "insert1");
+        execute(SUB_ID_1, "delete", PRIORITY_HIGH, "delete");
+
+        assertThat(execute(SUB_ID_1, "insert", PRIORITY_HIGH, "insert2")).isTrue();
+        runAll();
+
+        assertThat(mRunTasks).containsExactly("insert1", "delete", "insert2").inOrder();
+    }
+
+    @Test
+    public void execute_afterDuplicateRan_isQueuedAgain() {
+        execute(SUB_ID_1, "refresh", PRIORITY_NORMAL, "first");
+        runAll();
+
+        assertThat(execute(SUB_ID_1, "refresh", PRIORITY_NORMAL, "second")).isTrue();
+        runAll();
+
+        assertThat(mRunTasks).containsExactly("first", "second").inOrder();
+    }
+
+    @Test
+    public void execute_sameSubscription_runsByPriorityThenOrder() {
+        execute(SUB_ID_1, "a", PRIORITY_NORMAL, "normal1");
+        execute(SUB_ID_1, "b", PRIORITY_NORMAL, "normal2");
+        execute(SUB_ID_1, "c", PRIORITY_HIGH, "high");
+
+        // The queue of a subscription is handed to the thread pool one task at a time.
+        assertThat(mThreadPoolTasks).hasSize(1);
+        runAll();
+
+        assertThat(mRunTasks).containsExactly("high", "normal1", "normal2").inOrder();
+    }
+
+    @Test
+    public void execute_otherSubscriptions_runInParallel() {
+        execute(SUB_ID_1, "refresh", PRIORITY_NORMAL, "sub1");
+        execute(SUB_ID_2, "refresh", PRIORITY_NORMAL, "sub2");
+
+        assertThat(mThreadPoolTasks).hasSize(2);
+    }
+
+    private boolean execute(int subId, String key, int priority, String name) {
+        return mExecutor.execute(subId, key, priority, () -> mRunTasks.add(name));
+    }
+
+    private void runAll() {
+        while (!mThreadPoolTasks.isEmpty()) {
+            mThreadPoolTasks.remove(0).run();
+        }
+    }
+}
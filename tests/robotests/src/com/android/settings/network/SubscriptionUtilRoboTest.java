@@ -16,7 +16,14 @@
 
 package com.android.settings.network;
 
+import static com.android.settings.network.SubscriptionUtil.KEY_UNIQUE_SUBSCRIPTION_DISPLAYNAME;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.assertFalse;
@@ -26,10 +33,12 @@ import static org.robolectric.Shadows.shadowOf;
 import android.content.Context;
 import android.net.ConnectivityManager;
 import android.net.NetworkCapabilities;
+import android.telephony.SubscriptionInfo;
 import android.telephony.SubscriptionManager;
 
 import androidx.test.core.app.ApplicationProvider;
 
+import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
@@ -38,6 +47,9 @@ import org.mockito.MockitoAnnotations;
 import org.robolectric.RobolectricTestRunner;
 import org.robolectric.shadows.ShadowSubscriptionManager;
 
+import java.util.Arrays;
+import java.util.Map;
+
 @RunWith(RobolectricTestRunner.class)
 public class SubscriptionUtilRoboTest {
     private static final int SUBID_1 = 1;
@@ -49,6 +61,8 @@ public class SubscriptionUtilRoboTest {
 
     @Mock
     private ConnectivityManager mConnectivityManager;
+    @Mock
+    private SubscriptionManager mSubscriptionManager;
 
     @Before
     public void setUp() {
@@ -58,6 +72,12 @@ public class SubscriptionUtilRoboTest {
         when(mContext.getSystemService(ConnectivityManager.class)).thenReturn(mConnectivityManager);
     }
 
+    @After
+    public void tearDown() {
+        SubscriptionUtil.setAvailableSubscriptionsForTesting(null);
+        clearCachedDisplayNames();
+    }
+
     @Test
     public void isConnectedToWifiOrDifferentSubId_hasDataOnSubId2_returnTrue() {
         addNetworkTransportType(NetworkCapabilities.TRANSPORT_CELLULAR);
@@ -74,6 +94,50 @@ public class SubscriptionUtilRoboTest {
         assertFalse(SubscriptionUtil.isConnectedToWifiOrDifferentSubId(mContext, SUBID_1));
     }
 
+    @Test
+    public void getUniqueSubscriptionDisplayNames_sameSubscriptions_computedOnce() {
+        setUpSubscriptionsWithSameName();
+
+        SubscriptionUtil.getUniqueSubscriptionDisplayNames(mContext);
+        final Map<Integer, CharSequence> names =
+                SubscriptionUtil.getUniqueSubscriptionDisplayNames(mContext);
+
+        assertThat(names.get(SUBID_1).toString()).isEqualTo("carrier 3333");
+        assertThat(names.get(SUBID_2).toString()).isEqualTo("carrier 4444");
+        verify(mSubscriptionManager, times(1)).getPhoneNumber(SUBID_1);
+    }
+
+    @Test
+    public void getUniqueSubscriptionDisplayNames_afterInvalidate_recomputed() {
+        setUpSubscriptionsWithSameName();
+        SubscriptionUtil.getUniqueSubscriptionDisplayNames(mContext);
+        clearCachedDisplayNames();
+
+        SubscriptionUtil.invalidateUniqueSubscriptionDisplayNames();
+        SubscriptionUtil.getUniqueSubscriptionDisplayNames(mContext);
+
+        verify(mSubscriptionManager, times(2)).getPhoneNumber(SUBID_1);
+    }
+
+    private void setUpSubscriptionsWithSameName() {
+        when(mContext.getSystemService(SubscriptionManager.class))
+                .thenReturn(mSubscriptionManager);
+        final SubscriptionInfo info1 = mock(SubscriptionInfo.class);
+        final SubscriptionInfo info2 = mock(SubscriptionInfo.class);
+        when(info1.getSubscriptionId()).thenReturn(SUBID_1);
+        when(info2.getSubscriptionId()).thenReturn(SUBID_2);
+        when(info1.getDisplayName()).thenReturn("carrier");
+        when(info2.getDisplayName()).thenReturn("carrier");
+        when(mSubscriptionManager.getPhoneNumber(SUBID_1)).thenReturn("1112223333");
+        when(mSubscriptionManager.getPhoneNumber(SUBID_2)).thenReturn("2223334444");
+        SubscriptionUtil.setAvailableSubscriptionsForTesting(Arrays.asList(info1, info2));
+    }
+
+    private void clearCachedDisplayNames() {
+        mContext.getSharedPreferences(KEY_UNIQUE_SUBSCRIPTION_DISPLAYNAME, Context.MODE_PRIVATE)
+                .edit().clear().commit();
+    }
+
     private void addNetworkTransportType(int networkType) {
         mNetworkCapabilities =
                 new NetworkCapabilities.Builder().addTransportType(networkType).build();
@@ -122,6 +122,30 @@ class AppDataUsageRepositoryTest {
         assertThat(appPercentList[0].second).isEqualTo(100)
     }
 
+    @Test
+    fun getAppPercent_multipleBucketsOfApp_summedIntoOneItem() {
+        val repository = AppDataUsageRepository(
+            context = context,
+            currentUserId = USER_ID,
+            template = Template,
+            getPackageName = { null },
+        )
+        val buckets = listOf(
+            Bucket(uid = APP_ID_1, bytes = 1, startTimeStamp = 0, endTimeStamp = 1),
+            Bucket(uid = APP_ID_2, bytes = 2, startTimeStamp = 0, endTimeStamp = 1),
+            Bucket(uid = APP_ID_1, bytes = 3, startTimeStamp = 1, endTimeStamp = 2),
+        )
+
+        val appPercentList = repository.getAppPercent(null, buckets)
+
+        assertThat(appPercentList).hasSize(2)
+        appPercentList[0].first.apply {
+            assertThat(key).isEqualTo(APP_ID_1)
+            assertThat(total).isEqualTo(4)
+        }
+        assertThat(appPercentList[1].second).isEqualTo(50)
+    }
+
     private companion object {
         const val USER_ID = 1
         const val APP_ID_1 = 110001
@@ -0,0 +1,68 @@
+/*
+ * Copyright (C) 2026 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.datausage.lib
+
+import androidx.test.ext.junit.runners.AndroidJUnit4
+import com.android.settings.datausage.lib.NetworkCycleChartData.Companion.downsample
+import com.google.common.truth.Truth.assertThat
+import org.junit.Test
+import org.junit.runner.RunWith
+
+@RunWith(AndroidJUnit4::class)
+class NetworkCycleChartDataTest {
+
+    @Test
+    fun downsample_fitsMaxCount_unchanged() {
+        val usages = dailyUsages(3)
+
+        val downsampled = downsample(usages, maxCount = 3)
+
+        assertThat(downsampled).isSameInstanceAs(usages)
+    }
+
+    @Test
+    fun downsample_moreThanMaxCount_mergesAdjacentEntries() {
+        val usages = dailyUsages(5)
+
+        val downsampled = downsample(usages, maxCount = 2)
+
+        assertThat(downsampled).containsExactly(
+            NetworkUsageData(startTime = 0, endTime = 3 * DAY, usage = 6),
+            NetworkUsageData(startTime = 3 * DAY, endTime = 5 * DAY, usage = 9),
+        ).inOrder()
+    }
+
+    @Test
+    fun downsample_keepsTotalUsage() {
+        val usages = dailyUsages(365)
+
+        val downsampled = downsample(usages, maxCount = 100)
+
+        assertThat(downsampled.size).isAtMost(100)
+        assertThat(downsampled.sumOf { it.usage }).isEqualTo(usages.sumOf { it.usage })
+        assertThat(downsampled.first().startTime).isEqualTo(0)
+        assertThat(downsampled.last().endTime).isEqualTo(365 * DAY)
+    }
+
+    private fun dailyUsages(days: Int) = (0 until days).map { day ->
+        NetworkUsageData(startTime = day * DAY, endTime = (day + 1) * DAY, usage = day + 1L)
+    }
+
+    private companion object {
+        val DAY = NetworkCycleChartData.BUCKET_DURATION.inWholeMilliseconds
+    }
+}
@@ -32,6 +32,8 @@ import org.mockito.kotlin.doReturn
 import org.mockito.kotlin.mock
 import org.mockito.kotlin.spy
 import org.mockito.kotlin.stub
+import org.mockito.kotlin.times
+import org.mockito.kotlin.verify
 import org.mockito.kotlin.whenever
 
 @RunWith(AndroidJUnit4::class)
@@ -94,6 +96,33 @@ class NetworkCycleDataRepositoryTest {
         )
     }
 
+    @Test
+    fun queryUsage_completedCycle_queriedOnce() {
+        val range = Range(CYCLE1_START_TIME, CYCLE1_END_TIME)
+
+        repository.queryUsage(range)
+        val usage = repository.queryUsage(range)
+
+        assertThat(usage.usage).isEqualTo(CYCLE1_BYTES)
+        verify(mockNetworkStatsRepository, times(1))
+            .querySummaryForDevice(CYCLE1_START_TIME, CYCLE1_END_TIME)
+    }
+
+    @Test
+    fun queryUsage_currentCycle_queriedEveryTime() {
+        val now = System.currentTimeMillis()
+        val range = Range(now - DateUtils.DAY_IN_MILLIS, now + DateUtils.DAY_IN_MILLIS)
+        mockNetworkStatsRepository.stub {
+            on { querySummaryForDevice(range.lower, range.upper) } doReturn CYCLE2_BYTES
+        }
+
+        repository.queryUsage(range)
+        repository.queryUsage(range)
+
+        verify(mockNetworkStatsRepository, times(2))
+            .querySummaryForDevice(range.lower, range.upper)
+    }
+
     private companion object {
         const val CYCLE1_START_TIME = 1L
         const val CYCLE1_END_TIME = 2L
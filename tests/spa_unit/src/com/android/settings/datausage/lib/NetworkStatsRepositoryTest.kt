@@ -20,14 +20,19 @@ import android.app.usage.NetworkStats
 import android.app.usage.NetworkStatsManager
 import android.content.Context
 import android.net.NetworkTemplate
+import android.util.Range
 import androidx.test.core.app.ApplicationProvider
 import androidx.test.ext.junit.runners.AndroidJUnit4
 import com.google.common.truth.Truth.assertThat
+import org.junit.After
 import org.junit.Test
 import org.junit.runner.RunWith
 import org.mockito.kotlin.doReturn
 import org.mockito.kotlin.mock
 import org.mockito.kotlin.spy
+import org.mockito.kotlin.times
+import org.mockito.kotlin.verify
+import org.mockito.kotlin.whenever
 
 @RunWith(AndroidJUnit4::class)
 class NetworkStatsRepositoryTest {
@@ -43,6 +48,11 @@ class NetworkStatsRepositoryTest {
 
     private val repository = NetworkStatsRepository(context, template)
 
+    @After
+    fun tearDown() {
+        NetworkStatsRepository.clearPrefetchedResults()
+    }
+
     @Test
     fun querySummaryForDevice() {
         val bytes = repository.querySummaryForDevice(START_TIME, END_TIME)
@@ -50,6 +60,31 @@ class NetworkStatsRepositoryTest {
         assertThat(bytes).isEqualTo(11)
     }
 
+    @Test
+    fun querySummaryForDevice_afterPrefetch_usesPrefetchedResult() {
+        repository.prefetch(Range(START_TIME, END_TIME))
+
+        val bytes = repository.querySummaryForDevice(START_TIME, END_TIME)
+
+        assertThat(bytes).isEqualTo(11)
+        verify(mockNetworkStatsManager, times(1))
+            .querySummaryForDevice(template, START_TIME, END_TIME)
+    }
+
+    @Test
+    fun querySummaryForDevice_afterFailedPrefetch_queriesAgain() {
+        whenever(mockNetworkStatsManager.querySummaryForDevice(template, START_TIME, END_TIME))
+            .thenThrow(RuntimeException())
+            .thenReturn(BUCKET)
+        repository.prefetch(Range(START_TIME, END_TIME))
+
+        val bytes = repository.querySummaryForDevice(START_TIME, END_TIME)
+
+        assertThat(bytes).isEqualTo(11)
+        verify(mockNetworkStatsManager, times(2))
+            .querySummaryForDevice(template, START_TIME, END_TIME)
+    }
+
     private companion object {
         const val START_TIME = 1L
         const val END_TIME = 2L
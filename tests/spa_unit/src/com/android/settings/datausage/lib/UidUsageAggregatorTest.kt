@@ -0,0 +1,65 @@
+/*
+ * Copyright (C) 2026 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.datausage.lib
+
+import androidx.test.ext.junit.runners.AndroidJUnit4
+import com.android.settings.datausage.lib.NetworkStatsRepository.Companion.Bucket
+import com.google.common.truth.Truth.assertThat
+import org.junit.Test
+import org.junit.runner.RunWith
+
+@RunWith(AndroidJUnit4::class)
+class UidUsageAggregatorTest {
+
+    @Test
+    fun aggregate_sumsBytesByUid_inFirstSeenOrder() {
+        val buckets = listOf(
+            Bucket(uid = UID_2, bytes = 1, startTimeStamp = 0, endTimeStamp = 0),
+            Bucket(uid = UID_1, bytes = 2, startTimeStamp = 0, endTimeStamp = 0),
+            Bucket(uid = UID_2, bytes = 3, startTimeStamp = 0, endTimeStamp = 0),
+            Bucket(uid = UID_2, bytes = 4, startTimeStamp = 0, endTimeStamp = 0),
+        )
+
+        val usages = UidUsageAggregator.aggregate(buckets)
+
+        assertThat(usages.size).isEqualTo(2)
+        assertThat(usages.uidAt(0)).isEqualTo(UID_2)
+        assertThat(usages.bytesAt(0)).isEqualTo(8)
+        assertThat(usages.uidAt(1)).isEqualTo(UID_1)
+        assertThat(usages.bytesAt(1)).isEqualTo(2)
+    }
+
+    @Test
+    fun aggregate_manyUids_growsArrays() {
+        val buckets = (0 until 1000).map { index ->
+            Bucket(uid = UID_1 + index % 200, bytes = 1, startTimeStamp = 0, endTimeStamp = 0)
+        }
+
+        val usages = UidUsageAggregator.aggregate(buckets)
+
+        assertThat(usages.size).isEqualTo(200)
+        for (i in 0 until usages.size) {
+            assertThat(usages.uidAt(i)).isEqualTo(UID_1 + i)
+            assertThat(usages.bytesAt(i)).isEqualTo(5)
+        }
+    }
+
+    private companion object {
+        const val UID_1 = 10001
+        const val UID_2 = 10002
+    }
+}
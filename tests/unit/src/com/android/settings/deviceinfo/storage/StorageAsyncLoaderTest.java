@@ -24,9 +24,14 @@ import static org.mockito.Matchers.anyString;
 import static org.mockito.Matchers.eq;
 import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
+import android.app.usage.StorageStats;
+import android.app.usage.StorageStatsManager;
 import android.content.Context;
 import android.content.pm.ApplicationInfo;
 import android.content.pm.PackageManager;
@@ -51,8 +56,10 @@ import org.junit.runner.RunWith;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
 
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.UUID;
 
 @RunWith(AndroidJUnit4.class)
 @SmallTest
@@ -63,6 +70,7 @@ public class StorageAsyncLoaderTest {
     private static final String PACKAGE_NAME_2 = "com.blah.test2";
     private static final String PACKAGE_NAME_3 = "com.blah.test3";
     private static final long DEFAULT_QUOTA = DataUnit.MEBIBYTES.toBytes(64);
+    private static final String VOLUME_UUID = "fafafafa-fafa-fafa-fafa-fafafafafafa";
 
     @Mock
     private StorageStatsSource mSource;
@@ -71,6 +79,8 @@ public class StorageAsyncLoaderTest {
     private PackageManager mPackageManager;
     @Mock
     private UserManager mUserManager;
+    @Mock
+    private StorageStatsManager mStorageStatsManager;
     private List<ApplicationInfo> mInfo = new ArrayList<>();
     private List<UserInfo> mUsers;
 
@@ -208,6 +218,144 @@ public class StorageAsyncLoaderTest {
         assertThat(result.get(PRIMARY_USER_ID).allAppsExceptGamesSize).isEqualTo(33L);
     }
 
+    @Test
+    public void testBatchedLoading_onlyQueriesGamesPerPackage() throws Exception {
+        addPackage(PACKAGE_NAME_1, 0, 1, 10, ApplicationInfo.CATEGORY_UNDEFINED);
+        addPackage(PACKAGE_NAME_2, 0, 100, 1000, ApplicationInfo.CATEGORY_GAME);
+        setUserStats(PRIMARY_USER_ID, 101, 1010);
+        final StorageAsyncLoader loader = new StorageAsyncLoader(mContext, mUserManager,
+                VOLUME_UUID, mSource, mPackageManager, mStorageStatsManager);
+
+        SparseArray<StorageAsyncLoader.StorageResult> result = loader.loadInBackground();
+
+        assertThat(result.get(PRIMARY_USER_ID).gamesSize).isEqualTo(1100L);
+        assertThat(result.get(PRIMARY_USER_ID).allAppsExceptGamesSize).isEqualTo(11L);
+        verify(mSource, never()).getStatsForPackage(anyString(), eq(PACKAGE_NAME_1),
+                any(UserHandle.class));
+    }
+
+    @Test
+    public void testBatchedLoading_cacheOveragesAreCountedAsFree() throws Exception {
+        addPackage(PACKAGE_NAME_1, DEFAULT_QUOTA + 100, 1, 10, ApplicationInfo.CATEGORY_UNDEFINED);
+        setUserStats(PRIMARY_USER_ID, DEFAULT_QUOTA + 100, 1, 10);
+        final StorageAsyncLoader loader = new StorageAsyncLoader(mContext, mUserManager,
+                VOLUME_UUID, mSource, mPackageManager, mStorageStatsManager);
+
+        SparseArray<StorageAsyncLoader.StorageResult> result = loader.loadInBackground();
+
+        assertThat(result.get(PRIMARY_USER_ID).allAppsExceptGamesSize)
+                .isEqualTo(DEFAULT_QUOTA + 11);
+    }
+
+    @Test
+    public void testBatchedLoading_gameQueryFails_countsItAsApp() throws Exception {
+        addPackage(PACKAGE_NAME_1, 0, 1, 10, ApplicationInfo.CATEGORY_UNDEFINED);
+        final ApplicationInfo game = new ApplicationInfo();
+        game.packageName = PACKAGE_NAME_2;
+        game.category = ApplicationInfo.CATEGORY_GAME;
+        mInfo.add(game);
+        when(mSource.getStatsForPackage(anyString(), eq(PACKAGE_NAME_2), any(UserHandle.class)))
+                .thenThrow(new NameNotFoundException());
+        setUserStats(PRIMARY_USER_ID, 101, 1010);
+        final StorageAsyncLoader loader = new StorageAsyncLoader(mContext, mUserManager,
+                VOLUME_UUID, mSource, mPackageManager, mStorageStatsManager);
+
+        SparseArray<StorageAsyncLoader.StorageResult> result = loader.loadInBackground();
+
+        // The game removed meanwhile is still in the aggregate.
+        assertThat(result.get(PRIMARY_USER_ID).gamesSize).isEqualTo(0L);
+        assertThat(result.get(PRIMARY_USER_ID).allAppsExceptGamesSize).isEqualTo(1111L);
+        verify(mSource, never()).getStatsForPackage(anyString(), eq(PACKAGE_NAME_1),
+                any(UserHandle.class));
+    }
+
+    @Test
+    public void testBatchedLoading_cacheWithinSummedQuotas_queriesOnlyGames() throws Exception {
+        final long quota = DataUnit.MEBIBYTES.toBytes(10);
+        final long cacheSize = DataUnit.MEBIBYTES.toBytes(30);
+        for (int i = 0; i < 100; i++) {
+            final ApplicationInfo app = addPackage("com.blah.app" + i, cacheSize / 100, 1, 10,
+                    ApplicationInfo.CATEGORY_UNDEFINED);
+            app.uid = 10000 + i;
+        }
+        addPackage(PACKAGE_NAME_2, 0, 100, 1000, ApplicationInfo.CATEGORY_GAME).uid = 20000;
+        addPackage(PACKAGE_NAME_3, 0, 100, 1000, ApplicationInfo.CATEGORY_GAME).uid = 20001;
+        // Every quota is below the cache of the user, their sum isn't.
+        when(mSource.getCacheQuotaBytes(anyString(), anyInt())).thenReturn(quota);
+        setUserStats(PRIMARY_USER_ID, cacheSize, 300, 3000);
+        final StorageAsyncLoader loader = new StorageAsyncLoader(mContext, mUserManager,
+                VOLUME_UUID, mSource, mPackageManager, mStorageStatsManager);
+
+        SparseArray<StorageAsyncLoader.StorageResult> result = loader.loadInBackground();
+
+        assertThat(result.get(PRIMARY_USER_ID).gamesSize).isEqualTo(2200L);
+        assertThat(result.get(PRIMARY_USER_ID).allAppsExceptGamesSize)
+                .isEqualTo(cacheSize + 1100L);
+        verify(mStorageStatsManager, times(1)).queryStatsForUser(any(UUID.class),
+                any(UserHandle.class));
+        verify(mSource, times(2)).getStatsForPackage(anyString(), anyString(),
+                any(UserHandle.class));
+        // The quotas of the 2 games, and of the 3 apps whose quotas cover the cache.
+        verify(mSource, times(5)).getCacheQuotaBytes(anyString(), anyInt());
+    }
+
+    @Test
+    public void testBatchedLoading_workProfile_queriesOnlyPackagesNewToIt() throws Exception {
+        addPackage(PACKAGE_NAME_1, 0, 1, 10, ApplicationInfo.CATEGORY_UNDEFINED);
+        addPackage(PACKAGE_NAME_2, 0, 2, 20, ApplicationInfo.CATEGORY_UNDEFINED);
+        final UserInfo info = new UserInfo();
+        info.id = SECONDARY_USER_ID;
+        mUsers.add(info);
+        final List<ApplicationInfo> profileApps = new ArrayList<>(mInfo);
+        profileApps.add(addPackage(PACKAGE_NAME_3, 0, 4, 40, ApplicationInfo.CATEGORY_UNDEFINED));
+        mInfo.remove(mInfo.size() - 1);
+        when(mPackageManager.getInstalledApplicationsAsUser(anyInt(), eq(SECONDARY_USER_ID)))
+                .thenReturn(profileApps);
+        setUserStats(PRIMARY_USER_ID, 3, 30);
+        setUserStats(SECONDARY_USER_ID, 7, 70);
+        final StorageAsyncLoader loader = new StorageAsyncLoader(mContext, mUserManager,
+                VOLUME_UUID, mSource, mPackageManager, mStorageStatsManager);
+
+        SparseArray<StorageAsyncLoader.StorageResult> result = loader.loadInBackground();
+
+        assertThat(result.get(PRIMARY_USER_ID).duplicateCodeSize).isEqualTo(0L);
+        assertThat(result.get(SECONDARY_USER_ID).duplicateCodeSize).isEqualTo(3L);
+        assertThat(result.get(SECONDARY_USER_ID).allAppsExceptGamesSize).isEqualTo(77L);
+        verify(mSource, never()).getStatsForPackage(anyString(), eq(PACKAGE_NAME_1),
+                any(UserHandle.class));
+        verify(mSource, never()).getStatsForPackage(anyString(), eq(PACKAGE_NAME_2),
+                any(UserHandle.class));
+        verify(mSource, times(1)).getStatsForPackage(anyString(), eq(PACKAGE_NAME_3),
+                any(UserHandle.class));
+    }
+
+    @Test
+    public void testBatchedLoading_queryFails_fallsBackToPerPackage() throws Exception {
+        addPackage(PACKAGE_NAME_1, 0, 1, 10, ApplicationInfo.CATEGORY_UNDEFINED);
+        when(mStorageStatsManager.queryStatsForUser(any(UUID.class), any(UserHandle.class)))
+                .thenThrow(new IOException());
+        final StorageAsyncLoader loader = new StorageAsyncLoader(mContext, mUserManager,
+                VOLUME_UUID, mSource, mPackageManager, mStorageStatsManager);
+
+        SparseArray<StorageAsyncLoader.StorageResult> result = loader.loadInBackground();
+
+        assertThat(result.get(PRIMARY_USER_ID).allAppsExceptGamesSize).isEqualTo(11L);
+    }
+
+    private void setUserStats(int userId, long codeSize, long dataSize) throws Exception {
+        setUserStats(userId, 0 /* cacheSize */, codeSize, dataSize);
+    }
+
+    private void setUserStats(int userId, long cacheSize, long codeSize, long dataSize)
+            throws Exception {
+        final StorageStats stats = new StorageStats();
+        stats.codeBytes = codeSize;
+        stats.dataBytes = dataSize + cacheSize;
+        stats.cacheBytes = cacheSize;
+        when(mStorageStatsManager.queryStatsForUser(any(UUID.class), eq(UserHandle.of(userId))))
+                .thenReturn(stats);
+    }
+
     private ApplicationInfo addPackage(String packageName, long cacheSize, long codeSize,
             long dataSize, int category) throws Exception {
         StorageStatsSource.AppStorageStats storageStats =
@@ -18,6 +18,8 @@ package com.android.settings.network;
 
 import static com.google.common.truth.Truth.assertThat;
 
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.spy;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
@@ -44,6 +46,7 @@ public class CarrierConfigCacheTest {
 
     static final int ONCE_SUB_ID = 11;
     static final int TWICE_SUB_ID = 12;
+    static final int KEYS_SUB_ID = 13;
 
     @Rule
     public final MockitoRule mMockitoRule = MockitoJUnit.rule();
@@ -98,4 +101,36 @@ public class CarrierConfigCacheTest {
 
         verify(mCarrierConfigManager, times(1)).getConfigForSubId(TWICE_SUB_ID);
     }
+
+    @Test
+    public void getConfigForSubId_withCachedKeys_onlyGetOnceFromManager() {
+        final PersistableBundle partialConfig = new PersistableBundle();
+        partialConfig.putBoolean(CarrierConfigManager.KEY_HIDE_CARRIER_NETWORK_SETTINGS_BOOL,
+                true);
+        when(mCarrierConfigManager.getConfigForSubId(KEYS_SUB_ID,
+                CarrierConfigManager.KEY_HIDE_CARRIER_NETWORK_SETTINGS_BOOL))
+                .thenReturn(partialConfig);
+
+        mCarrierConfigCache.getConfigForSubId(KEYS_SUB_ID,
+                CarrierConfigManager.KEY_HIDE_CARRIER_NETWORK_SETTINGS_BOOL);
+        PersistableBundle config = mCarrierConfigCache.getConfigForSubId(KEYS_SUB_ID,
+                CarrierConfigManager.KEY_HIDE_CARRIER_NETWORK_SETTINGS_BOOL);
+
+        assertThat(config.getBoolean(
+                CarrierConfigManager.KEY_HIDE_CARRIER_NETWORK_SETTINGS_BOOL)).isTrue();
+        verify(mCarrierConfigManager, times(1)).getConfigForSubId(KEYS_SUB_ID,
+                CarrierConfigManager.KEY_HIDE_CARRIER_NETWORK_SETTINGS_BOOL);
+        verify(mCarrierConfigManager, never()).getConfigForSubId(KEYS_SUB_ID);
+    }
+
+    @Test
+    public void getConfigForSubId_cachedConfig_countsHit() {
+        when(mCarrierConfigManager.getConfigForSubId(anyInt())).thenReturn(mCarrierConfig);
+        mCarrierConfigCache.getConfigForSubId(TWICE_SUB_ID);
+        final long hitCount = mCarrierConfigCache.getHitCount();
+
+        mCarrierConfigCache.getConfigForSubId(TWICE_SUB_ID);
+
+        assertThat(mCarrierConfigCache.getHitCount()).isEqualTo(hitCount + 1);
+    }
 }
@@ -197,6 +197,21 @@ public class NetworkSelectSettingsTest {
         assertThat(preference.getOperatorName()).isEqualTo(mCellId2.getOperatorAlphaLong());
     }
 
+    @Test
+    @UiThreadTest
+    public void scanResultHandler_partialResults_keepEarlierOperators() {
+        mNetworkSelectSettings.onCreateInitialization();
+        mNetworkSelectSettings.enablePreferenceScreen(true);
+
+        mNetworkSelectSettings.scanResultHandler(Arrays.asList(mCellInfo1));
+        mNetworkSelectSettings.scanResultHandler(Arrays.asList(mCellInfo2));
+
+        assertThat(mPreferenceCategory.getPreferenceCount()).isEqualTo(2);
+        final NetworkOperatorPreference preference =
+                (NetworkOperatorPreference) mPreferenceCategory.getPreference(0);
+        assertThat(preference.getOperatorName()).isEqualTo(mCellId1.getOperatorAlphaLong());
+    }
+
     @Test
     @UiThreadTest
     public void updateForbiddenPlmns_forbiddenPlmnsNull_shouldNotCrash() {